@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biouno.figshare.v1.model.Article;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+/**
+ * Memory footprint of a listing held in memory: the bytes retained by the
+ * articles, with everything they reference, measured with JOL. Not a JMH
+ * benchmark, run it with
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.biouno.figshare.ArticleFootprint [articles]
+ * </pre>
+ *
+ * <p>The articles are copies of the one of articles.json, so strings that
+ * repeat across a real catalog (tags, categories, types) repeat here too.</p>
+ *
+ * @since 0.2
+ */
+public final class ArticleFootprint {
+
+    private ArticleFootprint() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final List<Article> articles;
+        try (FigShareClient client = FigShareClient.to("http://localhost/", 1, "", "", "", "")) {
+            // copy the listing, so that only the articles are measured
+            articles = new ArrayList<>(client.readArticlesFromJson(Fixtures.articles(count)));
+        }
+        System.out.println(VM.current().details());
+        final GraphLayout layout = GraphLayout.parseInstance(articles);
+        System.out.println(layout.toFootprint());
+        System.out.printf("%d articles, %d bytes, %d bytes per article%n", count, layout.totalSize(),
+                layout.totalSize() / count);
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Synthetic JSON fixtures for the benchmarks, scaled from the resources of
+ * the API tests.
+ *
+ * @since 0.2
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param resource resource name
+     * @return resource content
+     * @throws IOException if the resource cannot be read
+     */
+    static String read(String resource) throws IOException {
+        try (InputStream in = Fixtures.class.getResourceAsStream(resource);
+                Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            final StringWriter out = new StringWriter();
+            final char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * @param count number of articles
+     * @return a listing with <code>count</code> copies of the article of articles.json, numbered from 1
+     * @throws IOException if the resource cannot be read
+     */
+    static String articles(int count) throws IOException {
+        final JsonObject listing = new JsonParser().parse(read("/articles.json")).getAsJsonObject();
+        final String template = listing.get("items").getAsJsonArray().get(0).toString();
+        final JsonArray items = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            final JsonObject item = new JsonParser().parse(template).getAsJsonObject();
+            item.addProperty("article_id", i + 1);
+            items.add(item);
+        }
+        listing.add("items", items);
+        listing.addProperty("count", count);
+        return listing.toString();
+    }
+
+}
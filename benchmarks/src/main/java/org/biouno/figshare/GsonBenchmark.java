@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.biouno.figshare.v1.model.Article;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares reading an articles listing the way the client used to (a new
+ * Gson and a JsonParser tree per call) against the client's shared Gson
+ * with the hand-written model adapters. The models name the adapters with
+ * <code>@JsonAdapter</code>, so both read them with the adapters, and the
+ * difference is the cost of the new Gson and of the tree.
+ *
+ * @since 0.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GsonBenchmark {
+
+    @Param({ "1", "100" })
+    public int articles;
+
+    private String json;
+    private FigShareClient client;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = Fixtures.articles(articles);
+        client = FigShareClient.to("http://localhost/", 1, "", "", "", "");
+    }
+
+    @Benchmark
+    public List<Article> newGsonPerCall() {
+        Gson gson = new Gson();
+        JsonParser parser = new JsonParser();
+        JsonObject array = parser.parse(json).getAsJsonObject();
+        JsonArray itemsArray = array.get("items").getAsJsonArray();
+        List<Article> list = new LinkedList<>();
+        for (JsonElement element : itemsArray) {
+            list.add(gson.fromJson(element, Article.class));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<Article> sharedGsonWithAdapters() throws IOException {
+        return client.readArticlesFromJson(new StringReader(json));
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.biouno.figshare.v1.model.Article;
+import org.biouno.figshare.v1.model.Category;
+import org.biouno.figshare.v1.model.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Finding articles by tag, category and status, scanning the listing and
+ * with an {@link ArticleIndex}, and building the index from a listing in
+ * the order of the API, newest first.
+ *
+ * @since 0.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int articles;
+
+    private List<Article> listing;
+    private List<Article> newestFirst;
+    private ArticleIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        // 100 tags, 20 categories and two statuses spread over the articles
+        JsonObject json = new JsonParser().parse(Fixtures.articles(articles)).getAsJsonObject();
+        int i = 0;
+        for (JsonElement element : json.get("items").getAsJsonArray()) {
+            JsonObject item = element.getAsJsonObject();
+            item.addProperty("status", i % 2 == 0 ? "Public" : "Private");
+            JsonObject tag = new JsonObject();
+            tag.addProperty("id", i % 100);
+            tag.addProperty("name", "tag" + (i % 100));
+            JsonArray tags = new JsonArray();
+            tags.add(tag);
+            item.add("tags", tags);
+            JsonObject category = new JsonObject();
+            category.addProperty("id", i % 20);
+            category.addProperty("name", "category" + (i % 20));
+            JsonArray categories = new JsonArray();
+            categories.add(category);
+            item.add("categories", categories);
+            i++;
+        }
+        try (FigShareClient client = FigShareClient.to("http://localhost/", 1, "", "", "", "")) {
+            listing = client.readArticlesFromJson(json.toString());
+        }
+        index = new ArticleIndex(listing);
+        newestFirst = new ArrayList<>(listing);
+        Collections.reverse(newestFirst);
+    }
+
+    @Benchmark
+    public List<Article> scan() {
+        List<Article> found = new ArrayList<>();
+        for (Article article : listing) {
+            if (!"Public".equals(article.getStatus())) {
+                continue;
+            }
+            boolean tagged = false;
+            for (Tag tag : article.getTags()) {
+                if ("tag42".equals(tag.getName())) {
+                    tagged = true;
+                    break;
+                }
+            }
+            if (!tagged) {
+                continue;
+            }
+            for (Category category : article.getCategories()) {
+                if (category.getId() != null && category.getId().longValue() == 2L) {
+                    found.add(article);
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<Article> query() {
+        return index.query().tagName("tag42").category(2L).status("Public").find();
+    }
+
+    @Benchmark
+    public ArticleIndex buildNewestFirst() {
+        return new ArticleIndex(newestFirst);
+    }
+
+}
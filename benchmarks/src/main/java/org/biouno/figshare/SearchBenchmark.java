@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.biouno.figshare.v1.model.Article;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Searching the titles and descriptions of articles, scanning them with
+ * <code>String.contains</code>, with an {@link ArticleSearchIndex}, and
+ * with a saved index that is loaded first; and building the index from a
+ * listing in the order of the API, newest first.
+ *
+ * @since 0.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int articles;
+
+    private List<Article> listing;
+    private List<Article> newestFirst;
+    private ArticleSearchIndex index;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        // titles of 5 words and descriptions of 30, from 5,000 words, the first ones more frequent
+        Random random = new Random(42L);
+        JsonArray items = new JsonArray();
+        for (int i = 0; i < articles; i++) {
+            JsonObject item = new JsonObject();
+            item.addProperty("article_id", i + 1);
+            item.addProperty("title", words(random, 5));
+            item.addProperty("description_nohtml", words(random, 30));
+            items.add(item);
+        }
+        JsonObject json = new JsonObject();
+        json.add("items", items);
+        try (FigShareClient client = FigShareClient.to("http://localhost/", 1, "", "", "", "")) {
+            listing = client.readArticlesFromJson(json.toString());
+        }
+        index = new ArticleSearchIndex(listing);
+        newestFirst = new ArrayList<>(listing);
+        Collections.reverse(newestFirst);
+        file = File.createTempFile("figshare", ".idx");
+        index.save(file);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int word = (int) (5000 * Math.pow(random.nextDouble(), 3));
+            words.append(i > 0 ? " " : "").append("Wörd").append(word);
+        }
+        return words.toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public List<Article> contains() {
+        List<Article> found = new ArrayList<>();
+        for (Article article : listing) {
+            String text = (article.getTitle() + " " + article.getDescriptionNohtml()).toLowerCase(Locale.ROOT);
+            if (text.contains("wörd1234 ") || text.contains("wörd777 ")) {
+                found.add(article);
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<ArticleSearchIndex.Hit> search() {
+        return index.search("word1234 word777", 10);
+    }
+
+    @Benchmark
+    public List<ArticleSearchIndex.Hit> loadAndSearch() throws IOException {
+        return ArticleSearchIndex.load(file).search("word1234 word777", 10);
+    }
+
+    @Benchmark
+    public ArticleSearchIndex buildNewestFirst() {
+        return new ArticleSearchIndex(newestFirst);
+    }
+
+}
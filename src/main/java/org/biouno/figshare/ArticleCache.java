@@ -0,0 +1,336 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.biouno.figshare.v1.model.Article;
+
+import com.google.gson.Gson;
+
+/**
+ * Cache of article listings, keyed by the endpoint, API version and token of
+ * the client, and the listing URL. Listings are kept in memory, least recently
+ * used first out once the cache holds more articles than its limit, and
+ * optionally on disk, as the JSON of the listing next to a properties file
+ * with its validators.
+ *
+ * <p>A listing the server sent with an <code>ETag</code> or a
+ * <code>Last-Modified</code> header is revalidated with a conditional request
+ * each time it is used. A listing without them is used as is until its time
+ * to live has passed, and then fetched again.</p>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class ArticleCache {
+
+    private static final String KEY = "key";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String VALIDATED = "validated";
+    /**
+     * Locks of the files on disk, so that a listing is written and read back
+     * by one thread at a time, even by caches of different clients sharing a
+     * directory. Striped by file name.
+     */
+    private static final Object[] FILE_LOCKS = new Object[16];
+
+    static {
+        for (int i = 0; i < FILE_LOCKS.length; i++) {
+            FILE_LOCKS[i] = new Object();
+        }
+    }
+
+    /**
+     * A cached listing, and what is needed to revalidate it.
+     */
+    static final class Entry {
+        private final List<Article> articles;
+        private final String etag;
+        private final String lastModified;
+        private volatile long validated;
+
+        Entry(List<Article> articles, String etag, String lastModified, long validated) {
+            this.articles = Collections.unmodifiableList(new ArrayList<>(articles));
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.validated = validated;
+        }
+
+        /**
+         * @return the articles, shared by everyone reading this listing
+         */
+        List<Article> getArticles() {
+            return articles;
+        }
+
+        /**
+         * @return the <code>ETag</code> of the listing, or <code>null</code>
+         */
+        String getETag() {
+            return etag;
+        }
+
+        /**
+         * @return the <code>Last-Modified</code> date of the listing, or <code>null</code>
+         */
+        String getLastModified() {
+            return lastModified;
+        }
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    private final Gson gson;
+    private final String owner;
+    private final int maxArticles;
+    private final long ttlMillis;
+    private final File directory;
+    /**
+     * In access order, so the eldest entry is the least recently used.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int cachedArticles = 0;
+
+    /**
+     * @param gson Gson, to read listings back from disk
+     * @param endpoint API endpoint
+     * @param version API version
+     * @param tokenKey OAuth token key, so that different users never share listings
+     * @param maxArticles maximum number of articles held in memory
+     * @param ttlMillis time to live of listings without validators
+     * @param directory directory of the listings on disk, or <code>null</code> to keep them in memory only
+     */
+    ArticleCache(Gson gson, String endpoint, int version, String tokenKey, int maxArticles, long ttlMillis,
+            File directory) {
+        this.gson = gson;
+        this.owner = endpoint + "|" + version + "|" + LocalFiles.md5(tokenKey);
+        this.maxArticles = maxArticles;
+        this.ttlMillis = ttlMillis;
+        this.directory = directory;
+    }
+
+    /**
+     * Get a cached listing, from memory or else from disk.
+     *
+     * @param url listing URL
+     * @return the listing, or <code>null</code> if it is not cached
+     */
+    Entry get(String url) {
+        final String key = owner + "|" + url;
+        synchronized (this) {
+            final Entry entry = entries.get(key);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        final Entry stored = load(key);
+        if (stored != null) {
+            remember(key, stored);
+        }
+        return stored;
+    }
+
+    /**
+     * @param entry cached listing
+     * @param now current time
+     * @return whether the listing can be used without asking the server
+     */
+    boolean isFresh(Entry entry, long now) {
+        return !entry.hasValidators() && now - entry.validated < ttlMillis;
+    }
+
+    /**
+     * Record that the server confirmed a cached listing is still current.
+     *
+     * @param entry cached listing
+     * @param now current time
+     */
+    void revalidated(Entry entry, long now) {
+        entry.validated = now;
+    }
+
+    /**
+     * Cache a listing.
+     *
+     * @param url listing URL
+     * @param json JSON of the listing, as sent by the server
+     * @param articles articles of the listing
+     * @param etag <code>ETag</code> of the listing, or <code>null</code>
+     * @param lastModified <code>Last-Modified</code> date of the listing, or <code>null</code>
+     * @param now current time
+     * @return the cached listing
+     */
+    Entry put(String url, String json, List<Article> articles, String etag, String lastModified, long now) {
+        final String key = owner + "|" + url;
+        final Entry entry = new Entry(articles, etag, lastModified, now);
+        remember(key, entry);
+        if (directory != null) {
+            try {
+                store(key, json, entry);
+            } catch (IOException e) {
+                // the disk is only a second level, the listing is still cached in memory
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @return number of articles held in memory
+     */
+    synchronized int getCachedArticles() {
+        return cachedArticles;
+    }
+
+    private synchronized void remember(String key, Entry entry) {
+        final int size = entry.getArticles().size();
+        final Entry previous = entries.remove(key);
+        if (previous != null) {
+            cachedArticles -= previous.getArticles().size();
+        }
+        if (size > maxArticles) {
+            // would push everything else out, and still not fit
+            return;
+        }
+        entries.put(key, entry);
+        cachedArticles += size;
+        final Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (cachedArticles > maxArticles && eldest.hasNext()) {
+            cachedArticles -= eldest.next().getValue().getArticles().size();
+            eldest.remove();
+        }
+    }
+
+    private Entry load(String key) {
+        if (directory == null) {
+            return null;
+        }
+        final String name = LocalFiles.md5(key);
+        synchronized (fileLock(name)) {
+            return load(key, name);
+        }
+    }
+
+    private Entry load(String key, String name) {
+        final File propertiesFile = new File(directory, name + ".properties");
+        final File jsonFile = new File(directory, name + ".json");
+        if (!propertiesFile.isFile() || !jsonFile.isFile()) {
+            return null;
+        }
+        try {
+            final Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(propertiesFile)) {
+                properties.load(in);
+            }
+            if (!key.equals(properties.getProperty(KEY))) {
+                return null;
+            }
+            final List<Article> articles = new ArrayList<>();
+            final Reader reader = new InputStreamReader(new FileInputStream(jsonFile), StandardCharsets.UTF_8);
+            try (ArticleIterator iterator = new ArticleIterator(gson, reader, null)) {
+                while (iterator.hasNext()) {
+                    articles.add(iterator.next());
+                }
+            }
+            return new Entry(articles, properties.getProperty(ETAG), properties.getProperty(LAST_MODIFIED),
+                    Long.parseLong(properties.getProperty(VALIDATED, "0")));
+        } catch (IOException e) {
+            // unreadable, so fetch the listing again
+            return null;
+        } catch (RuntimeException e) {
+            // not valid JSON, or not a number, so fetch the listing again
+            return null;
+        }
+    }
+
+    private void store(String key, String json, Entry entry) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create article cache directory " + directory);
+        }
+        final String name = LocalFiles.md5(key);
+        synchronized (fileLock(name)) {
+            store(name, key, json, entry);
+        }
+    }
+
+    private void store(String name, String key, final String json, Entry entry) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(KEY, key);
+        if (entry.getETag() != null) {
+            properties.setProperty(ETAG, entry.getETag());
+        }
+        if (entry.getLastModified() != null) {
+            properties.setProperty(LAST_MODIFIED, entry.getLastModified());
+        }
+        properties.setProperty(VALIDATED, String.valueOf(entry.validated));
+        // drop the properties, write the JSON and then the properties again,
+        // each to a new file that is renamed, so a listing is never read back
+        // half-written or with the validators of another version. Fetches of
+        // the same listing on other threads wait for the file lock, and other
+        // processes sharing the directory write temporary files of their own
+        final File propertiesFile = new File(directory, name + ".properties");
+        if (propertiesFile.exists() && !propertiesFile.delete()) {
+            throw new IOException("Failed to replace article cache file " + propertiesFile);
+        }
+        LocalFiles.write(new File(directory, name + ".json"), new LocalFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                writer.write(json);
+                writer.flush();
+            }
+        });
+        LocalFiles.write(propertiesFile, new LocalFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                properties.store(out, "FigShare article listing");
+            }
+        });
+    }
+
+    private static Object fileLock(String name) {
+        return FILE_LOCKS[(name.hashCode() & Integer.MAX_VALUE) % FILE_LOCKS.length];
+    }
+
+}
@@ -0,0 +1,518 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.biouno.figshare.v1.model.Article;
+import org.biouno.figshare.v1.model.Author;
+import org.biouno.figshare.v1.model.Category;
+import org.biouno.figshare.v1.model.Tag;
+
+/**
+ * Index of articles already fetched, for looking them up by tag, category,
+ * author, status or defined type without scanning the listing.
+ *
+ * <p>Each value of each field has a posting list, the sorted IDs of the
+ * articles with that value. Looking up one value is a hash lookup, and a
+ * {@link Query} with several criteria intersects their posting lists,
+ * starting with the shortest. Articles are keyed by their ID, so adding an
+ * article that is already indexed replaces it.</p>
+ *
+ * <pre>
+ * ArticleIndex index = new ArticleIndex(figshare.articles());
+ * List&lt;Article&gt; guitars = index.query().tagName("guitar").status("Public").find();
+ * </pre>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class ArticleIndex {
+
+    private final Map<Long, Article> articles = new HashMap<>();
+    private final Map<String, Postings> tagNames = new HashMap<>();
+    private final Map<Long, Postings> tagIds = new HashMap<>();
+    private final Map<Long, Postings> categoryIds = new HashMap<>();
+    private final Map<Long, Postings> authorIds = new HashMap<>();
+    private final Map<String, Postings> statuses = new HashMap<>();
+    private final Map<String, Postings> definedTypes = new HashMap<>();
+
+    /**
+     * Creates an empty index.
+     */
+    public ArticleIndex() {
+        super();
+    }
+
+    /**
+     * Creates an index of the articles.
+     *
+     * @param articles articles, each with an ID
+     */
+    public ArticleIndex(Collection<Article> articles) {
+        this();
+        for (Article article : articles) {
+            add(article);
+        }
+    }
+
+    /**
+     * Adds an article, replacing the article with the same ID if there is one.
+     *
+     * @param article article, with an ID
+     * @return the article it replaced, or <code>null</code>
+     */
+    public synchronized Article add(Article article) {
+        if (article == null || article.getArticleId() == null) {
+            throw new IllegalArgumentException("article must have an ID: " + article);
+        }
+        long id = article.getArticleId().longValue();
+        Article previous = articles.put(Long.valueOf(id), article);
+        if (previous != null) {
+            unindex(id, previous);
+        }
+        index(id, article);
+        return previous;
+    }
+
+    /**
+     * Removes an article.
+     *
+     * @param articleId article ID
+     * @return the article removed, or <code>null</code> if it was not indexed
+     */
+    public synchronized Article remove(long articleId) {
+        Article previous = articles.remove(Long.valueOf(articleId));
+        if (previous != null) {
+            unindex(articleId, previous);
+        }
+        return previous;
+    }
+
+    /**
+     * @param articleId article ID
+     * @return the article with that ID, or <code>null</code>
+     */
+    public synchronized Article get(long articleId) {
+        return articles.get(Long.valueOf(articleId));
+    }
+
+    /**
+     * @return the number of articles indexed
+     */
+    public synchronized int size() {
+        return articles.size();
+    }
+
+    /**
+     * @param name tag name, matched exactly
+     * @return the articles with the tag, by ID
+     */
+    public List<Article> byTagName(String name) {
+        return query().tagName(name).find();
+    }
+
+    /**
+     * @param tagId tag ID
+     * @return the articles with the tag, by ID
+     */
+    public List<Article> byTagId(long tagId) {
+        return query().tagId(tagId).find();
+    }
+
+    /**
+     * @param categoryId category ID
+     * @return the articles in the category, by ID
+     */
+    public List<Article> byCategory(long categoryId) {
+        return query().category(categoryId).find();
+    }
+
+    /**
+     * @param authorId author ID
+     * @return the articles by the author, by ID
+     */
+    public List<Article> byAuthor(long authorId) {
+        return query().author(authorId).find();
+    }
+
+    /**
+     * @param status status, such as "Public" or "Private"
+     * @return the articles with the status, by ID
+     */
+    public List<Article> byStatus(String status) {
+        return query().status(status).find();
+    }
+
+    /**
+     * @param definedType defined type, such as "figure" or "dataset"
+     * @return the articles of the type, by ID
+     */
+    public List<Article> byDefinedType(String definedType) {
+        return query().definedType(definedType).find();
+    }
+
+    /**
+     * @return a new query, matching every article until criteria are added
+     */
+    public Query query() {
+        return new Query(this);
+    }
+
+    private void index(long id, Article article) {
+        for (Tag tag : article.getTags()) {
+            add(tagNames, tag.getName(), id);
+            add(tagIds, tag.getId(), id);
+        }
+        for (Category category : article.getCategories()) {
+            add(categoryIds, category.getId(), id);
+        }
+        for (Author author : article.getAuthors()) {
+            add(authorIds, author.getId(), id);
+        }
+        add(statuses, article.getStatus(), id);
+        add(definedTypes, article.getDefinedType(), id);
+    }
+
+    private void unindex(long id, Article article) {
+        for (Tag tag : article.getTags()) {
+            remove(tagNames, tag.getName(), id);
+            remove(tagIds, tag.getId(), id);
+        }
+        for (Category category : article.getCategories()) {
+            remove(categoryIds, category.getId(), id);
+        }
+        for (Author author : article.getAuthors()) {
+            remove(authorIds, author.getId(), id);
+        }
+        remove(statuses, article.getStatus(), id);
+        remove(definedTypes, article.getDefinedType(), id);
+    }
+
+    private static <K> void add(Map<K, Postings> index, K key, long id) {
+        if (key == null) {
+            return;
+        }
+        Postings postings = index.get(key);
+        if (postings == null) {
+            postings = new Postings();
+            index.put(key, postings);
+        }
+        postings.add(id);
+    }
+
+    private static <K> void remove(Map<K, Postings> index, K key, long id) {
+        if (key == null) {
+            return;
+        }
+        Postings postings = index.get(key);
+        if (postings != null && postings.remove(id) && postings.size == 0) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Runs a query, intersecting the posting lists of its criteria.
+     */
+    private synchronized List<Article> find(List<Criterion> criteria, int limit) {
+        long[] ids;
+        int count;
+        if (criteria.isEmpty()) {
+            ids = new long[articles.size()];
+            count = 0;
+            for (Long id : articles.keySet()) {
+                ids[count++] = id.longValue();
+            }
+            Arrays.sort(ids);
+        } else {
+            Postings[] lists = new Postings[criteria.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = criteria.get(i).postings(this);
+                if (lists[i] == null) {
+                    return Collections.emptyList();
+                }
+                lists[i].sort();
+            }
+            Arrays.sort(lists, Postings.BY_SIZE);
+            ids = Arrays.copyOf(lists[0].ids, lists[0].size);
+            count = ids.length;
+            for (int i = 1; i < lists.length && count > 0; i++) {
+                count = lists[i].retain(ids, count);
+            }
+        }
+        count = Math.min(count, limit);
+        List<Article> found = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            found.add(articles.get(Long.valueOf(ids[i])));
+        }
+        return found;
+    }
+
+    /**
+     * Sorted article IDs.
+     */
+    static final class Postings {
+
+        static final Comparator<Postings> BY_SIZE = new Comparator<Postings>() {
+            @Override
+            public int compare(Postings a, Postings b) {
+                return Integer.compare(a.size, b.size);
+            }
+        };
+
+        private long[] ids = new long[4];
+        private int size = 0;
+        /**
+         * Whether the IDs are sorted and distinct. IDs are appended as they
+         * come, and sorted on the next read, so that adding articles in any
+         * order (listings are newest first) costs no more than in ID order.
+         */
+        private boolean sorted = true;
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] == id) {
+                // an article with the same tag twice
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            if (size > 0 && ids[size - 1] > id) {
+                sorted = false;
+            }
+            ids[size++] = id;
+        }
+
+        boolean remove(long id) {
+            sort();
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            size--;
+            if (size > 4 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+            return true;
+        }
+
+        /**
+         * Sorts the IDs appended out of order, and drops the duplicates.
+         */
+        void sort() {
+            if (sorted) {
+                return;
+            }
+            Arrays.sort(ids, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                    ids[distinct++] = ids[i];
+                }
+            }
+            size = distinct;
+            sorted = true;
+        }
+
+        /**
+         * Keeps the candidates that are in this list, in place. The list
+         * must be {@link #sort() sorted}.
+         *
+         * @param candidates sorted IDs, no more than this list
+         * @param count number of candidates
+         * @return the number of candidates kept
+         */
+        int retain(long[] candidates, int count) {
+            int kept = 0;
+            if (count * 8 < size) {
+                // few candidates: binary search each one, from where the last one was found
+                int from = 0;
+                for (int i = 0; i < count; i++) {
+                    int found = Arrays.binarySearch(ids, from, size, candidates[i]);
+                    if (found >= 0) {
+                        candidates[kept++] = candidates[i];
+                        from = found + 1;
+                    } else {
+                        from = -found - 1;
+                    }
+                }
+            } else {
+                // similar sizes: merge
+                int j = 0;
+                for (int i = 0; i < count && j < size; i++) {
+                    long candidate = candidates[i];
+                    while (j < size && ids[j] < candidate) {
+                        j++;
+                    }
+                    if (j < size && ids[j] == candidate) {
+                        candidates[kept++] = candidate;
+                        j++;
+                    }
+                }
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Criterion of a query, the posting list of one value of one field.
+     */
+    private static final class Criterion {
+        private final int field;
+        private final Object value;
+
+        Criterion(int field, Object value) {
+            this.field = field;
+            this.value = value;
+        }
+
+        Postings postings(ArticleIndex index) {
+            switch (field) {
+            case Query.TAG_NAME:
+                return index.tagNames.get(value);
+            case Query.TAG_ID:
+                return index.tagIds.get(value);
+            case Query.CATEGORY:
+                return index.categoryIds.get(value);
+            case Query.AUTHOR:
+                return index.authorIds.get(value);
+            case Query.STATUS:
+                return index.statuses.get(value);
+            default:
+                return index.definedTypes.get(value);
+            }
+        }
+    }
+
+    /**
+     * A query of articles that match all of its criteria. Queries are run
+     * against the index as it is when {@link #find()} is called.
+     *
+     * <p>#Not-Thread-safe#</p>
+     *
+     * @since 0.2
+     */
+    public static final class Query {
+
+        private static final int TAG_NAME = 0;
+        private static final int TAG_ID = 1;
+        private static final int CATEGORY = 2;
+        private static final int AUTHOR = 3;
+        private static final int STATUS = 4;
+        private static final int DEFINED_TYPE = 5;
+
+        private final ArticleIndex index;
+        private final List<Criterion> criteria = new ArrayList<>();
+        private int limit = Integer.MAX_VALUE;
+
+        private Query(ArticleIndex index) {
+            this.index = index;
+        }
+
+        /**
+         * @param name tag name, matched exactly
+         * @return this query
+         */
+        public Query tagName(String name) {
+            return where(TAG_NAME, name);
+        }
+
+        /**
+         * @param tagId tag ID
+         * @return this query
+         */
+        public Query tagId(long tagId) {
+            return where(TAG_ID, Long.valueOf(tagId));
+        }
+
+        /**
+         * @param categoryId category ID
+         * @return this query
+         */
+        public Query category(long categoryId) {
+            return where(CATEGORY, Long.valueOf(categoryId));
+        }
+
+        /**
+         * @param authorId author ID
+         * @return this query
+         */
+        public Query author(long authorId) {
+            return where(AUTHOR, Long.valueOf(authorId));
+        }
+
+        /**
+         * @param status status
+         * @return this query
+         */
+        public Query status(String status) {
+            return where(STATUS, status);
+        }
+
+        /**
+         * @param definedType defined type
+         * @return this query
+         */
+        public Query definedType(String definedType) {
+            return where(DEFINED_TYPE, definedType);
+        }
+
+        /**
+         * @param limit maximum number of articles to return
+         * @return this query
+         */
+        public Query limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("limit must not be negative: " + limit);
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        private Query where(int field, Object value) {
+            if (value == null) {
+                throw new IllegalArgumentException("Query values must not be null");
+            }
+            criteria.add(new Criterion(field, value));
+            return this;
+        }
+
+        /**
+         * @return the articles matching every criterion, by ID
+         */
+        public List<Article> find() {
+            return index.find(criteria, limit);
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.biouno.figshare.metrics.ErrorCause;
+import org.biouno.figshare.metrics.FigShareMetrics;
+import org.biouno.figshare.metrics.NoMetrics;
+import org.biouno.figshare.v1.model.Article;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Iterates the articles of a listing as they are read from the JSON stream.
+ * Only the article being returned is held in memory.
+ *
+ * <p>The underlying HTTP connection is released once the last article has been
+ * read. If you stop before that, call {@link #close()} to release it, e.g.
+ * with a try-with-resources statement.</p>
+ *
+ * <p>#Not-Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class ArticleIterator implements Iterator<Article>, Closeable {
+
+    private static final String ITEMS = "items";
+
+    private final Gson gson;
+    private final JsonReader reader;
+    /**
+     * The HTTP response, or <code>null</code> when not reading from the network.
+     */
+    private final Closeable response;
+    private final FigShareMetrics metrics;
+    private final String operation;
+    /**
+     * Trace of the call, finished with the iterator, or <code>null</code>.
+     */
+    private final RequestTrace trace;
+    /**
+     * Time spent binding articles so far, when there are metrics to report it to.
+     */
+    private long parseNanos = 0L;
+    private boolean closed = false;
+
+    /**
+     * Constructor. Moves the reader to the first element of the
+     * <code>items</code> array.
+     *
+     * @param gson Gson used to bind each article
+     * @param json JSON stream
+     * @param response HTTP response to close with the iterator, or <code>null</code>
+     * @throws IOException if the stream cannot be read or is not a listing
+     */
+    ArticleIterator(Gson gson, Reader json, Closeable response) throws IOException {
+        this(gson, json, response, NoMetrics.INSTANCE, null, null);
+    }
+
+    /**
+     * Constructor. Moves the reader to the first element of the
+     * <code>items</code> array.
+     *
+     * @param gson Gson used to bind each article
+     * @param json JSON stream
+     * @param response HTTP response to close with the iterator, or <code>null</code>
+     * @param metrics metrics, to report the time spent binding the articles
+     * @param operation operation name, for the metrics
+     * @param trace trace of the call, to finish with the iterator, or <code>null</code>
+     * @throws IOException if the stream cannot be read or is not a listing
+     */
+    ArticleIterator(Gson gson, Reader json, Closeable response, FigShareMetrics metrics, String operation,
+            RequestTrace trace) throws IOException {
+        this.gson = gson;
+        this.reader = new JsonReader(json);
+        this.response = response;
+        this.metrics = metrics;
+        this.operation = operation;
+        this.trace = trace;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (ITEMS.equals(reader.nextName())) {
+                    reader.beginArray();
+                    return;
+                }
+                reader.skipValue();
+            }
+            // no items in this listing
+            finish();
+        } catch (IOException e) {
+            failed(e);
+            close();
+            throw e;
+        } catch (RuntimeException e) {
+            failed(e);
+            close();
+            throw e;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.Iterator#hasNext()
+     */
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (reader.peek() != JsonToken.END_ARRAY) {
+                return true;
+            }
+            reader.endArray();
+            while (reader.hasNext()) {
+                reader.nextName();
+                reader.skipValue();
+            }
+            reader.endObject();
+            finish();
+            return false;
+        } catch (IOException e) {
+            failed(e);
+            closeQuietly();
+            throw new FigShareClientException("Failed to read articles: " + e.getMessage(), e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public Article next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            if (metrics == NoMetrics.INSTANCE && trace == null) {
+                return gson.fromJson(reader, Article.class);
+            }
+            final long body = trace != null ? trace.getNanos(RequestTrace.Phase.BODY) : 0L;
+            final long start = System.nanoTime();
+            final Article article = gson.fromJson(reader, Article.class);
+            final long elapsed = System.nanoTime() - start;
+            parseNanos += elapsed;
+            if (trace != null) {
+                // the body is read as the articles are bound, so leave out the reading
+                trace.add(RequestTrace.Phase.BINDING, elapsed - (trace.getNanos(RequestTrace.Phase.BODY) - body));
+            }
+            return article;
+        } catch (JsonParseException e) {
+            metrics.requestFailed(operation, ErrorCause.PARSE);
+            failed(e);
+            closeQuietly();
+            throw new FigShareClientException("Failed to read articles: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Articles cannot be removed from a listing");
+    }
+
+    /**
+     * Stop iterating and release the HTTP connection. Any articles not read
+     * yet are discarded without being downloaded.
+     *
+     * @throws IOException if an I/O error occurs while closing the stream
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reportParseTime();
+        try {
+            // abort the response first, so the rest of the body is not read
+            if (response != null) {
+                response.close();
+            }
+        } finally {
+            try {
+                reader.close();
+            } finally {
+                finishTrace();
+            }
+        }
+    }
+
+    /**
+     * Called once the whole listing has been read. Closing the stream at the
+     * end of the body hands the connection back to the pool for reuse.
+     */
+    private void finish() throws IOException {
+        closed = true;
+        reportParseTime();
+        try {
+            reader.close();
+        } finally {
+            try {
+                if (response != null) {
+                    response.close();
+                }
+            } finally {
+                finishTrace();
+            }
+        }
+    }
+
+    private void reportParseTime() {
+        if (parseNanos > 0) {
+            metrics.responseParsed(operation, parseNanos);
+        }
+    }
+
+    private void failed(Exception e) {
+        if (trace != null) {
+            trace.failed(e);
+        }
+    }
+
+    private void finishTrace() {
+        if (trace != null) {
+            trace.finish();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+            // already failing
+        }
+    }
+
+}
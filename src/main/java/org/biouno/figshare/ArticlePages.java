@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.biouno.figshare.v1.model.Article;
+
+/**
+ * The articles of a listing, fetched a page at a time. While the caller reads
+ * one page, the next one is already being fetched in the background, so that
+ * the round trip overlaps with the processing of the articles.
+ *
+ * <p>Each call to {@link #iterator()} starts again from the first page. An
+ * iterator read to the end has nothing left running. If you stop before that,
+ * close it, so that the fetch of the next page is cancelled, e.g. with a
+ * try-with-resources statement:</p>
+ *
+ * <pre>
+ * try (ArticlePages.PageIterator articles = figshare.pagedArticles().iterator()) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class ArticlePages implements Iterable<Article> {
+
+    private final FigShareClient client;
+    private final ExecutorService executor;
+    private final int pageSize;
+
+    /**
+     * Constructor.
+     *
+     * @param client client used to fetch each page
+     * @param executor executor for the background fetches
+     * @param pageSize number of articles per page
+     */
+    ArticlePages(FigShareClient client, ExecutorService executor, int pageSize) {
+        this.client = client;
+        this.executor = executor;
+        this.pageSize = pageSize;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Iterable#iterator()
+     */
+    @Override
+    public PageIterator iterator() {
+        return new PageIterator();
+    }
+
+    private Future<List<Article>> fetch(final int page) {
+        try {
+            return executor.submit(new Callable<List<Article>>() {
+                @Override
+                public List<Article> call() throws Exception {
+                    return client.articles(page, pageSize);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Iterates the current page, and keeps the fetch of the next page running.
+     *
+     * <p>#Not-Thread-safe#</p>
+     */
+    public final class PageIterator implements Iterator<Article>, Closeable {
+
+        private Iterator<Article> current = Collections.<Article>emptyList().iterator();
+        private Future<List<Article>> next;
+        private int page = 1;
+        private boolean complete = false;
+        private boolean closed = false;
+
+        PageIterator() {
+            next = fetch(page);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            while (!current.hasNext()) {
+                if (next == null) {
+                    return false;
+                }
+                final List<Article> articles = await(next);
+                // a short page is the last one, and a long one means the
+                // server is not paging and has returned everything
+                if (articles.size() != pageSize) {
+                    next = null;
+                    complete = articles.size() < pageSize;
+                } else {
+                    next = fetch(++page);
+                }
+                current = articles.iterator();
+            }
+            return true;
+        }
+
+        /**
+         * @return whether the listing ended with a short page, so every
+         *         article was read; <code>false</code> until then, and if
+         *         the server did not page the listing, which may then have
+         *         been cut short
+         */
+        boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * Stop iterating, and cancel the fetch of the next page if it is
+         * still running. Articles not read yet are discarded.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = Collections.<Article>emptyList().iterator();
+            if (next != null) {
+                next.cancel(true);
+                next = null;
+            }
+        }
+
+        @Override
+        public Article next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Articles cannot be removed from a listing");
+        }
+
+        private List<Article> await(Future<List<Article>> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                next = null;
+                Thread.currentThread().interrupt();
+                throw new FigShareClientException("Interrupted while getting articles", e);
+            } catch (ExecutionException e) {
+                next = null;
+                final Throwable cause = e.getCause();
+                if (cause instanceof FigShareClientException) {
+                    throw (FigShareClientException) cause;
+                }
+                throw new FigShareClientException("Failed to get articles: " + cause.getMessage(), cause);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,817 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.biouno.figshare.v1.model.Article;
+
+/**
+ * Full text index of the titles and descriptions of articles already
+ * fetched. Text is split into terms by {@link SearchTokenizer}, in lower case
+ * and without accents, and searches rank the articles by
+ * <a href="https://en.wikipedia.org/wiki/Okapi_BM25">BM25</a>, with the words
+ * of the title counting twice.
+ *
+ * <p>Articles are keyed by their ID, so adding an article that is already
+ * indexed replaces it. The index holds the IDs of the articles, not the
+ * articles themselves, so that it can be saved and loaded without them; look
+ * the articles up in an {@link ArticleIndex}, or wherever they are kept.</p>
+ *
+ * <p>A saved index is loaded by mapping its file in memory, so loading is
+ * immediate and searches read the file in place. The first change to a loaded
+ * index copies it to memory.</p>
+ *
+ * <pre>
+ * List&lt;Article&gt; articles = figshare.articles();
+ * ArticleIndex index = new ArticleIndex(articles);
+ * ArticleSearchIndex search = new ArticleSearchIndex(articles);
+ * for (ArticleSearchIndex.Hit hit : search.search("violao", 10)) {
+ *     System.out.println(index.get(hit.getArticleId()).getTitle() + " " + hit.getScore());
+ * }
+ * search.save(new File("articles.idx"));
+ * </pre>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class ArticleSearchIndex {
+
+    /**
+     * "FSIX".
+     */
+    private static final int MAGIC = 0x46534958;
+    private static final int FORMAT = 1;
+    /**
+     * Magic, format, documents, terms and total length.
+     */
+    private static final int HEADER = 4 + 4 + 4 + 4 + 8;
+    /**
+     * ID and length.
+     */
+    private static final int DOCUMENT = 8 + 4;
+    /**
+     * Term offset and length, postings offset and size.
+     */
+    private static final int TERM = 4 + 4 + 4 + 4;
+
+    private static final double K1 = 1.2d;
+    private static final double B = 0.75d;
+    private static final int TITLE_WEIGHT = 2;
+
+    private Segment segment;
+
+    /**
+     * Creates an empty index.
+     */
+    public ArticleSearchIndex() {
+        this(new MemorySegment());
+    }
+
+    /**
+     * Creates an index of the articles.
+     *
+     * @param articles articles, each with an ID
+     */
+    public ArticleSearchIndex(Collection<Article> articles) {
+        this();
+        for (Article article : articles) {
+            add(article);
+        }
+    }
+
+    private ArticleSearchIndex(Segment segment) {
+        super();
+        this.segment = segment;
+    }
+
+    /**
+     * Adds an article, replacing the article with the same ID if there is one.
+     *
+     * @param article article, with an ID
+     * @return <code>true</code> if it replaced an article
+     */
+    public synchronized boolean add(Article article) {
+        if (article == null || article.getArticleId() == null) {
+            throw new IllegalArgumentException("article must have an ID: " + article);
+        }
+        return mutable().add(article.getArticleId().longValue(), article);
+    }
+
+    /**
+     * Removes an article.
+     *
+     * @param articleId article ID
+     * @return <code>true</code> if the article was indexed
+     */
+    public synchronized boolean remove(long articleId) {
+        if (segment.length(articleId) < 0) {
+            return false;
+        }
+        return mutable().remove(articleId);
+    }
+
+    /**
+     * @param articleId article ID
+     * @return whether the article is indexed
+     */
+    public synchronized boolean contains(long articleId) {
+        return segment.length(articleId) >= 0;
+    }
+
+    /**
+     * @return the number of articles indexed
+     */
+    public synchronized int size() {
+        return segment.documents();
+    }
+
+    /**
+     * Searches the articles with any of the terms of the query, best first.
+     * Articles with more of the terms, with rarer terms, and with the terms in
+     * their title rank higher.
+     *
+     * @param query query, such as "acoustic guitar"
+     * @param limit maximum number of hits
+     * @return the hits, best first, and by article ID when their scores are the same
+     */
+    public synchronized List<Hit> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be greater than zero: " + limit);
+        }
+        List<String> tokens = new ArrayList<>();
+        SearchTokenizer.tokenize(query, tokens);
+        List<Postings> lists = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(tokens)) {
+            Postings postings = segment.postings(term);
+            if (postings != null) {
+                lists.add(postings);
+            }
+        }
+        if (lists.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int documents = segment.documents();
+        double averageLength = Math.max(1d, (double) segment.totalLength() / documents);
+        double[] idf = new double[lists.size()];
+        int[] cursors = new int[lists.size()];
+        for (int i = 0; i < idf.length; i++) {
+            int frequency = lists.get(i).size();
+            idf[i] = Math.log(1d + (documents - frequency + 0.5d) / (frequency + 0.5d));
+        }
+        // the worst of the best hits first, so it is the one replaced
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, 64) + 1, Collections.reverseOrder(Hit.RANK));
+        while (true) {
+            // the articles of the postings, in order of ID, one at a time
+            long id = Long.MAX_VALUE;
+            boolean found = false;
+            for (int i = 0; i < cursors.length; i++) {
+                Postings postings = lists.get(i);
+                if (cursors[i] < postings.size() && (!found || postings.id(cursors[i]) < id)) {
+                    id = postings.id(cursors[i]);
+                    found = true;
+                }
+            }
+            if (!found) {
+                break;
+            }
+            double norm = K1 * (1d - B + B * segment.length(id) / averageLength);
+            double score = 0d;
+            for (int i = 0; i < cursors.length; i++) {
+                Postings postings = lists.get(i);
+                if (cursors[i] < postings.size() && postings.id(cursors[i]) == id) {
+                    int frequency = postings.frequency(cursors[i]);
+                    score += idf[i] * frequency * (K1 + 1d) / (frequency + norm);
+                    cursors[i]++;
+                }
+            }
+            if (best.size() < limit) {
+                best.add(new Hit(id, score));
+            } else if (score > best.peek().getScore()) {
+                best.poll();
+                best.add(new Hit(id, score));
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        Collections.sort(hits, Hit.RANK);
+        return hits;
+    }
+
+    /**
+     * Saves the index, to be loaded with {@link #load(File)}. The file is
+     * written next to the target and renamed, so that a file being loaded is
+     * never half written.
+     *
+     * @param file file
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save(File file) throws IOException {
+        LocalFiles.write(file, new LocalFiles.Content() {
+            @Override
+            public void writeTo(OutputStream stream) throws IOException {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+                segment.write(out);
+                out.flush();
+            }
+        });
+    }
+
+    /**
+     * Loads an index saved with {@link #save(File)}, mapping the file in
+     * memory. Do not overwrite the file with anything but {@link #save(File)}
+     * while the index is used.
+     *
+     * @param file file
+     * @return the index
+     * @throws IOException if the file cannot be read, or is not an index
+     */
+    public static ArticleSearchIndex load(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel channel = in.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a search index: " + file);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a search index: " + file);
+            }
+            if (buffer.getInt(4) != FORMAT) {
+                throw new IOException("Unsupported search index format " + buffer.getInt(4) + ": " + file);
+            }
+            int documents = buffer.getInt(8);
+            int terms = buffer.getInt(12);
+            if (documents < 0 || terms < 0 || HEADER + (long) documents * DOCUMENT + (long) terms * TERM > size
+                    || !isValid(buffer, documents, terms, size)) {
+                throw new IOException("Corrupt search index: " + file);
+            }
+            return new ArticleSearchIndex(new MappedSegment(buffer, documents, terms));
+        }
+    }
+
+    /**
+     * Checks that the terms and postings of a mapped index are inside the
+     * file, so that a truncated or damaged file fails to load, instead of
+     * failing the searches later.
+     */
+    private static boolean isValid(ByteBuffer buffer, int documents, int terms, long size) {
+        long start = HEADER + (long) documents * DOCUMENT + (long) terms * TERM;
+        for (int t = 0; t < terms; t++) {
+            int entry = (int) (HEADER + (long) documents * DOCUMENT + (long) t * TERM);
+            long termOffset = buffer.getInt(entry);
+            long termLength = buffer.getInt(entry + 4);
+            long postingsOffset = buffer.getInt(entry + 8);
+            long postings = buffer.getInt(entry + 12);
+            if (termLength < 0 || termOffset < start || termOffset + termLength > size
+                    || postings < 0 || postingsOffset < start || postingsOffset + postings * (8L + 4L) > size) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MemorySegment mutable() {
+        if (segment instanceof MappedSegment) {
+            segment = ((MappedSegment) segment).copy();
+        }
+        return (MemorySegment) segment;
+    }
+
+    /**
+     * An article found by a search.
+     *
+     * <p>#Thread-safe#</p>
+     *
+     * @since 0.2
+     */
+    public static final class Hit {
+
+        /**
+         * Best score first, then lowest ID.
+         */
+        static final Comparator<Hit> RANK = new Comparator<Hit>() {
+            @Override
+            public int compare(Hit a, Hit b) {
+                int order = Double.compare(b.score, a.score);
+                return order != 0 ? order : Long.compare(a.articleId, b.articleId);
+            }
+        };
+
+        private final long articleId;
+        private final double score;
+
+        Hit(long articleId, double score) {
+            this.articleId = articleId;
+            this.score = score;
+        }
+
+        /**
+         * @return the article ID
+         */
+        public long getArticleId() {
+            return articleId;
+        }
+
+        /**
+         * @return the score, higher for better hits
+         */
+        public double getScore() {
+            return score;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "Hit [articleId=" + articleId + ", score=" + score + "]";
+        }
+    }
+
+    /**
+     * The articles with a term, by ID, and the weighted number of times the
+     * term is in each.
+     */
+    abstract static class Postings {
+
+        abstract int size();
+
+        abstract long id(int i);
+
+        abstract int frequency(int i);
+    }
+
+    /**
+     * The terms and articles of an index.
+     */
+    abstract static class Segment {
+
+        abstract int documents();
+
+        abstract long totalLength();
+
+        /**
+         * @return the weighted number of terms of the article, or -1 if it is not indexed
+         */
+        abstract int length(long id);
+
+        /**
+         * @return the postings of the term, or <code>null</code> if no article has it
+         */
+        abstract Postings postings(String term);
+
+        abstract void write(DataOutputStream out) throws IOException;
+    }
+
+    private static final class MemoryPostings extends Postings {
+        private long[] ids = new long[2];
+        private int[] frequencies = new int[2];
+        private int size = 0;
+        /**
+         * Whether the IDs are sorted. IDs are appended as they come, and
+         * sorted on the next read, so that adding articles in any order
+         * (listings are newest first) costs no more than in ID order.
+         */
+        private boolean sorted = true;
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long id(int i) {
+            return ids[i];
+        }
+
+        @Override
+        int frequency(int i) {
+            return frequencies[i];
+        }
+
+        void add(long id, int frequency) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            if (size > 0 && ids[size - 1] > id) {
+                sorted = false;
+            }
+            ids[size] = id;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        void remove(long id) {
+            sort();
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) {
+                System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                System.arraycopy(frequencies, i + 1, frequencies, i, size - i - 1);
+                size--;
+            }
+        }
+
+        /**
+         * Sorts the IDs appended out of order, with their frequencies.
+         */
+        void sort() {
+            if (sorted) {
+                return;
+            }
+            mergeSort(ids, frequencies, Arrays.copyOf(ids, size), Arrays.copyOf(frequencies, size), 0, size);
+            sorted = true;
+        }
+
+        /**
+         * Sorts a range of the IDs and their frequencies, from a copy of them
+         * that is sorted in turn. Runs that are already in order are not
+         * merged, so that a list sorted but for a few IDs sorts in linear
+         * time.
+         */
+        private static void mergeSort(long[] ids, int[] frequencies, long[] fromIds, int[] fromFrequencies,
+                int low, int high) {
+            if (high - low < 2) {
+                return;
+            }
+            int middle = (low + high) >>> 1;
+            mergeSort(fromIds, fromFrequencies, ids, frequencies, low, middle);
+            mergeSort(fromIds, fromFrequencies, ids, frequencies, middle, high);
+            if (fromIds[middle - 1] <= fromIds[middle]) {
+                System.arraycopy(fromIds, low, ids, low, high - low);
+                System.arraycopy(fromFrequencies, low, frequencies, low, high - low);
+                return;
+            }
+            for (int i = low, left = low, right = middle; i < high; i++) {
+                if (right >= high || (left < middle && fromIds[left] <= fromIds[right])) {
+                    ids[i] = fromIds[left];
+                    frequencies[i] = fromFrequencies[left++];
+                } else {
+                    ids[i] = fromIds[right];
+                    frequencies[i] = fromFrequencies[right++];
+                }
+            }
+        }
+    }
+
+    /**
+     * The terms of an indexed article, to remove it from their postings.
+     */
+    private static final class Document {
+        private final String[] terms;
+        private final int length;
+
+        Document(String[] terms, int length) {
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+
+    /**
+     * An index in memory, that can be changed.
+     */
+    static final class MemorySegment extends Segment {
+        private final Map<String, MemoryPostings> postings = new HashMap<>();
+        private final Map<Long, Document> documents = new HashMap<>();
+        private long totalLength = 0L;
+
+        @Override
+        int documents() {
+            return documents.size();
+        }
+
+        @Override
+        long totalLength() {
+            return totalLength;
+        }
+
+        @Override
+        int length(long id) {
+            Document document = documents.get(Long.valueOf(id));
+            return document != null ? document.length : -1;
+        }
+
+        @Override
+        Postings postings(String term) {
+            MemoryPostings list = postings.get(term);
+            if (list != null) {
+                list.sort();
+            }
+            return list;
+        }
+
+        boolean add(long id, Article article) {
+            boolean replaced = remove(id);
+            List<String> tokens = new ArrayList<>();
+            SearchTokenizer.tokenize(article.getTitle(), tokens);
+            int title = tokens.size();
+            SearchTokenizer.tokenize(article.getDescriptionNohtml(), tokens);
+            Map<String, int[]> frequencies = new HashMap<>();
+            int length = 0;
+            for (int i = 0; i < tokens.size(); i++) {
+                int weight = i < title ? TITLE_WEIGHT : 1;
+                int[] frequency = frequencies.get(tokens.get(i));
+                if (frequency == null) {
+                    frequency = new int[1];
+                    frequencies.put(tokens.get(i), frequency);
+                }
+                frequency[0] += weight;
+                length += weight;
+            }
+            for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+                posting(entry.getKey()).add(id, entry.getValue()[0]);
+            }
+            put(id, new Document(frequencies.keySet().toArray(new String[frequencies.size()]), length));
+            return replaced;
+        }
+
+        boolean remove(long id) {
+            Document document = documents.remove(Long.valueOf(id));
+            if (document == null) {
+                return false;
+            }
+            totalLength -= document.length;
+            for (String term : document.terms) {
+                MemoryPostings list = postings.get(term);
+                list.remove(id);
+                if (list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+            return true;
+        }
+
+        private MemoryPostings posting(String term) {
+            MemoryPostings list = postings.get(term);
+            if (list == null) {
+                list = new MemoryPostings();
+                postings.put(term, list);
+            }
+            return list;
+        }
+
+        private void put(long id, Document document) {
+            documents.put(Long.valueOf(id), document);
+            totalLength += document.length;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            long[] ids = new long[documents.size()];
+            int d = 0;
+            for (Long id : documents.keySet()) {
+                ids[d++] = id.longValue();
+            }
+            Arrays.sort(ids);
+            // terms in the order of their bytes, so they can be binary searched in place
+            byte[][] terms = new byte[postings.size()][];
+            int t = 0;
+            long bytes = 0L;
+            for (String term : postings.keySet()) {
+                terms[t] = term.getBytes(StandardCharsets.UTF_8);
+                bytes += terms[t++].length;
+            }
+            Arrays.sort(terms, BYTES);
+            long offset = HEADER + (long) ids.length * DOCUMENT + (long) terms.length * TERM + bytes;
+            long size = offset;
+            for (MemoryPostings list : postings.values()) {
+                size += list.size * (8L + 4L);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Search index is too large to save: " + size + " bytes");
+            }
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(ids.length);
+            out.writeInt(terms.length);
+            out.writeLong(totalLength);
+            for (long id : ids) {
+                out.writeLong(id);
+                out.writeInt(documents.get(Long.valueOf(id)).length);
+            }
+            int termOffset = HEADER + ids.length * DOCUMENT + terms.length * TERM;
+            int postingsOffset = (int) offset;
+            MemoryPostings[] lists = new MemoryPostings[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                lists[i] = postings.get(new String(terms[i], StandardCharsets.UTF_8));
+                out.writeInt(termOffset);
+                out.writeInt(terms[i].length);
+                out.writeInt(postingsOffset);
+                out.writeInt(lists[i].size);
+                termOffset += terms[i].length;
+                postingsOffset += lists[i].size * (8 + 4);
+            }
+            for (byte[] term : terms) {
+                out.write(term);
+            }
+            for (MemoryPostings list : lists) {
+                list.sort();
+                for (int i = 0; i < list.size; i++) {
+                    out.writeLong(list.ids[i]);
+                }
+                for (int i = 0; i < list.size; i++) {
+                    out.writeInt(list.frequencies[i]);
+                }
+            }
+        }
+    }
+
+    private static final Comparator<byte[]> BYTES = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] a, byte[] b) {
+            int length = Math.min(a.length, b.length);
+            for (int i = 0; i < length; i++) {
+                int order = (a[i] & 0xff) - (b[i] & 0xff);
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return a.length - b.length;
+        }
+    };
+
+    /**
+     * A saved index, read in place from its mapped file.
+     */
+    static final class MappedSegment extends Segment {
+        private final ByteBuffer buffer;
+        private final int documents;
+        private final int terms;
+        private final int termTable;
+
+        MappedSegment(ByteBuffer buffer, int documents, int terms) {
+            this.buffer = buffer;
+            this.documents = documents;
+            this.terms = terms;
+            this.termTable = HEADER + documents * DOCUMENT;
+        }
+
+        @Override
+        int documents() {
+            return documents;
+        }
+
+        @Override
+        long totalLength() {
+            return buffer.getLong(16);
+        }
+
+        @Override
+        int length(long id) {
+            int low = 0;
+            int high = documents - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long found = buffer.getLong(HEADER + middle * DOCUMENT);
+                if (found < id) {
+                    low = middle + 1;
+                } else if (found > id) {
+                    high = middle - 1;
+                } else {
+                    return buffer.getInt(HEADER + middle * DOCUMENT + 8);
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Postings postings(String term) {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = terms - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int order = compare(middle, bytes);
+                if (order < 0) {
+                    low = middle + 1;
+                } else if (order > 0) {
+                    high = middle - 1;
+                } else {
+                    return postings(middle);
+                }
+            }
+            return null;
+        }
+
+        private int compare(int term, byte[] bytes) {
+            int offset = buffer.getInt(termTable + term * TERM);
+            int length = buffer.getInt(termTable + term * TERM + 4);
+            int common = Math.min(length, bytes.length);
+            for (int i = 0; i < common; i++) {
+                int order = (buffer.get(offset + i) & 0xff) - (bytes[i] & 0xff);
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return length - bytes.length;
+        }
+
+        private Postings postings(int term) {
+            final int offset = buffer.getInt(termTable + term * TERM + 8);
+            final int size = buffer.getInt(termTable + term * TERM + 12);
+            return new Postings() {
+                @Override
+                int size() {
+                    return size;
+                }
+
+                @Override
+                long id(int i) {
+                    return buffer.getLong(offset + i * 8);
+                }
+
+                @Override
+                int frequency(int i) {
+                    return buffer.getInt(offset + size * 8 + i * 4);
+                }
+            };
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            ByteBuffer content = buffer.duplicate();
+            content.clear();
+            byte[] chunk = new byte[64 * 1024];
+            while (content.hasRemaining()) {
+                int length = Math.min(chunk.length, content.remaining());
+                content.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
+
+        /**
+         * @return the index in memory, to be changed
+         */
+        MemorySegment copy() {
+            MemorySegment memory = new MemorySegment();
+            Map<Long, List<String>> documentTerms = new HashMap<>();
+            for (int t = 0; t < terms; t++) {
+                int offset = buffer.getInt(termTable + t * TERM);
+                byte[] bytes = new byte[buffer.getInt(termTable + t * TERM + 4)];
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = buffer.get(offset + i);
+                }
+                String term = new String(bytes, StandardCharsets.UTF_8);
+                Postings list = postings(t);
+                MemoryPostings copy = memory.posting(term);
+                for (int i = 0; i < list.size(); i++) {
+                    long id = list.id(i);
+                    copy.add(id, list.frequency(i));
+                    List<String> terms = documentTerms.get(Long.valueOf(id));
+                    if (terms == null) {
+                        terms = new ArrayList<>();
+                        documentTerms.put(Long.valueOf(id), terms);
+                    }
+                    terms.add(term);
+                }
+            }
+            for (int d = 0; d < documents; d++) {
+                long id = buffer.getLong(HEADER + d * DOCUMENT);
+                List<String> terms = documentTerms.get(Long.valueOf(id));
+                String[] array = terms != null ? terms.toArray(new String[terms.size()]) : new String[0];
+                memory.put(id, new Document(array, buffer.getInt(HEADER + d * DOCUMENT + 8)));
+            }
+            return memory;
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biouno.figshare.v1.model.Article;
+import org.biouno.figshare.v1.model.Author;
+import org.biouno.figshare.v1.model.Category;
+import org.biouno.figshare.v1.model.File;
+import org.biouno.figshare.v1.model.Link;
+import org.biouno.figshare.v1.model.Tag;
+
+/**
+ * Keeps a local copy of the articles up to date, fetching only the articles
+ * that changed.
+ *
+ * <p>Each sync pages through the listing (see
+ * {@link FigShareClient#pagedArticles()}), and compares the version and a
+ * hash of each article, its metadata and its files, with the
+ * {@link SyncState}. Only the articles that are new or changed are fetched,
+ * and reported to the {@link SyncListener} with their details. Articles that
+ * are no longer listed are reported as deleted, but only once the whole
+ * listing has been read: a listing that fails, or that the server does not
+ * page and may have cut short, deletes nothing.</p>
+ *
+ * <pre>
+ * File file = new File("articles.sync");
+ * SyncState state = SyncState.load(file);
+ * SyncResult result = new ArticleSync(figshare, state).sync(listener);
+ * state.save(file);
+ * </pre>
+ *
+ * <p>#Not-Thread-safe#, run one sync at a time.</p>
+ *
+ * @since 0.2
+ */
+public final class ArticleSync {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final FigShareClient client;
+    private final SyncState state;
+
+    /**
+     * @param client client, to list and fetch the articles
+     * @param state what was synced before, updated by each sync
+     */
+    public ArticleSync(FigShareClient client, SyncState state) {
+        this.client = client;
+        this.state = state;
+    }
+
+    /**
+     * Finds the articles added, updated and deleted since the last sync, and
+     * records them in the state. Articles whose details cannot be fetched are
+     * not recorded, so the next sync tries them again.
+     *
+     * @param listener receives the changes
+     * @return what was found
+     * @throws FigShareClientException if the listing cannot be read, in which
+     * case no article is reported as deleted
+     * @see SyncResult#isListingComplete()
+     */
+    public SyncResult sync(SyncListener listener) throws FigShareClientException {
+        int run = state.start();
+        int unchanged = 0;
+        // the changes are fetched once the whole listing is read, so that a
+        // listing that fails reports nothing
+        List<Change> changes = new ArrayList<>();
+        boolean complete;
+        try (ArticlePages.PageIterator listing = client.pagedArticles().iterator()) {
+            while (listing.hasNext()) {
+                Article listed = listing.next();
+                if (listed.getArticleId() == null) {
+                    continue;
+                }
+                long id = listed.getArticleId().longValue();
+                long version = listed.getVersion() != null ? listed.getVersion().longValue() : 0L;
+                long hash = hash(listed);
+                SyncState.Entry known = state.see(id, run);
+                if (known != null && known.isSame(version, hash)) {
+                    unchanged++;
+                } else {
+                    changes.add(new Change(id, version, hash, known == null));
+                }
+            }
+            complete = listing.isComplete();
+        }
+        int added = 0;
+        int updated = 0;
+        List<BatchResult<Long, Article>> failures = new ArrayList<>();
+        for (Change change : changes) {
+            Article article;
+            try {
+                article = client.article(change.id);
+            } catch (FigShareClientException e) {
+                failures.add(BatchResult.<Long, Article>failure(Long.valueOf(change.id), e));
+                continue;
+            }
+            if (change.added) {
+                listener.onAdded(article);
+                added++;
+            } else {
+                listener.onUpdated(article);
+                updated++;
+            }
+            state.put(change.id, change.version, change.hash, run);
+        }
+        int deleted = 0;
+        if (complete) {
+            for (Long id : state.unseen(run)) {
+                listener.onDeleted(id.longValue());
+                state.remove(id.longValue());
+                deleted++;
+            }
+        }
+        return new SyncResult(added, updated, deleted, unchanged, failures, complete);
+    }
+
+    /**
+     * A listed article that is new or changed.
+     */
+    private static final class Change {
+        private final long id;
+        private final long version;
+        private final long hash;
+        private final boolean added;
+
+        Change(long id, long version, long hash, boolean added) {
+            this.id = id;
+            this.version = version;
+            this.hash = hash;
+            this.added = added;
+        }
+    }
+
+    /**
+     * A 64 bit FNV-1a hash of what the listing shows of an article, so that
+     * changes without a new version, such as an uploaded file, are found too.
+     *
+     * @param article article
+     * @return the hash
+     */
+    static long hash(Article article) {
+        long hash = FNV_OFFSET;
+        hash = hash(hash, article.getVersion());
+        hash = hash(hash, article.getTitle());
+        hash = hash(hash, article.getDefinedType());
+        hash = hash(hash, article.getStatus());
+        hash = hash(hash, article.getPublishedDate());
+        hash = hash(hash, article.getDescription());
+        hash = hash(hash, article.getTotalSize());
+        hash = hash(hash, article.getDoi());
+        for (Author author : article.getAuthors()) {
+            hash = hash(hash, author.getId());
+            hash = hash(hash, author.getFullName());
+        }
+        for (Tag tag : article.getTags()) {
+            hash = hash(hash, tag.getName());
+        }
+        for (Category category : article.getCategories()) {
+            hash = hash(hash, category.getId());
+        }
+        for (File file : article.getFiles()) {
+            hash = hash(hash, file.getId());
+            hash = hash(hash, file.getName());
+            hash = hash(hash, file.getSize());
+            hash = hash(hash, file.getMimeType());
+        }
+        for (Link link : article.getLinks()) {
+            hash = hash(hash, link.getLink());
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return mix(hash, 0);
+        }
+        hash = mix(hash, 1);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = mix(hash, c & 0xff);
+            hash = mix(hash, c >>> 8);
+        }
+        // the length ends the value, so "ab" + "c" differs from "a" + "bc"
+        return hash(hash, value.length());
+    }
+
+    private static long hash(long hash, Long value) {
+        if (value == null) {
+            return mix(hash, 0);
+        }
+        return hash(mix(hash, 1), value.longValue());
+    }
+
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = mix(hash, (int) (value >>> (i * 8)) & 0xff);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int octet) {
+        return (hash ^ octet) * FNV_PRIME;
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+/**
+ * The outcome of one item of a batch operation, such as
+ * {@link FigShareClient#uploadFiles(long, java.util.Collection)}. Either the
+ * result or the error is set, never both.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @param <I> input type
+ * @param <R> result type
+ * @since 0.2
+ */
+public final class BatchResult<I, R> {
+
+    private final I input;
+    private final R result;
+    private final FigShareClientException error;
+
+    private BatchResult(I input, R result, FigShareClientException error) {
+        this.input = input;
+        this.result = result;
+        this.error = error;
+    }
+
+    static <I, R> BatchResult<I, R> success(I input, R result) {
+        return new BatchResult<>(input, result, null);
+    }
+
+    static <I, R> BatchResult<I, R> failure(I input, FigShareClientException error) {
+        return new BatchResult<>(input, null, error);
+    }
+
+    /**
+     * @return the item of the batch this result is for
+     */
+    public I getInput() {
+        return input;
+    }
+
+    /**
+     * @return <code>true</code> if the item succeeded
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the result, or <code>null</code> if the item failed
+     */
+    public R getResult() {
+        return result;
+    }
+
+    /**
+     * @return the error, or <code>null</code> if the item succeeded
+     */
+    public FigShareClientException getError() {
+        return error;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "BatchResult [input=" + input + ", result=" + result + ", error=" + error + "]";
+    }
+
+}
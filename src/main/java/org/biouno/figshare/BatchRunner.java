@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the items of a batch on the worker threads of the client, with at most
+ * a given number of items in flight, and optionally with a bound on the total
+ * weight (e.g. bytes) of the items in flight. One failed item does not stop
+ * the others.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class BatchRunner {
+
+    /**
+     * One item of work.
+     *
+     * @param <I> input type
+     * @param <R> result type
+     */
+    interface Task<I, R> {
+
+        /**
+         * @param input item
+         * @return item weight, between zero and the weight budget
+         */
+        int weigh(I input);
+
+        /**
+         * @param input item
+         * @return item result
+         * @throws FigShareClientException if the item fails
+         */
+        R run(I input);
+
+    }
+
+    private final ExecutorService executor;
+    private final int concurrency;
+    private final int weightBudget;
+
+    /**
+     * Constructor.
+     *
+     * @param executor worker threads
+     * @param concurrency maximum number of items in flight
+     * @param weightBudget maximum total weight of the items in flight
+     */
+    BatchRunner(ExecutorService executor, int concurrency, int weightBudget) {
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.weightBudget = weightBudget;
+    }
+
+    /**
+     * @return the maximum total weight of the items in flight
+     */
+    int getWeightBudget() {
+        return weightBudget;
+    }
+
+    /**
+     * Run all the items, blocking until they are done.
+     *
+     * @param inputs items
+     * @param task work to do for each item
+     * @return one result per item, in input order
+     * @throws FigShareClientException if interrupted while waiting
+     */
+    <I, R> List<BatchResult<I, R>> run(Collection<I> inputs, final Task<I, R> task) {
+        final Semaphore slots = new Semaphore(concurrency);
+        final Semaphore weight = new Semaphore(weightBudget);
+        final List<I> items = new ArrayList<>(inputs);
+        final List<Future<R>> futures = new ArrayList<>(items.size());
+        try {
+            for (final I item : items) {
+                final int permits = Math.min(Math.max(task.weigh(item), 0), weightBudget);
+                // wait here, rather than in a worker, so that queued work never
+                // blocks the threads of the client
+                slots.acquire();
+                try {
+                    weight.acquire(permits);
+                } catch (InterruptedException e) {
+                    slots.release();
+                    throw e;
+                }
+                try {
+                    futures.add(executor.submit(new Callable<R>() {
+                        @Override
+                        public R call() {
+                            try {
+                                return task.run(item);
+                            } finally {
+                                weight.release(permits);
+                                slots.release();
+                            }
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    weight.release(permits);
+                    slots.release();
+                    throw new FigShareClientException("Too many operations waiting, or client closed: "
+                            + e.getMessage(), e);
+                }
+            }
+            final List<BatchResult<I, R>> results = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                results.add(await(items.get(i), futures.get(i)));
+            }
+            return results;
+        } catch (InterruptedException e) {
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new FigShareClientException("Interrupted while running batch", e);
+        } catch (RuntimeException e) {
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+    }
+
+    private static <I, R> BatchResult<I, R> await(I item, Future<R> future) throws InterruptedException {
+        try {
+            return BatchResult.success(item, future.get());
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            final FigShareClientException error = cause instanceof FigShareClientException
+                    ? (FigShareClientException) cause
+                    : new FigShareClientException(cause.getMessage(), cause);
+            return BatchResult.failure(item, error);
+        }
+    }
+
+}
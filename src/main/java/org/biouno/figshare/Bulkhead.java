@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit of the requests of one kind in flight, so that a burst of one kind
+ * (e.g. uploads) cannot take every pooled connection and starve the others.
+ * A request is in flight until its response content has been read, or the
+ * response closed (see {@link BulkheadResponse}).
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class Bulkhead {
+
+    private final String name;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param name name, for error messages
+     * @param maxConcurrent maximum number of requests in flight
+     * @param timeoutMillis how long to wait for a place
+     */
+    Bulkhead(String name, int maxConcurrent, long timeoutMillis) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Wait for a place. The caller must {@link #release()} it.
+     *
+     * @throws FigShareClientException if there is no place in time
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    void acquire() throws InterruptedIOException {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new FigShareClientException("Too many " + name + " in flight, waited " + timeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + name);
+        }
+    }
+
+    /**
+     * Give a place back.
+     */
+    void release() {
+        permits.release();
+    }
+
+    /**
+     * @return number of places free
+     */
+    int available() {
+        return permits.availablePermits();
+    }
+
+}
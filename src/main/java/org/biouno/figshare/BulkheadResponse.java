@@ -0,0 +1,276 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderIterator;
+import org.apache.http.HttpEntity;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.EofSensorInputStream;
+import org.apache.http.conn.EofSensorWatcher;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.params.HttpParams;
+
+/**
+ * Response that keeps its place in a {@link Bulkhead} while its content is
+ * read, since the content holds a pooled connection until then. The place is
+ * given back once, when the content has been read to the end or closed, or
+ * when the response is closed, whichever comes first.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class BulkheadResponse implements CloseableHttpResponse {
+
+    private final CloseableHttpResponse response;
+    private final Bulkhead bulkhead;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    /**
+     * Constructor. A response without content gives its place back at once,
+     * as its connection is already back in the pool.
+     *
+     * @param response wrapped response
+     * @param bulkhead bulkhead the request has a place in
+     */
+    BulkheadResponse(CloseableHttpResponse response, Bulkhead bulkhead) {
+        this.response = response;
+        this.bulkhead = bulkhead;
+        final HttpEntity entity = response.getEntity();
+        if (entity == null || !entity.isStreaming()) {
+            release();
+        } else {
+            response.setEntity(new ReleasingEntity(entity));
+        }
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            bulkhead.release();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            response.close();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public StatusLine getStatusLine() {
+        return response.getStatusLine();
+    }
+
+    @Override
+    public void setStatusLine(StatusLine statusline) {
+        response.setStatusLine(statusline);
+    }
+
+    @Override
+    public void setStatusLine(ProtocolVersion ver, int code) {
+        response.setStatusLine(ver, code);
+    }
+
+    @Override
+    public void setStatusLine(ProtocolVersion ver, int code, String reason) {
+        response.setStatusLine(ver, code, reason);
+    }
+
+    @Override
+    public void setStatusCode(int code) {
+        response.setStatusCode(code);
+    }
+
+    @Override
+    public void setReasonPhrase(String reason) {
+        response.setReasonPhrase(reason);
+    }
+
+    @Override
+    public HttpEntity getEntity() {
+        return response.getEntity();
+    }
+
+    @Override
+    public void setEntity(HttpEntity entity) {
+        response.setEntity(entity);
+    }
+
+    @Override
+    public Locale getLocale() {
+        return response.getLocale();
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        response.setLocale(loc);
+    }
+
+    @Override
+    public ProtocolVersion getProtocolVersion() {
+        return response.getProtocolVersion();
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return response.containsHeader(name);
+    }
+
+    @Override
+    public Header[] getHeaders(String name) {
+        return response.getHeaders(name);
+    }
+
+    @Override
+    public Header getFirstHeader(String name) {
+        return response.getFirstHeader(name);
+    }
+
+    @Override
+    public Header getLastHeader(String name) {
+        return response.getLastHeader(name);
+    }
+
+    @Override
+    public Header[] getAllHeaders() {
+        return response.getAllHeaders();
+    }
+
+    @Override
+    public void addHeader(Header header) {
+        response.addHeader(header);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        response.addHeader(name, value);
+    }
+
+    @Override
+    public void setHeader(Header header) {
+        response.setHeader(header);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        response.setHeader(name, value);
+    }
+
+    @Override
+    public void setHeaders(Header[] headers) {
+        response.setHeaders(headers);
+    }
+
+    @Override
+    public void removeHeader(Header header) {
+        response.removeHeader(header);
+    }
+
+    @Override
+    public void removeHeaders(String name) {
+        response.removeHeaders(name);
+    }
+
+    @Override
+    public HeaderIterator headerIterator() {
+        return response.headerIterator();
+    }
+
+    @Override
+    public HeaderIterator headerIterator(String name) {
+        return response.headerIterator(name);
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return response.getParams();
+    }
+
+    @Override
+    @Deprecated
+    public void setParams(HttpParams params) {
+        response.setParams(params);
+    }
+
+    @Override
+    public String toString() {
+        return response.toString();
+    }
+
+    /**
+     * Entity that gives the place back when its content is done with.
+     */
+    private final class ReleasingEntity extends HttpEntityWrapper implements EofSensorWatcher {
+
+        ReleasingEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new EofSensorInputStream(super.getContent(), this);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            try {
+                super.writeTo(out);
+            } finally {
+                release();
+            }
+        }
+
+        @Override
+        public boolean eofDetected(InputStream wrapped) throws IOException {
+            release();
+            return true;
+        }
+
+        @Override
+        public boolean streamClosed(InputStream wrapped) throws IOException {
+            release();
+            return true;
+        }
+
+        @Override
+        public boolean streamAbort(InputStream wrapped) throws IOException {
+            release();
+            return true;
+        }
+
+    }
+
+}
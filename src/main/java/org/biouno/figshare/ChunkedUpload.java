@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Uploads a file in chunks, one PUT per chunk with a <code>Content-Range</code>
+ * header, recording each chunk acknowledged by the server in an
+ * {@link UploadJournal}. If the upload is interrupted, the next upload of the
+ * same file resumes after the last acknowledged chunk.
+ *
+ * <p>The server acknowledges a chunk with a 2xx or 308 response. It may say
+ * how much it already has with a <code>Range: bytes=0-N</code> header, which
+ * takes precedence over the journal. The response to the last chunk is the
+ * uploaded file.</p>
+ *
+ * <p>#Not-Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class ChunkedUpload {
+
+    /**
+     * Header with the identity of the upload (the checksum of the content), so
+     * the server can tell chunks of different uploads apart.
+     */
+    static final String UPLOAD_ID_HEADER = "X-Upload-Id";
+    /**
+     * Header with the name of the file being uploaded.
+     */
+    static final String FILE_NAME_HEADER = "X-File-Name";
+    private static final int RESUME_INCOMPLETE = 308;
+    private static final Pattern RANGE = Pattern.compile("bytes=0-(\\d+)");
+
+    private final FigShareClient client;
+    private final String url;
+    private final File file;
+    private final UploadJournal journal;
+    private final long chunkSize;
+
+    /**
+     * Constructor.
+     *
+     * @param client client, to sign and send the chunks
+     * @param url upload URL
+     * @param file file to upload
+     * @param journal journal of the upload
+     * @param chunkSize size of the chunks
+     */
+    ChunkedUpload(FigShareClient client, String url, File file, UploadJournal journal, long chunkSize) {
+        this.client = client;
+        this.url = url;
+        this.file = file;
+        this.journal = journal;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Upload the chunks not acknowledged yet.
+     *
+     * @param trace trace of the whole upload, with one attempt per chunk sent
+     * @return the JSON of the uploaded file
+     * @throws IOException if a chunk fails; the journal keeps the chunks sent so far
+     * @throws FigShareClientException if the server does not acknowledge a chunk
+     */
+    String upload(RequestTrace trace) throws IOException {
+        final long size = journal.getSize();
+        long offset = journal.getAcknowledged();
+        do {
+            final long length = Math.min(chunkSize, size - offset);
+            final HttpPut request = new HttpPut(url);
+            request.setHeader(UPLOAD_ID_HEADER, journal.getChecksum());
+            request.setHeader(FILE_NAME_HEADER, file.getName());
+            request.setHeader("Content-Range", length == 0
+                    ? "bytes */" + size
+                    : "bytes " + offset + "-" + (offset + length - 1) + "/" + size);
+            request.setEntity(new FileRegionEntity(file, offset, length));
+
+            final CloseableHttpResponse response = client.execute(Operation.UPLOAD_CHUNK, request, trace);
+            try {
+                final int status = response.getStatusLine().getStatusCode();
+                final String body = response.getEntity() != null ? EntityUtils.toString(response.getEntity()) : "";
+                if (status != RESUME_INCOMPLETE && (status < HttpStatus.SC_OK || status >= HttpStatus.SC_MULTIPLE_CHOICES)) {
+                    throw new IOException("Chunk at offset " + offset + " rejected with HTTP " + status);
+                }
+                if (length == 0 && status == RESUME_INCOMPLETE) {
+                    throw new IOException("Server has the whole file, but did not complete the upload");
+                }
+                final long end = offset + length;
+                if (end >= size && status != RESUME_INCOMPLETE) {
+                    journal.delete();
+                    return body;
+                }
+                final long acknowledged = acknowledged(response.getFirstHeader("Range"), end);
+                if (acknowledged <= offset) {
+                    // sending the same chunk again would get the same answer, for ever
+                    throw new FigShareClientException("Server did not acknowledge the chunk at offset " + offset
+                            + ", it has " + acknowledged + " bytes");
+                }
+                offset = acknowledged;
+                journal.acknowledge(offset);
+            } finally {
+                response.close();
+            }
+        } while (true);
+    }
+
+    /**
+     * @return the offset the server has acknowledged, from its Range header
+     *         if it sent one
+     */
+    private long acknowledged(Header range, long sent) {
+        if (range != null) {
+            final Matcher matcher = RANGE.matcher(range.getValue());
+            if (matcher.find()) {
+                return Math.min(Long.parseLong(matcher.group(1)) + 1, journal.getSize());
+            }
+        }
+        return sent;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+/**
+ * Circuit breaker of one operation of an endpoint. After a number of failures
+ * in a row the circuit opens, and calls fail fast instead of waiting on a
+ * server that is down. Once the circuit has been open for a while, it lets
+ * one trial call through (half-open): the circuit closes again if the trial
+ * succeeds, and opens again if it fails.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class CircuitBreaker {
+
+    /**
+     * Circuit states.
+     */
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openedAt = 0L;
+    private boolean trialInFlight = false;
+
+    /**
+     * Constructor.
+     *
+     * @param name name, for error messages
+     * @param failureThreshold failures in a row that open the circuit
+     * @param openMillis how long the circuit stays open before a trial call
+     */
+    CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Ask to make a call. A caller that is allowed must report the outcome
+     * with {@link #onSuccess()} or {@link #onFailure(long)}, or
+     * {@link #cancel()} the call if it does not make it.
+     *
+     * @param now current time, in milliseconds
+     * @throws FigShareCircuitOpenException if the circuit is open
+     */
+    synchronized void allow(long now) {
+        switch (state) {
+        case CLOSED:
+            return;
+        case OPEN:
+            if (now - openedAt >= openMillis) {
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return;
+            }
+            throw new FigShareCircuitOpenException("Circuit open for " + name + ", retry in "
+                    + (openedAt + openMillis - now) + " ms");
+        default:
+            if (!trialInFlight) {
+                trialInFlight = true;
+                return;
+            }
+            throw new FigShareCircuitOpenException("Circuit half-open for " + name + ", waiting for a trial call");
+        }
+    }
+
+    /**
+     * Report a call that was allowed but never sent, e.g. because it could
+     * not get a place in a bulkhead. Another caller may make the trial call.
+     */
+    synchronized void cancel() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Report a call the server answered, even if with a client error.
+     */
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Report a call that failed because of the server or the network.
+     *
+     * @param now current time, in milliseconds
+     */
+    synchronized void onFailure(long now) {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = now;
+            failures = 0;
+        }
+    }
+
+    /**
+     * @return the state of the circuit
+     */
+    synchronized State getState() {
+        return state;
+    }
+
+}
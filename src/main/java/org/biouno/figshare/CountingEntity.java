@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.biouno.figshare.metrics.FigShareMetrics;
+
+/**
+ * Response entity that reports the bytes read from it to the metrics, once,
+ * when its content is exhausted or closed, and adds the time spent reading
+ * it to the trace of the call, if there is one.
+ *
+ * <p>#Not-Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class CountingEntity extends HttpEntityWrapper {
+
+    private final FigShareMetrics metrics;
+    private final String operation;
+    private final RequestTrace trace;
+
+    /**
+     * Constructor.
+     *
+     * @param entity wrapped entity
+     * @param metrics metrics
+     * @param operation operation name
+     * @param trace trace of the call, or <code>null</code>
+     */
+    CountingEntity(HttpEntity entity, FigShareMetrics metrics, String operation, RequestTrace trace) {
+        super(entity);
+        this.metrics = metrics;
+        this.operation = operation;
+        this.trace = trace;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new CountingInputStream(super.getContent());
+    }
+
+    private final class CountingInputStream extends FilterInputStream {
+
+        private long count = 0L;
+        private boolean reported = false;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final long start = trace != null ? System.nanoTime() : 0L;
+            final int b = super.read();
+            if (trace != null) {
+                trace.add(RequestTrace.Phase.BODY, System.nanoTime() - start);
+            }
+            if (b < 0) {
+                report();
+            } else {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            final long start = trace != null ? System.nanoTime() : 0L;
+            final int read = super.read(buffer, offset, length);
+            if (trace != null) {
+                trace.add(RequestTrace.Phase.BODY, System.nanoTime() - start);
+            }
+            if (read < 0) {
+                report();
+            } else {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                report();
+            }
+        }
+
+        private void report() {
+            if (!reported) {
+                reported = true;
+                metrics.bytesReceived(operation, count);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Local record of a ranged download, next to the partial file, so that an
+ * interrupted download can resume with the ranges it does not have yet. The
+ * journal is a properties file with the URL, size and validator of the
+ * content, the size of the ranges, and a flag per range, 1 once the range is
+ * written.
+ *
+ * <p>A journal only matches a download of the same URL with the same range
+ * size. The server is asked to send the ranges only if the content still has
+ * the same validator, so content changed since the download started is
+ * downloaded again from the start.</p>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class DownloadJournal {
+
+    private static final String URL = "url";
+    private static final String SIZE = "size";
+    private static final String SEGMENT_SIZE = "segmentSize";
+    private static final String VALIDATOR = "validator";
+    private static final String SEGMENTS = "segments";
+
+    private final File journalFile;
+    private final String url;
+    private final long size;
+    private final long segmentSize;
+    private final String validator;
+    private final char[] segments;
+
+    private DownloadJournal(File journalFile, String url, long size, long segmentSize, String validator,
+            char[] segments) {
+        this.journalFile = journalFile;
+        this.url = url;
+        this.size = size;
+        this.segmentSize = segmentSize;
+        this.validator = validator;
+        this.segments = segments;
+    }
+
+    /**
+     * Create the journal of a new download, with no range written yet.
+     *
+     * @param journalFile journal file
+     * @param url URL of the content
+     * @param size size of the content
+     * @param segmentSize size of the ranges
+     * @param validator <code>ETag</code> or <code>Last-Modified</code> date of the content, or <code>null</code>
+     * @return the journal
+     * @throws IOException if the journal cannot be written
+     */
+    static DownloadJournal create(File journalFile, String url, long size, long segmentSize, String validator)
+            throws IOException {
+        final char[] segments = new char[(int) ((size + segmentSize - 1) / segmentSize)];
+        Arrays.fill(segments, '0');
+        final DownloadJournal journal = new DownloadJournal(journalFile, url, size, segmentSize, validator, segments);
+        journal.write();
+        return journal;
+    }
+
+    /**
+     * Open the journal of a previous download of the same content.
+     *
+     * @param journalFile journal file
+     * @param url URL of the content
+     * @param segmentSize size of the ranges
+     * @return the journal, or <code>null</code> if there is none for this download
+     * @throws IOException if the journal cannot be read
+     */
+    static DownloadJournal open(File journalFile, String url, long segmentSize) throws IOException {
+        if (!journalFile.isFile()) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(journalFile)) {
+            properties.load(in);
+        }
+        if (!url.equals(properties.getProperty(URL))
+                || !String.valueOf(segmentSize).equals(properties.getProperty(SEGMENT_SIZE))) {
+            return null;
+        }
+        final long size;
+        try {
+            size = Long.parseLong(properties.getProperty(SIZE));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        final String segments = properties.getProperty(SEGMENTS, "");
+        if (size <= 0 || segments.length() != (size + segmentSize - 1) / segmentSize) {
+            return null;
+        }
+        return new DownloadJournal(journalFile, url, size, segmentSize, properties.getProperty(VALIDATOR),
+                segments.toCharArray());
+    }
+
+    /**
+     * @return the size of the content
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the validator of the content, or <code>null</code>
+     */
+    String getValidator() {
+        return validator;
+    }
+
+    /**
+     * @return the number of ranges
+     */
+    int getSegments() {
+        return segments.length;
+    }
+
+    /**
+     * @param segment range index
+     * @return whether the range is written
+     */
+    synchronized boolean isComplete(int segment) {
+        return segments[segment] == '1';
+    }
+
+    /**
+     * Record a range as written.
+     *
+     * @param segment range index
+     * @throws IOException if the journal cannot be written
+     */
+    synchronized void complete(int segment) throws IOException {
+        segments[segment] = '1';
+        write();
+    }
+
+    /**
+     * Delete the journal, once the download is complete.
+     */
+    void delete() {
+        journalFile.delete();
+    }
+
+    private void write() throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(URL, url);
+        properties.setProperty(SIZE, String.valueOf(size));
+        properties.setProperty(SEGMENT_SIZE, String.valueOf(segmentSize));
+        if (validator != null) {
+            properties.setProperty(VALIDATOR, validator);
+        }
+        properties.setProperty(SEGMENTS, new String(segments));
+        LocalFiles.write(journalFile, new LocalFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                properties.store(out, "figshare download");
+            }
+        });
+    }
+
+}
@@ -23,55 +23,95 @@
  */
 package org.biouno.figshare;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
-import oauth.signpost.OAuthConsumer;
-import oauth.signpost.commonshttp.CommonsHttpOAuthConsumer;
-import oauth.signpost.exception.OAuthCommunicationException;
-import oauth.signpost.exception.OAuthExpectationFailedException;
-import oauth.signpost.exception.OAuthMessageSignerException;
 
+import org.apache.http.Consts;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.FormBodyPart;
 import org.apache.http.entity.mime.FormBodyPartBuilder;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.ContentBody;
-import org.apache.http.entity.mime.content.FileBody;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
+import org.biouno.figshare.metrics.ErrorCause;
+import org.biouno.figshare.metrics.FigShareMetrics;
 import org.biouno.figshare.v1.model.Article;
+import org.biouno.figshare.v1.model.ArticleDraft;
+import org.biouno.figshare.v1.model.ModelTypeAdapterFactory;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
 
 /**
  * The FigShare client. You probably need to use only this class in your program
  * to interface with FigShare API, and the models.
  *
+ * <p>The client owns a pool of HTTP connections that is shared by all the API
+ * methods, so create one client and reuse it, and call {@link #close()} once
+ * you are done with it.</p>
+ *
  * <p>#Thread-safe#</p>
  *
  * @since 0.1
  */
-public final class FigShareClient {
+public final class FigShareClient implements Closeable {
 
     private static final String JSON_CONTENT_TYPE = "application/json";
     // constants
     private static final String VERSION_PREFIX = "v";
     private static final String FORWARD_SLASH = "/";
+    private static final long KB = 1024L;
+    /**
+     * Characters not allowed in file names on common file systems.
+     */
+    private static final Pattern UNSAFE_FILE_NAME = Pattern.compile("[\\\\/:*?\"<>|\\x00-\\x1F]");
 
     // parameters
     /**
@@ -83,9 +123,71 @@ public final class FigShareClient {
      */
     private final int version;
     /**
-     * OAuth consumer, used to sign requests to the API.
+     * Gson, with the hand-written adapters of the model classes. Shared by
+     * all the requests, so its adapter cache is built only once.
+     */
+    private final Gson gson;
+    /**
+     * Pooled connection manager, shared by all the requests.
+     */
+    private final PoolingHttpClientConnectionManager connectionManager;
+    /**
+     * HTTP client, backed by the pooled connection manager.
+     */
+    private final CloseableHttpClient httpClient;
+    /**
+     * Signs, sends, retries and rate limits every request.
+     */
+    private final RequestExecutor requests;
+    /**
+     * Threads for background work, such as prefetching pages and running
+     * asynchronous operations.
+     */
+    private final ExecutorService executor;
+    /**
+     * Number of articles per page, when paging through listings.
+     */
+    private final int pageSize;
+    /**
+     * Runs bulk uploads, weighing each file in KB.
+     */
+    private final BatchRunner uploads;
+    /**
+     * Runs batch article creation.
+     */
+    private final BatchRunner creations;
+    /**
+     * Runs bulk downloads.
+     */
+    private final BatchRunner downloads;
+    /**
+     * Size of the ranges large files are downloaded in.
      */
-    private final OAuthConsumer consumer;
+    private final long downloadSegmentSize;
+    /**
+     * Number of ranges of one file downloaded at the same time.
+     */
+    private final int downloadSegmentConcurrency;
+    /**
+     * Chunk size of resumable uploads.
+     */
+    private final long uploadChunkSize;
+    /**
+     * Directory of the journals of resumable uploads.
+     */
+    private final File uploadJournalDirectory;
+    /**
+     * Cache of article listings, or <code>null</code> when it is off.
+     */
+    private final ArticleCache articleCache;
+    /**
+     * Where the client reports its metrics.
+     */
+    private final FigShareMetrics metrics;
+    /**
+     * Lookups of single articles in flight, shared by concurrent callers.
+     */
+    private final SingleFlight<Long, Article> articleLookups = new SingleFlight<>();
 
     /**
      * Internal constructor.
@@ -96,15 +198,73 @@ public final class FigShareClient {
      * @param clientSecret consumer secret
      * @param tokenKey token key
      * @param tokenSecret token secret
+     * @param configuration client configuration
      */
     FigShareClient(String endpoint, int version, String clientKey, String clientSecret, String tokenKey,
-            String tokenSecret) {
+            String tokenSecret, FigShareClientConfiguration configuration) {
         this.endpoint = endpoint;
         this.version = version;
-        // create a consumer object and configure it with the access
-        // token and token secret obtained from the service provider
-        consumer = new CommonsHttpOAuthConsumer(clientKey, clientSecret);
-        consumer.setTokenWithSecret(tokenKey, tokenSecret);
+        // sign with the consumer credentials, and the access token and token
+        // secret obtained from the service provider
+        final OAuthSigner signer = new OAuthSigner(clientKey, clientSecret, tokenKey, tokenSecret);
+        gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+        // warm up the adapter cache before the first request
+        gson.getAdapter(Article.class);
+        gson.getAdapter(org.biouno.figshare.v1.model.File.class);
+        // one pool for the lifetime of the client, so that connections (and
+        // their TLS sessions) are reused across calls
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(configuration.getMaxTotalConnections());
+        connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerRoute());
+        final long keepAliveMillis = configuration.getKeepAliveMillis();
+        httpClient = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+                    @Override
+                    public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                        final long duration = super.getKeepAliveDuration(response, context);
+                        return duration > 0 ? duration : keepAliveMillis;
+                    }
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(configuration.getMaxIdleMillis(), TimeUnit.MILLISECONDS)
+                // never wait forever on a server that is down or stuck
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(toTimeout(configuration.getConnectTimeoutMillis()))
+                        .setSocketTimeout(toTimeout(configuration.getSocketTimeoutMillis()))
+                        .setConnectionRequestTimeout(toTimeout(configuration.getConnectionRequestTimeoutMillis()))
+                        .build())
+                // retries are up to the request executor, which knows which operations are idempotent
+                .disableAutomaticRetries()
+                // times the phases of each request into its trace
+                .setRequestExecutor(new TimingHttpRequestExecutor())
+                .build();
+        requests = new RequestExecutor(httpClient, connectionManager, signer, endpoint, configuration);
+        // idle worker threads time out, so a client that never uses them costs nothing
+        final ThreadPoolExecutor workers = new ThreadPoolExecutor(configuration.getWorkerThreads(),
+                configuration.getWorkerThreads(), 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(configuration.getMaxQueuedTasks()), new WorkerThreadFactory());
+        workers.allowCoreThreadTimeOut(true);
+        executor = workers;
+        pageSize = configuration.getPageSize();
+        final long uploadBudget = (configuration.getMaxUploadBytesInFlight() + KB - 1) / KB;
+        uploads = new BatchRunner(executor, configuration.getUploadConcurrency(),
+                (int) Math.min(uploadBudget, Integer.MAX_VALUE));
+        creations = new BatchRunner(executor, configuration.getCreateConcurrency(), 1);
+        downloads = new BatchRunner(executor, configuration.getDownloadConcurrency(), 1);
+        downloadSegmentSize = configuration.getDownloadSegmentSize();
+        downloadSegmentConcurrency = configuration.getDownloadSegmentConcurrency();
+        uploadChunkSize = configuration.getUploadChunkSize();
+        uploadJournalDirectory = configuration.getUploadJournalDirectory();
+        metrics = configuration.getMetrics();
+        articleCache = configuration.getMaxCachedArticles() > 0
+                ? new ArticleCache(gson, endpoint, version, tokenKey, configuration.getMaxCachedArticles(),
+                        configuration.getArticleCacheTtlMillis(), configuration.getArticleCacheDirectory())
+                : null;
+    }
+
+    private static int toTimeout(long millis) {
+        return (int) Math.min(millis, Integer.MAX_VALUE);
     }
 
     /**
@@ -121,6 +281,13 @@ public final class FigShareClient {
         return version;
     }
 
+    /**
+     * @return statistics of the HTTP connection pool (leased, available, pending and max connections)
+     */
+    public PoolStats getConnectionPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
     /**
      * Create the FigShare API URL using the endpoint, version and API method.
      *
@@ -129,7 +296,7 @@ public final class FigShareClient {
      * @param method API operation
      * @return the URL with the version and method
      */
-    private String getURL(String endpoint, int version, String method) {
+    String getURL(String endpoint, int version, String method) {
         StringBuilder sb = new StringBuilder();
         sb.append(endpoint);
         if (!endpoint.endsWith(FORWARD_SLASH)) {
@@ -152,7 +319,164 @@ public final class FigShareClient {
      */
     public static FigShareClient to(String endpoint, int version, String clientKey, String clientSecret,
             String tokenKey, String tokenSecret) {
-        return new FigShareClient(endpoint, version, clientKey, clientSecret, tokenKey, tokenSecret);
+        return to(endpoint, version, clientKey, clientSecret, tokenKey, tokenSecret,
+                new FigShareClientConfiguration());
+    }
+
+    /**
+     * Create a FigShareClient to interface to the FigShare API.
+     *
+     * @param endpoint API endpoint
+     * @param version API version
+     * @param clientKey OAuth client key
+     * @param clientSecret OAuth client secret
+     * @param tokenKey OAuth token key
+     * @param tokenSecret OAuth token secret
+     * @param configuration client configuration
+     * @return a {@link FigShareClient}
+     * @since 0.2
+     */
+    public static FigShareClient to(String endpoint, int version, String clientKey, String clientSecret,
+            String tokenKey, String tokenSecret, FigShareClientConfiguration configuration) {
+        return new FigShareClient(endpoint, version, clientKey, clientSecret, tokenKey, tokenSecret,
+                configuration);
+    }
+
+    /**
+     * Release the pooled HTTP connections. The client must not be used after
+     * it has been closed.
+     *
+     * @throws IOException if an I/O error occurs while closing the connections
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        httpClient.close();
+    }
+
+    /**
+     * Sign a request with the OAuth credentials of the client.
+     *
+     * @param request HTTP request
+     */
+    void sign(HttpRequestBase request) {
+        requests.sign(request);
+    }
+
+    /**
+     * Start the trace of a call. The caller must finish it.
+     *
+     * @param operation API operation of the call
+     * @return a new trace
+     */
+    RequestTrace startTrace(Operation operation) {
+        return requests.startTrace(operation);
+    }
+
+    /**
+     * Build the URL of an API method, timing it into the trace of the call.
+     *
+     * @param trace trace of the call
+     * @param method API method
+     * @return the URL with the version and method
+     */
+    private String url(RequestTrace trace, String method) {
+        final long start = System.nanoTime();
+        final String url = getURL(endpoint, version, method);
+        trace.add(RequestTrace.Phase.URL, System.nanoTime() - start);
+        return url;
+    }
+
+    /**
+     * Sign and send a request, retrying it if it failed and can be retried.
+     * The caller must close the response, so that the connection goes back to
+     * the pool.
+     *
+     * @param operation API operation of the request
+     * @param request HTTP request
+     * @param trace trace of the call
+     * @return a 2xx or 3xx HTTP response
+     * @throws FigShareHttpException if the API answered with an error status
+     * @throws IOException if the request fails
+     */
+    CloseableHttpResponse execute(Operation operation, HttpRequestBase request, RequestTrace trace)
+            throws IOException {
+        return requests.execute(operation, request, trace);
+    }
+
+    /**
+     * Sign and send a request, returning the response body. The response is
+     * always consumed and closed, so that the connection goes back to the pool.
+     *
+     * @param operation API operation of the request
+     * @param request HTTP request
+     * @param trace trace of the call
+     * @return response body
+     * @throws FigShareHttpException if the API answered with an error status
+     * @throws IOException if the request fails
+     */
+    private String executeForString(Operation operation, HttpRequestBase request, RequestTrace trace)
+            throws IOException {
+        final CloseableHttpResponse response = execute(operation, request, trace);
+        try {
+            HttpEntity responseEntity = response.getEntity();
+            return EntityUtils.toString(responseEntity);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Open a character stream over a response entity. JSON is UTF-8 unless the
+     * server says otherwise.
+     *
+     * @param entity HTTP entity
+     * @return a reader for the entity content
+     * @throws IOException if the content cannot be read
+     */
+    private static Reader openReader(HttpEntity entity) throws IOException {
+        final ContentType contentType = ContentType.get(entity);
+        Charset charset = contentType != null ? contentType.getCharset() : null;
+        if (charset == null) {
+            charset = Consts.UTF_8;
+        }
+        return new InputStreamReader(entity.getContent(), charset);
+    }
+
+    /**
+     * Run an operation on a worker thread.
+     *
+     * @param operation the operation
+     * @param callback callback, or <code>null</code>
+     * @return the future result of the operation, failing with a {@link FigShareClientException}
+     * @throws FigShareClientException if there are too many operations waiting already
+     */
+    private <T> Future<T> submit(final Callable<T> operation, final FigShareCallback<T> callback) {
+        try {
+            return executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    final T result;
+                    try {
+                        result = operation.call();
+                    } catch (Exception e) {
+                        final FigShareClientException exception = e instanceof FigShareClientException
+                                ? (FigShareClientException) e
+                                : new FigShareClientException(e.getMessage(), e);
+                        if (callback != null) {
+                            callback.failed(exception);
+                        }
+                        throw exception;
+                    }
+                    if (callback != null) {
+                        callback.completed(result);
+                    }
+                    return result;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new FigShareClientException("Too many operations waiting, or client closed: " + e.getMessage(), e);
+        }
     }
 
     // --- API methods
@@ -160,41 +484,293 @@ public final class FigShareClient {
     /**
      * Get full listing/details of their articles.
      *
+     * <p>When the listing cache is on, the articles may come from the cache,
+     * and are then shared with other callers, so do not modify them.</p>
+     *
      * @return List of {@link Article}s
      * @throws FigShareClientException
      */
     public List<Article> articles() throws FigShareClientException {
-        HttpClient httpClient = null;
+        if (articleCache != null) {
+            final RequestTrace trace = startTrace(Operation.LIST_ARTICLES);
+            return cachedArticles(url(trace, "my_data/articles"), trace);
+        }
+        final ArticleIterator iterator = articlesIterator();
         try {
-            final String method = "my_data/articles";
-            // create an HTTP request to a protected resource
-            final String url = getURL(endpoint, version, method);
-            // create an HTTP request to a protected resource
-            final HttpGet request = new HttpGet(url);
+            List<Article> articles = new LinkedList<>();
+            while (iterator.hasNext()) {
+                articles.add(iterator.next());
+            }
+            return Collections.unmodifiableList(articles);
+        } finally {
+            closeQuietly(iterator);
+        }
+    }
+
+    /**
+     * Get full listing/details of their articles on a worker thread.
+     *
+     * @return the future List of {@link Article}s
+     * @throws FigShareClientException if the operation cannot be queued
+     * @since 0.2
+     */
+    public Future<List<Article>> articlesAsync() {
+        return articlesAsync(null);
+    }
 
-            // sign the request
-            consumer.sign(request);
+    /**
+     * Get full listing/details of their articles on a worker thread.
+     *
+     * @param callback called with the List of {@link Article}s, or the failure
+     * @return the future List of {@link Article}s
+     * @throws FigShareClientException if the operation cannot be queued
+     * @since 0.2
+     */
+    public Future<List<Article>> articlesAsync(FigShareCallback<List<Article>> callback) {
+        return submit(new Callable<List<Article>>() {
+            @Override
+            public List<Article> call() {
+                return articles();
+            }
+        }, callback);
+    }
 
-            // send the request
-            httpClient = HttpClientBuilder.create().build();
-            HttpResponse response = httpClient.execute(request);
-            HttpEntity responseEntity = response.getEntity();
-            String json = EntityUtils.toString(responseEntity);
-            List<Article> articles = readArticlesFromJson(json);
+    /**
+     * Get full listing/details of their articles, one article at a time. The
+     * articles are bound as they come off the wire, so the listing is never
+     * held in memory as a whole.
+     *
+     * <p>The HTTP connection is released when the iterator is exhausted or
+     * closed, so close it if you stop early:</p>
+     *
+     * <pre>
+     * try (ArticleIterator articles = figshare.articlesIterator()) {
+     *     while (articles.hasNext()) {
+     *         index(articles.next());
+     *     }
+     * }
+     * </pre>
+     *
+     * @return an {@link ArticleIterator}
+     * @throws FigShareClientException
+     * @since 0.2
+     */
+    public ArticleIterator articlesIterator() throws FigShareClientException {
+        final String method = "my_data/articles";
+        final RequestTrace trace = startTrace(Operation.LIST_ARTICLES);
+        // create an HTTP request to a protected resource
+        final String url = url(trace, method);
+        return openArticles(Operation.LIST_ARTICLES, url, trace);
+    }
+
+    /**
+     * Get one page of the listing of their articles.
+     *
+     * @param page page number, starting at 1
+     * @param pageSize number of articles per page
+     * @return List of {@link Article}s, with fewer than <code>pageSize</code> articles on the last page
+     * @throws FigShareClientException
+     * @since 0.2
+     */
+    public List<Article> articles(int page, int pageSize) throws FigShareClientException {
+        if (page < 1 || pageSize < 1) {
+            throw new IllegalArgumentException("Page and page size must be greater than zero");
+        }
+        final String method = String.format("my_data/articles?page=%d&page_size=%d", page, pageSize);
+        final RequestTrace trace = startTrace(Operation.LIST_ARTICLES);
+        // create an HTTP request to a protected resource
+        final String url = url(trace, method);
+        if (articleCache != null) {
+            return cachedArticles(url, trace);
+        }
+        final ArticleIterator iterator = openArticles(Operation.LIST_ARTICLES, url, trace);
+        try {
+            List<Article> articles = new LinkedList<>();
+            while (iterator.hasNext()) {
+                articles.add(iterator.next());
+            }
             return Collections.unmodifiableList(articles);
-        } catch (OAuthCommunicationException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
-        } catch (OAuthMessageSignerException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
-        } catch (OAuthExpectationFailedException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
-        } catch (ClientProtocolException e) {
+        } finally {
+            closeQuietly(iterator);
+        }
+    }
+
+    /**
+     * Get full listing/details of their articles, fetched lazily one page at a
+     * time, with the page size of the client configuration. The next page is
+     * prefetched in the background while the current one is being read.
+     * Close the iterator if you stop before the end (see
+     * {@link ArticlePages}).
+     *
+     * @return the articles, in listing order
+     * @since 0.2
+     */
+    public ArticlePages pagedArticles() {
+        return new ArticlePages(this, executor, pageSize);
+    }
+
+    /**
+     * Get full listing/details of their articles, fetched lazily one page at a
+     * time. The next page is prefetched in the background while the current
+     * one is being read.
+     * Close the iterator if you stop before the end (see
+     * {@link ArticlePages}).
+     *
+     * @param pageSize number of articles per page
+     * @return the articles, in listing order
+     * @since 0.2
+     */
+    public ArticlePages pagedArticles(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be greater than zero");
+        }
+        return new ArticlePages(this, executor, pageSize);
+    }
+
+    /**
+     * Get the details of one of their articles. Concurrent lookups of the same
+     * article share one request, and get the same {@link Article}, so do not
+     * modify it.
+     *
+     * @param articleId article ID
+     * @return the {@link Article}
+     * @throws FigShareClientException if the article does not exist, or the request fails
+     * @since 0.2
+     */
+    public Article article(final long articleId) throws FigShareClientException {
+        return articleLookups.run(articleId, new Callable<Article>() {
+            @Override
+            public Article call() {
+                final String method = "my_data/articles/" + articleId;
+                final RequestTrace trace = startTrace(Operation.GET_ARTICLE);
+                // create an HTTP request to a protected resource
+                final String url = url(trace, method);
+                // the article comes as a listing of one
+                final ArticleIterator iterator;
+                try {
+                    iterator = openArticles(Operation.GET_ARTICLE, url, trace);
+                } catch (FigShareHttpException e) {
+                    if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                        throw new FigShareHttpException("Article not found: " + articleId, e.getStatusCode(), -1L);
+                    }
+                    throw e;
+                }
+                try {
+                    if (!iterator.hasNext()) {
+                        throw new FigShareClientException("Article not found: " + articleId);
+                    }
+                    return iterator.next();
+                } finally {
+                    closeQuietly(iterator);
+                }
+            }
+        });
+    }
+
+    /**
+     * Request an articles listing, and iterate it as it is read. The iterator
+     * finishes the trace of the call, or this method if it fails.
+     *
+     * @param operation API operation of the request
+     * @param url listing URL
+     * @param trace trace of the call
+     * @return an {@link ArticleIterator}
+     * @throws FigShareClientException
+     */
+    private ArticleIterator openArticles(Operation operation, String url, RequestTrace trace)
+            throws FigShareClientException {
+        boolean opened = false;
+        try {
+            // create an HTTP request to a protected resource
+            final HttpGet request = new HttpGet(url);
+
+            final CloseableHttpResponse response = execute(operation, request, trace);
+            try {
+                // bind the articles straight from the wire, one at a time
+                final Reader reader = openReader(response.getEntity());
+                final ArticleIterator iterator = new ArticleIterator(gson, reader, response, metrics,
+                        operation.getName(), trace);
+                opened = true;
+                return iterator;
+            } catch (IOException e) {
+                response.close();
+                throw e;
+            } catch (RuntimeException e) {
+                response.close();
+                trace.failed(e);
+                throw e;
+            }
+        } catch (IOException e) {
+            trace.failed(e);
             throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
+        } finally {
+            if (!opened) {
+                trace.finish();
+            }
+        }
+    }
+
+    /**
+     * Get an articles listing through the cache. A cached listing with
+     * validators is revalidated with a conditional request, so an unchanged
+     * listing costs a 304 and no parsing.
+     *
+     * @param url listing URL
+     * @param trace trace of the call, finished before returning
+     * @return List of {@link Article}s
+     * @throws FigShareClientException
+     */
+    private List<Article> cachedArticles(String url, RequestTrace trace) throws FigShareClientException {
+        try {
+            return cachedArticles(url, trace, articleCache.get(url));
+        } finally {
+            trace.finish();
+        }
+    }
+
+    private List<Article> cachedArticles(String url, RequestTrace trace, ArticleCache.Entry cached)
+            throws FigShareClientException {
+        final long now = System.currentTimeMillis();
+        if (cached != null && articleCache.isFresh(cached, now)) {
+            return cached.getArticles();
+        }
+        try {
+            final HttpGet request = new HttpGet(url);
+            if (cached != null && cached.getETag() != null) {
+                request.setHeader(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+            }
+            if (cached != null && cached.getLastModified() != null) {
+                request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+            }
+            final CloseableHttpResponse response = execute(Operation.LIST_ARTICLES, request, trace);
+            try {
+                final int status = response.getStatusLine().getStatusCode();
+                if (status == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+                    EntityUtils.consume(response.getEntity());
+                    articleCache.revalidated(cached, System.currentTimeMillis());
+                    return cached.getArticles();
+                }
+                final String json = EntityUtils.toString(response.getEntity(), Consts.UTF_8);
+                final List<Article> articles = parseArticles(Operation.LIST_ARTICLES, json, trace);
+                if (status != HttpStatus.SC_OK) {
+                    return Collections.unmodifiableList(articles);
+                }
+                return articleCache.put(url, json, articles, header(response, HttpHeaders.ETAG),
+                        header(response, HttpHeaders.LAST_MODIFIED), System.currentTimeMillis()).getArticles();
+            } finally {
+                response.close();
+            }
         } catch (IOException e) {
+            trace.failed(e);
             throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
         }
     }
 
+    private static String header(HttpResponse response, String name) {
+        final Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
     /**
      * Get the articles objects from JSON.
      *
@@ -202,17 +778,109 @@ public final class FigShareClient {
      * @return articles objects
      */
     protected List<Article> readArticlesFromJson(String json) {
-        Gson gson = new Gson();
-        JsonParser parser = new JsonParser();
-        JsonObject array = parser.parse(json).getAsJsonObject();
-        JsonElement items = array.get("items");
-        JsonArray itemsArray = items.getAsJsonArray();
-        List<Article> articles = new LinkedList<>();
-        for (JsonElement element : itemsArray) {
-            Article article = gson.fromJson(element, Article.class);
-            articles.add(article);
+        try {
+            return readArticlesFromJson(new StringReader(json));
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Get the articles objects from a JSON stream. Each element of the
+     * <code>items</code> array is bound as soon as it is read, so that the
+     * JSON of the whole listing is never held in memory. The stream is closed
+     * once the listing has been read.
+     *
+     * @param json JSON stream
+     * @return articles objects
+     * @throws IOException if the stream cannot be read or is not valid JSON
+     */
+    protected List<Article> readArticlesFromJson(Reader json) throws IOException {
+        final ArticleIterator iterator = new ArticleIterator(gson, json, null);
+        try {
+            List<Article> articles = new LinkedList<>();
+            while (iterator.hasNext()) {
+                articles.add(iterator.next());
+            }
+            return articles;
+        } catch (FigShareClientException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        } finally {
+            iterator.close();
+        }
+    }
+
+    /**
+     * Read a listing, reporting the time spent and any failure to the metrics
+     * and the trace.
+     */
+    private List<Article> parseArticles(Operation operation, String json, RequestTrace trace) {
+        final long start = System.nanoTime();
+        try {
+            final List<Article> articles = readArticlesFromJson(json);
+            parsed(operation, trace, System.nanoTime() - start);
+            return articles;
+        } catch (JsonParseException e) {
+            parseFailed(operation, trace, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Read an article, reporting the time spent and any failure to the
+     * metrics and the trace.
+     */
+    private Article parseArticle(Operation operation, String json, RequestTrace trace) {
+        final long start = System.nanoTime();
+        try {
+            final Article article = readArticleFromJson(json);
+            parsed(operation, trace, System.nanoTime() - start);
+            return article;
+        } catch (JsonParseException e) {
+            parseFailed(operation, trace, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Read a file, reporting the time spent and any failure to the metrics
+     * and the trace, if there is one.
+     */
+    private org.biouno.figshare.v1.model.File parseFile(Operation operation, String json, RequestTrace trace) {
+        final long start = System.nanoTime();
+        try {
+            final org.biouno.figshare.v1.model.File file = readFileFromJson(json);
+            parsed(operation, trace, System.nanoTime() - start);
+            return file;
+        } catch (JsonParseException e) {
+            parseFailed(operation, trace, e);
+            throw e;
+        }
+    }
+
+    private void parsed(Operation operation, RequestTrace trace, long nanos) {
+        metrics.responseParsed(operation.getName(), nanos);
+        if (trace != null) {
+            trace.add(RequestTrace.Phase.BINDING, nanos);
+        }
+    }
+
+    private void parseFailed(Operation operation, RequestTrace trace, JsonParseException e) {
+        metrics.requestFailed(operation.getName(), ErrorCause.PARSE);
+        if (trace != null) {
+            trace.failed(e);
+        }
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // nothing else to release
         }
-        return articles;
     }
 
     /**
@@ -224,14 +892,13 @@ public final class FigShareClient {
      * @return an {@link Article}
      */
     public Article createArticle(final String title, final String description, final String definedType) {
-        HttpClient httpClient = null;
+        final RequestTrace trace = startTrace(Operation.CREATE_ARTICLE);
         try {
             final String method = "my_data/articles";
             // create an HTTP request to a protected resource
-            final String url = getURL(endpoint, version, method);
+            final String url = url(trace, method);
             // create an HTTP request to a protected resource
             final HttpPost request = new HttpPost(url);
-            Gson gson = new Gson();
             JsonObject payload = new JsonObject();
             payload.addProperty("title", title);
             payload.addProperty("description", description);
@@ -241,29 +908,77 @@ public final class FigShareClient {
             entity.setContentType(JSON_CONTENT_TYPE);
             request.setEntity(entity);
 
-            // sign the request
-            consumer.sign(request);
-
-            // send the request
-            httpClient = HttpClientBuilder.create().build();
-            HttpResponse response = httpClient.execute(request);
-            HttpEntity responseEntity = response.getEntity();
-            String json = EntityUtils.toString(responseEntity);
-            Article article = readArticleFromJson(json);
+            String json = executeForString(Operation.CREATE_ARTICLE, request, trace);
+            Article article = parseArticle(Operation.CREATE_ARTICLE, json, trace);
             return article;
-        } catch (OAuthCommunicationException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
-        } catch (OAuthMessageSignerException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
-        } catch (OAuthExpectationFailedException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
-        } catch (ClientProtocolException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
         } catch (IOException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
+            trace.failed(e);
+            throw new FigShareClientException("Failed to create article: " + e.getMessage(), e);
+        } finally {
+            trace.finish();
         }
     }
 
+    /**
+     * Create an article on a worker thread.
+     *
+     * @param title title
+     * @param description description
+     * @param definedType defined type (e.g. dataset)
+     * @return the future {@link Article}
+     * @throws FigShareClientException if the operation cannot be queued
+     * @since 0.2
+     */
+    public Future<Article> createArticleAsync(String title, String description, String definedType) {
+        return createArticleAsync(title, description, definedType, null);
+    }
+
+    /**
+     * Create an article on a worker thread.
+     *
+     * @param title title
+     * @param description description
+     * @param definedType defined type (e.g. dataset)
+     * @param callback called with the {@link Article}, or the failure
+     * @return the future {@link Article}
+     * @throws FigShareClientException if the operation cannot be queued
+     * @since 0.2
+     */
+    public Future<Article> createArticleAsync(final String title, final String description,
+            final String definedType, FigShareCallback<Article> callback) {
+        return submit(new Callable<Article>() {
+            @Override
+            public Article call() {
+                return createArticle(title, description, definedType);
+            }
+        }, callback);
+    }
+
+    /**
+     * Create articles, several at a time over the pooled keep-alive
+     * connections. At most
+     * {@link FigShareClientConfiguration#getCreateConcurrency()} articles are
+     * created at the same time. A failed draft does not stop the others.
+     *
+     * @param drafts details of the articles
+     * @return one result per draft, in the same order as the drafts
+     * @throws FigShareClientException if interrupted while waiting for the articles
+     * @since 0.2
+     */
+    public List<BatchResult<ArticleDraft, Article>> createArticles(List<ArticleDraft> drafts) {
+        return creations.run(drafts, new BatchRunner.Task<ArticleDraft, Article>() {
+            @Override
+            public int weigh(ArticleDraft draft) {
+                return 0;
+            }
+
+            @Override
+            public Article run(ArticleDraft draft) {
+                return createArticle(draft.getTitle(), draft.getDescription(), draft.getDefinedType());
+            }
+        });
+    }
+
     /**
      * Get the article object from JSON.
      *
@@ -271,7 +986,6 @@ public final class FigShareClient {
      * @return article object
      */
     protected Article readArticleFromJson(String json) {
-        Gson gson = new Gson();
         Article article = gson.fromJson(json, Article.class);
         return article;
     }
@@ -284,43 +998,231 @@ public final class FigShareClient {
      * @return org.biouno.figshare.v1.model.File uploaded file, without the thumbnail URL
      */
     public org.biouno.figshare.v1.model.File uploadFile(long articleId, File file) {
-        HttpClient httpClient = null;
+        final RequestTrace trace = startTrace(Operation.UPLOAD_FILE);
         try {
             final String method = String.format("my_data/articles/%d/files", articleId);
             // create an HTTP request to a protected resource
-            final String url = getURL(endpoint, version, method);
+            final String url = url(trace, method);
             // create an HTTP request to a protected resource
             final HttpPut request = new HttpPut(url);
 
             MultipartEntityBuilder builder  = MultipartEntityBuilder.create();
-            ContentBody body = new FileBody(file);
+            ContentBody body = new FileChannelBody(file);
             FormBodyPart part = FormBodyPartBuilder.create("filedata", body).build();
             builder.addPart(part);
 
             HttpEntity entity = builder.build();
             request.setEntity(entity);
 
-            // sign the request
-            consumer.sign(request);
+            String json = executeForString(Operation.UPLOAD_FILE, request, trace);
+            org.biouno.figshare.v1.model.File uploadedFile = parseFile(Operation.UPLOAD_FILE, json, trace);
+            return uploadedFile;
+        } catch (IOException e) {
+            trace.failed(e);
+            throw new FigShareClientException("Failed to upload file: " + e.getMessage(), e);
+        } finally {
+            trace.finish();
+        }
+    }
+
+    /**
+     * Upload a file to an article on a worker thread.
+     *
+     * @param articleId article ID
+     * @param file java.io.File file
+     * @return the future uploaded file
+     * @throws FigShareClientException if the operation cannot be queued
+     * @since 0.2
+     */
+    public Future<org.biouno.figshare.v1.model.File> uploadFileAsync(long articleId, File file) {
+        return uploadFileAsync(articleId, file, null);
+    }
 
-            // send the request
-            httpClient = HttpClientBuilder.create().build();
-            HttpResponse response = httpClient.execute(request);
-            HttpEntity responseEntity = response.getEntity();
-            String json = EntityUtils.toString(responseEntity);
-            org.biouno.figshare.v1.model.File uploadedFile = readFileFromJson(json);
+    /**
+     * Upload a file to an article on a worker thread.
+     *
+     * @param articleId article ID
+     * @param file java.io.File file
+     * @param callback called with the uploaded file, or the failure
+     * @return the future uploaded file
+     * @throws FigShareClientException if the operation cannot be queued
+     * @since 0.2
+     */
+    public Future<org.biouno.figshare.v1.model.File> uploadFileAsync(final long articleId, final File file,
+            FigShareCallback<org.biouno.figshare.v1.model.File> callback) {
+        return submit(new Callable<org.biouno.figshare.v1.model.File>() {
+            @Override
+            public org.biouno.figshare.v1.model.File call() {
+                return uploadFile(articleId, file);
+            }
+        }, callback);
+    }
+
+    /**
+     * Upload a file to an article in chunks, so that an interrupted upload can
+     * be resumed. Each chunk acknowledged by the server is recorded in a local
+     * journal (see {@link FigShareClientConfiguration#setUploadJournalDirectory(File)}),
+     * and calling this method again for the same article and the same,
+     * unchanged, file continues after the last acknowledged chunk.
+     *
+     * <p>Each chunk is sent as a PUT with a <code>Content-Range</code> header,
+     * so the endpoint must support ranged uploads.</p>
+     *
+     * @param articleId article ID
+     * @param file java.io.File file
+     * @return org.biouno.figshare.v1.model.File uploaded file, without the thumbnail URL
+     * @since 0.2
+     */
+    public org.biouno.figshare.v1.model.File uploadFileResumable(long articleId, File file) {
+        // one trace for the whole upload, with an attempt per chunk
+        final RequestTrace trace = startTrace(Operation.UPLOAD_CHUNK);
+        try {
+            final String method = String.format("my_data/articles/%d/files", articleId);
+            // create an HTTP request to a protected resource
+            final String url = url(trace, method);
+            final UploadJournal journal = UploadJournal.open(uploadJournalDirectory, articleId, file, uploadChunkSize);
+            String json = new ChunkedUpload(this, url, file, journal, uploadChunkSize).upload(trace);
+            org.biouno.figshare.v1.model.File uploadedFile = parseFile(Operation.UPLOAD_CHUNK, json, trace);
             return uploadedFile;
-        } catch (OAuthCommunicationException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
-        } catch (OAuthMessageSignerException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
-        } catch (OAuthExpectationFailedException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
-        } catch (ClientProtocolException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
         } catch (IOException e) {
-            throw new FigShareClientException("Failed to get articles: " + e.getMessage(), e);
+            trace.failed(e);
+            throw new FigShareClientException("Failed to upload file: " + e.getMessage(), e);
+        } catch (FigShareClientException e) {
+            trace.failed(e);
+            throw e;
+        } finally {
+            trace.finish();
+        }
+    }
+
+    /**
+     * Upload files to an article, several at a time. At most
+     * {@link FigShareClientConfiguration#getUploadConcurrency()} files are
+     * uploaded at the same time, and their total size is kept under
+     * {@link FigShareClientConfiguration#getMaxUploadBytesInFlight()}. A failed
+     * file does not stop the others.
+     *
+     * @param articleId article ID
+     * @param files java.io.File files
+     * @return one result per file, in the same order as the files
+     * @throws FigShareClientException if interrupted while waiting for the uploads
+     * @since 0.2
+     */
+    public List<BatchResult<File, org.biouno.figshare.v1.model.File>> uploadFiles(final long articleId,
+            Collection<File> files) {
+        return uploads.run(files, new BatchRunner.Task<File, org.biouno.figshare.v1.model.File>() {
+            @Override
+            public int weigh(File file) {
+                return (int) Math.min((file.length() + KB - 1) / KB, Integer.MAX_VALUE);
+            }
+
+            @Override
+            public org.biouno.figshare.v1.model.File run(File file) {
+                return uploadFile(articleId, file);
+            }
+        });
+    }
+
+    /**
+     * Download a file of an article. Large files are downloaded in ranges of
+     * {@link FigShareClientConfiguration#getDownloadSegmentSize()}, several
+     * at a time, into a partial file next to the target, which is renamed to
+     * the target once complete. An interrupted download resumes with the
+     * ranges that are missing when this method is called again for the same
+     * file and target, if the content did not change in between.
+     *
+     * <p>The size of the download must match the size the server announced,
+     * and the size of the file in the listing, to the precision it is given
+     * in (e.g. <code>"1.5 MB"</code>).</p>
+     *
+     * @param file file of an article, with its download URL
+     * @param target where to write the file; replaced if it exists
+     * @return the target
+     * @throws FigShareClientException if the file has no download URL, or the download fails
+     * @since 0.2
+     */
+    public File downloadFile(org.biouno.figshare.v1.model.File file, File target) {
+        if (file.getDownloadUrl() == null) {
+            throw new FigShareClientException("File " + file.getId() + " has no download URL");
+        }
+        try {
+            new RangedDownload(this, executor, file, target, downloadSegmentSize, downloadSegmentConcurrency)
+                    .download();
+            return target;
+        } catch (IOException e) {
+            throw new FigShareClientException("Failed to download file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Download files of articles to a directory, several at a time. At most
+     * {@link FigShareClientConfiguration#getDownloadConcurrency()} files are
+     * downloaded at the same time, each as in
+     * {@link #downloadFile(org.biouno.figshare.v1.model.File, File)}. Each
+     * file is named after its name, with characters that are not allowed in
+     * file names replaced, and prefixed with its ID (and a number, if need
+     * be) if another file of the batch has the same name. A file whose ID
+     * is already in the batch fails, instead of being downloaded twice. A
+     * failed file does not stop the others.
+     *
+     * @param files files of articles, e.g. {@link Article#getFiles()}
+     * @param directory directory to download to, created if it does not exist
+     * @return one result per file, in the same order as the files
+     * @throws FigShareClientException if the directory cannot be created, or
+     *         if interrupted while waiting for the downloads
+     * @since 0.2
+     */
+    public List<BatchResult<org.biouno.figshare.v1.model.File, File>> downloadFiles(
+            Collection<org.biouno.figshare.v1.model.File> files, File directory) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new FigShareClientException("Failed to create directory " + directory);
+        }
+        final Map<org.biouno.figshare.v1.model.File, File> targets = new IdentityHashMap<>();
+        final Map<Long, File> ids = new HashMap<>();
+        final Set<String> names = new HashSet<>();
+        for (org.biouno.figshare.v1.model.File file : files) {
+            if (file.getId() != null && ids.containsKey(file.getId())) {
+                // two downloads to the same partial file would corrupt it
+                continue;
+            }
+            final String base = fileName(file);
+            String name = base;
+            for (int n = 1; !names.add(name.toLowerCase(Locale.ENGLISH)); n++) {
+                name = file.getId() + (n > 1 ? "-" + n : "") + "-" + base;
+            }
+            final File target = new File(directory, name);
+            targets.put(file, target);
+            if (file.getId() != null) {
+                ids.put(file.getId(), target);
+            }
+        }
+        return downloads.run(files, new BatchRunner.Task<org.biouno.figshare.v1.model.File, File>() {
+            @Override
+            public int weigh(org.biouno.figshare.v1.model.File file) {
+                return 0;
+            }
+
+            @Override
+            public File run(org.biouno.figshare.v1.model.File file) {
+                final File target = targets.get(file);
+                if (target == null) {
+                    throw new FigShareClientException("File " + file.getId() + " is already in the batch, downloaded to "
+                            + ids.get(file.getId()));
+                }
+                return downloadFile(file, target);
+            }
+        });
+    }
+
+    /**
+     * @return the name of a file, safe to use as a local file name
+     */
+    private static String fileName(org.biouno.figshare.v1.model.File file) {
+        final String name = file.getName() != null ? file.getName().trim() : "";
+        if (name.isEmpty() || ".".equals(name) || "..".equals(name)) {
+            return String.valueOf(file.getId());
         }
+        return UNSAFE_FILE_NAME.matcher(name).replaceAll("_");
     }
 
     /**
@@ -330,9 +1232,28 @@ public final class FigShareClient {
      * @return a file
      */
     protected org.biouno.figshare.v1.model.File readFileFromJson(String json) {
-        Gson gson = new Gson();
         org.biouno.figshare.v1.model.File file = gson.fromJson(json, org.biouno.figshare.v1.model.File.class);
         return file;
     }
 
+    /**
+     * Creates daemon worker threads, so that a client that is not closed does
+     * not keep the JVM running.
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable,
+                    "figshare-client-" + poolNumber + "-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
 }
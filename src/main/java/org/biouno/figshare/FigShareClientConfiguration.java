@@ -0,0 +1,816 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.biouno.figshare.metrics.FigShareMetrics;
+import org.biouno.figshare.metrics.NoMetrics;
+
+/**
+ * Settings for a {@link FigShareClient}. The defaults are sensible for most
+ * programs, so you only need to change the values that matter to you before
+ * passing the configuration to
+ * {@link FigShareClient#to(String, int, String, String, String, String, FigShareClientConfiguration)}.
+ *
+ * <p>The client copies the values it needs when it is created, so changing a
+ * configuration afterwards does not affect existing clients.</p>
+ *
+ * <p>#Not-Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class FigShareClientConfiguration {
+
+    /**
+     * Default maximum number of pooled connections.
+     */
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 20;
+    /**
+     * Default maximum number of pooled connections per route (host).
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+    /**
+     * Default keep-alive, used when the server does not send a Keep-Alive header.
+     */
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 30000L;
+    /**
+     * Default time after which idle pooled connections are evicted.
+     */
+    public static final long DEFAULT_MAX_IDLE_MILLIS = 60000L;
+    /**
+     * Default number of articles per page, when paging through listings.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    /**
+     * Default number of threads for background work, such as prefetching pages
+     * and running asynchronous operations.
+     */
+    public static final int DEFAULT_WORKER_THREADS = 4;
+    /**
+     * Default number of tasks that can wait for a worker thread.
+     */
+    public static final int DEFAULT_MAX_QUEUED_TASKS = 10000;
+    /**
+     * Default number of files uploaded at the same time by bulk uploads.
+     */
+    public static final int DEFAULT_UPLOAD_CONCURRENCY = 4;
+    /**
+     * Default number of articles created at the same time by batch creation.
+     */
+    public static final int DEFAULT_CREATE_CONCURRENCY = 4;
+    /**
+     * Default limit of the total size of the files being uploaded at the same
+     * time by bulk uploads (256 MB).
+     */
+    public static final long DEFAULT_MAX_UPLOAD_BYTES_IN_FLIGHT = 256L * 1024L * 1024L;
+    /**
+     * Default chunk size of resumable uploads (8 MB).
+     */
+    public static final long DEFAULT_UPLOAD_CHUNK_SIZE = 8L * 1024L * 1024L;
+    /**
+     * Default number of files downloaded at the same time by bulk downloads.
+     */
+    public static final int DEFAULT_DOWNLOAD_CONCURRENCY = 4;
+    /**
+     * Default size of the ranges large files are downloaded in (8 MB).
+     */
+    public static final long DEFAULT_DOWNLOAD_SEGMENT_SIZE = 8L * 1024L * 1024L;
+    /**
+     * Default number of ranges of one file downloaded at the same time.
+     */
+    public static final int DEFAULT_DOWNLOAD_SEGMENT_CONCURRENCY = 4;
+    /**
+     * Default time to wait for a connection to be established.
+     */
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000L;
+    /**
+     * Default time to wait for data, between two packets.
+     */
+    public static final long DEFAULT_SOCKET_TIMEOUT_MILLIS = 60000L;
+    /**
+     * Default time to wait for a pooled connection, or for a place in a bulkhead.
+     */
+    public static final long DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS = 10000L;
+    /**
+     * Default number of failures in a row that open the circuit breaker of an
+     * operation.
+     */
+    public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+    /**
+     * Default time an open circuit breaker waits before a trial call.
+     */
+    public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS = 30000L;
+    /**
+     * Default maximum number of upload requests in flight.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_UPLOADS = 4;
+    /**
+     * Default maximum number of download requests in flight.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 4;
+    /**
+     * Default maximum number of metadata requests (listings, lookups and
+     * article creation) in flight.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_METADATA_REQUESTS = 6;
+    /**
+     * Default maximum number of retries of a failed request.
+     */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    /**
+     * Default delay before the first retry, doubled for each retry after it.
+     */
+    public static final long DEFAULT_RETRY_BASE_DELAY_MILLIS = 200L;
+    /**
+     * Default maximum delay before a retry.
+     */
+    public static final long DEFAULT_RETRY_MAX_DELAY_MILLIS = 30000L;
+    /**
+     * Default rate limit, which is off.
+     */
+    public static final double DEFAULT_MAX_REQUESTS_PER_SECOND = 0;
+    /**
+     * Default number of requests that can go over the rate limit after the
+     * client has been idle.
+     */
+    public static final int DEFAULT_MAX_REQUEST_BURST = 10;
+    /**
+     * Default maximum number of articles held by the listing cache, which is
+     * off by default.
+     */
+    public static final int DEFAULT_MAX_CACHED_ARTICLES = 0;
+    /**
+     * Default time to live of cached listings the server sent without an ETag
+     * or Last-Modified header.
+     */
+    public static final long DEFAULT_ARTICLE_CACHE_TTL_MILLIS = 60000L;
+    /**
+     * Default threshold of the slow call log, 0 as it is off.
+     */
+    public static final long DEFAULT_SLOW_CALL_THRESHOLD_MILLIS = 0L;
+
+    private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+    private long maxIdleMillis = DEFAULT_MAX_IDLE_MILLIS;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private int workerThreads = DEFAULT_WORKER_THREADS;
+    private int maxQueuedTasks = DEFAULT_MAX_QUEUED_TASKS;
+    private int uploadConcurrency = DEFAULT_UPLOAD_CONCURRENCY;
+    private int createConcurrency = DEFAULT_CREATE_CONCURRENCY;
+    private long maxUploadBytesInFlight = DEFAULT_MAX_UPLOAD_BYTES_IN_FLIGHT;
+    private long uploadChunkSize = DEFAULT_UPLOAD_CHUNK_SIZE;
+    private File uploadJournalDirectory = new File(System.getProperty("java.io.tmpdir"), "figshare-uploads");
+    private int downloadConcurrency = DEFAULT_DOWNLOAD_CONCURRENCY;
+    private long downloadSegmentSize = DEFAULT_DOWNLOAD_SEGMENT_SIZE;
+    private int downloadSegmentConcurrency = DEFAULT_DOWNLOAD_SEGMENT_CONCURRENCY;
+    private long connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private long socketTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+    private long connectionRequestTimeoutMillis = DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS;
+    private int circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+    private long circuitBreakerOpenMillis = DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS;
+    private int maxConcurrentUploads = DEFAULT_MAX_CONCURRENT_UPLOADS;
+    private int maxConcurrentDownloads = DEFAULT_MAX_CONCURRENT_DOWNLOADS;
+    private int maxConcurrentMetadataRequests = DEFAULT_MAX_CONCURRENT_METADATA_REQUESTS;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryBaseDelayMillis = DEFAULT_RETRY_BASE_DELAY_MILLIS;
+    private long retryMaxDelayMillis = DEFAULT_RETRY_MAX_DELAY_MILLIS;
+    private double maxRequestsPerSecond = DEFAULT_MAX_REQUESTS_PER_SECOND;
+    private int maxRequestBurst = DEFAULT_MAX_REQUEST_BURST;
+    private int maxCachedArticles = DEFAULT_MAX_CACHED_ARTICLES;
+    private long articleCacheTtlMillis = DEFAULT_ARTICLE_CACHE_TTL_MILLIS;
+    private File articleCacheDirectory = null;
+    private FigShareMetrics metrics = NoMetrics.INSTANCE;
+    private final List<RequestInterceptor> interceptors = new ArrayList<>();
+    private long slowCallThresholdMillis = DEFAULT_SLOW_CALL_THRESHOLD_MILLIS;
+
+    /**
+     * Create a configuration with the default values.
+     */
+    public FigShareClientConfiguration() {
+        super();
+    }
+
+    /**
+     * @return the maximum number of pooled connections
+     */
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    /**
+     * @param maxTotalConnections the maximum number of pooled connections
+     */
+    public void setMaxTotalConnections(int maxTotalConnections) {
+        checkPositive("maxTotalConnections", maxTotalConnections);
+        this.maxTotalConnections = maxTotalConnections;
+    }
+
+    /**
+     * @return the maximum number of pooled connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * @param maxConnectionsPerRoute the maximum number of pooled connections per route
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        checkPositive("maxConnectionsPerRoute", maxConnectionsPerRoute);
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * @return how long a connection is kept alive when the server does not say
+     */
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    /**
+     * @param keepAliveMillis how long a connection is kept alive when the server does not say
+     */
+    public void setKeepAliveMillis(long keepAliveMillis) {
+        checkPositive("keepAliveMillis", keepAliveMillis);
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    /**
+     * @return idle time after which pooled connections are closed
+     */
+    public long getMaxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    /**
+     * @param maxIdleMillis idle time after which pooled connections are closed
+     */
+    public void setMaxIdleMillis(long maxIdleMillis) {
+        checkPositive("maxIdleMillis", maxIdleMillis);
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    /**
+     * @return number of articles per page, when paging through listings
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @param pageSize number of articles per page, when paging through listings
+     */
+    public void setPageSize(int pageSize) {
+        checkPositive("pageSize", pageSize);
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return number of threads for background work
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * @param workerThreads number of threads for background work
+     */
+    public void setWorkerThreads(int workerThreads) {
+        checkPositive("workerThreads", workerThreads);
+        this.workerThreads = workerThreads;
+    }
+
+    /**
+     * @return number of tasks that can wait for a worker thread
+     */
+    public int getMaxQueuedTasks() {
+        return maxQueuedTasks;
+    }
+
+    /**
+     * Asynchronous operations submitted while this many tasks are already
+     * waiting are rejected with a {@link FigShareClientException}.
+     *
+     * @param maxQueuedTasks number of tasks that can wait for a worker thread
+     */
+    public void setMaxQueuedTasks(int maxQueuedTasks) {
+        checkPositive("maxQueuedTasks", maxQueuedTasks);
+        this.maxQueuedTasks = maxQueuedTasks;
+    }
+
+    /**
+     * @return number of files uploaded at the same time by bulk uploads
+     */
+    public int getUploadConcurrency() {
+        return uploadConcurrency;
+    }
+
+    /**
+     * Bulk uploads also run on the worker threads, so uploading more files at
+     * the same time than there are worker threads has no effect.
+     *
+     * @param uploadConcurrency number of files uploaded at the same time by bulk uploads
+     */
+    public void setUploadConcurrency(int uploadConcurrency) {
+        checkPositive("uploadConcurrency", uploadConcurrency);
+        this.uploadConcurrency = uploadConcurrency;
+    }
+
+    /**
+     * @return number of articles created at the same time by batch creation
+     */
+    public int getCreateConcurrency() {
+        return createConcurrency;
+    }
+
+    /**
+     * Batch creation also runs on the worker threads, and each article in
+     * flight holds a pooled connection, so keep it within both.
+     *
+     * @param createConcurrency number of articles created at the same time by batch creation
+     */
+    public void setCreateConcurrency(int createConcurrency) {
+        checkPositive("createConcurrency", createConcurrency);
+        this.createConcurrency = createConcurrency;
+    }
+
+    /**
+     * @return limit of the total size of the files being uploaded at the same time
+     */
+    public long getMaxUploadBytesInFlight() {
+        return maxUploadBytesInFlight;
+    }
+
+    /**
+     * A file larger than the limit is uploaded on its own.
+     *
+     * @param maxUploadBytesInFlight limit of the total size of the files being uploaded at the same time
+     */
+    public void setMaxUploadBytesInFlight(long maxUploadBytesInFlight) {
+        checkPositive("maxUploadBytesInFlight", maxUploadBytesInFlight);
+        this.maxUploadBytesInFlight = maxUploadBytesInFlight;
+    }
+
+    /**
+     * @return chunk size of resumable uploads
+     */
+    public long getUploadChunkSize() {
+        return uploadChunkSize;
+    }
+
+    /**
+     * @param uploadChunkSize chunk size of resumable uploads
+     */
+    public void setUploadChunkSize(long uploadChunkSize) {
+        checkPositive("uploadChunkSize", uploadChunkSize);
+        this.uploadChunkSize = uploadChunkSize;
+    }
+
+    /**
+     * @return directory of the journals of resumable uploads
+     */
+    public File getUploadJournalDirectory() {
+        return uploadJournalDirectory;
+    }
+
+    /**
+     * Defaults to <code>figshare-uploads</code> in the temporary directory.
+     * Use a directory that survives restarts if uploads must resume after one.
+     *
+     * @param uploadJournalDirectory directory of the journals of resumable uploads
+     */
+    public void setUploadJournalDirectory(File uploadJournalDirectory) {
+        if (uploadJournalDirectory == null) {
+            throw new IllegalArgumentException("uploadJournalDirectory must not be null");
+        }
+        this.uploadJournalDirectory = uploadJournalDirectory;
+    }
+
+    /**
+     * @return number of files downloaded at the same time by bulk downloads
+     */
+    public int getDownloadConcurrency() {
+        return downloadConcurrency;
+    }
+
+    /**
+     * Bulk downloads also run on the worker threads, so downloading more files
+     * at the same time than there are worker threads has no effect.
+     *
+     * @param downloadConcurrency number of files downloaded at the same time by bulk downloads
+     */
+    public void setDownloadConcurrency(int downloadConcurrency) {
+        checkPositive("downloadConcurrency", downloadConcurrency);
+        this.downloadConcurrency = downloadConcurrency;
+    }
+
+    /**
+     * @return size of the ranges large files are downloaded in
+     */
+    public long getDownloadSegmentSize() {
+        return downloadSegmentSize;
+    }
+
+    /**
+     * Files up to this size are downloaded with one request. An interrupted
+     * download resumes with the ranges that were not complete.
+     *
+     * @param downloadSegmentSize size of the ranges large files are downloaded in
+     */
+    public void setDownloadSegmentSize(long downloadSegmentSize) {
+        checkPositive("downloadSegmentSize", downloadSegmentSize);
+        this.downloadSegmentSize = downloadSegmentSize;
+    }
+
+    /**
+     * @return number of ranges of one file downloaded at the same time
+     */
+    public int getDownloadSegmentConcurrency() {
+        return downloadSegmentConcurrency;
+    }
+
+    /**
+     * The ranges after the first are downloaded on the worker threads that
+     * are free, so the ranges of a file share them with the other files of a
+     * bulk download.
+     *
+     * @param downloadSegmentConcurrency number of ranges of one file downloaded at the same time
+     */
+    public void setDownloadSegmentConcurrency(int downloadSegmentConcurrency) {
+        checkPositive("downloadSegmentConcurrency", downloadSegmentConcurrency);
+        this.downloadSegmentConcurrency = downloadSegmentConcurrency;
+    }
+
+    /**
+     * @return time to wait for a connection to be established
+     */
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * @param connectTimeoutMillis time to wait for a connection to be established
+     */
+    public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+        checkPositive("connectTimeoutMillis", connectTimeoutMillis);
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    /**
+     * @return time to wait for data, between two packets
+     */
+    public long getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    /**
+     * @param socketTimeoutMillis time to wait for data, between two packets
+     */
+    public void setSocketTimeoutMillis(long socketTimeoutMillis) {
+        checkPositive("socketTimeoutMillis", socketTimeoutMillis);
+        this.socketTimeoutMillis = socketTimeoutMillis;
+    }
+
+    /**
+     * @return time to wait for a pooled connection, or for a place in a bulkhead
+     */
+    public long getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    /**
+     * @param connectionRequestTimeoutMillis time to wait for a pooled connection, or for a place in a bulkhead
+     */
+    public void setConnectionRequestTimeoutMillis(long connectionRequestTimeoutMillis) {
+        checkPositive("connectionRequestTimeoutMillis", connectionRequestTimeoutMillis);
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+    }
+
+    /**
+     * @return number of failures in a row that open the circuit breaker of an operation
+     */
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * I/O errors, timeouts and 5xx responses count as failures, and each
+     * retry is a call of its own.
+     *
+     * @param circuitBreakerFailureThreshold number of failures in a row that open the circuit breaker of an operation
+     */
+    public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+        checkPositive("circuitBreakerFailureThreshold", circuitBreakerFailureThreshold);
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * @return time an open circuit breaker waits before a trial call
+     */
+    public long getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    /**
+     * @param circuitBreakerOpenMillis time an open circuit breaker waits before a trial call
+     */
+    public void setCircuitBreakerOpenMillis(long circuitBreakerOpenMillis) {
+        checkPositive("circuitBreakerOpenMillis", circuitBreakerOpenMillis);
+        this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+    }
+
+    /**
+     * @return maximum number of upload requests in flight
+     */
+    public int getMaxConcurrentUploads() {
+        return maxConcurrentUploads;
+    }
+
+    /**
+     * Keep the upload and metadata limits within
+     * {@link #getMaxConnectionsPerRoute()}, so that uploads can never take the
+     * connections the metadata requests need.
+     *
+     * @param maxConcurrentUploads maximum number of upload requests in flight
+     */
+    public void setMaxConcurrentUploads(int maxConcurrentUploads) {
+        checkPositive("maxConcurrentUploads", maxConcurrentUploads);
+        this.maxConcurrentUploads = maxConcurrentUploads;
+    }
+
+    /**
+     * @return maximum number of download requests in flight
+     */
+    public int getMaxConcurrentDownloads() {
+        return maxConcurrentDownloads;
+    }
+
+    /**
+     * A download request is in flight until its content has been read, or its
+     * response closed, so this bounds the connections held by downloads,
+     * whatever the download and segment concurrency. Downloads over the limit
+     * wait for a place, without the connection request timeout.
+     *
+     * @param maxConcurrentDownloads maximum number of download requests in flight
+     */
+    public void setMaxConcurrentDownloads(int maxConcurrentDownloads) {
+        checkPositive("maxConcurrentDownloads", maxConcurrentDownloads);
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+    }
+
+    /**
+     * @return maximum number of metadata requests in flight
+     */
+    public int getMaxConcurrentMetadataRequests() {
+        return maxConcurrentMetadataRequests;
+    }
+
+    /**
+     * @param maxConcurrentMetadataRequests maximum number of metadata requests (listings, lookups and article creation) in flight
+     */
+    public void setMaxConcurrentMetadataRequests(int maxConcurrentMetadataRequests) {
+        checkPositive("maxConcurrentMetadataRequests", maxConcurrentMetadataRequests);
+        this.maxConcurrentMetadataRequests = maxConcurrentMetadataRequests;
+    }
+
+    /**
+     * @return maximum number of retries of a failed request
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * A request is retried after a 429, and, if it is idempotent, after a 502,
+     * 503, 504 or an I/O error.
+     *
+     * @param maxRetries maximum number of retries of a failed request, 0 to never retry
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * @return delay before the first retry, doubled for each retry after it
+     */
+    public long getRetryBaseDelayMillis() {
+        return retryBaseDelayMillis;
+    }
+
+    /**
+     * The actual delay is between half and all of it, so that clients failing
+     * together do not retry together.
+     *
+     * @param retryBaseDelayMillis delay before the first retry, doubled for each retry after it
+     */
+    public void setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+        checkPositive("retryBaseDelayMillis", retryBaseDelayMillis);
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+    }
+
+    /**
+     * @return maximum delay before a retry
+     */
+    public long getRetryMaxDelayMillis() {
+        return retryMaxDelayMillis;
+    }
+
+    /**
+     * A request the API asks to retry later than this fails instead.
+     *
+     * @param retryMaxDelayMillis maximum delay before a retry
+     */
+    public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+        checkPositive("retryMaxDelayMillis", retryMaxDelayMillis);
+        this.retryMaxDelayMillis = retryMaxDelayMillis;
+    }
+
+    /**
+     * @return maximum number of requests per second, 0 when there is no limit
+     */
+    public double getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    /**
+     * Requests over the limit wait for their turn. The limit applies to all
+     * the requests of the client, retries included.
+     *
+     * @param maxRequestsPerSecond maximum number of requests per second, 0 for no limit
+     */
+    public void setMaxRequestsPerSecond(double maxRequestsPerSecond) {
+        if (!(maxRequestsPerSecond >= 0) || Double.isInfinite(maxRequestsPerSecond)) {
+            throw new IllegalArgumentException("maxRequestsPerSecond must be zero or more: " + maxRequestsPerSecond);
+        }
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+
+    /**
+     * @return number of requests that can go over the rate limit after the client has been idle
+     */
+    public int getMaxRequestBurst() {
+        return maxRequestBurst;
+    }
+
+    /**
+     * @param maxRequestBurst number of requests that can go over the rate limit after the client has been idle
+     */
+    public void setMaxRequestBurst(int maxRequestBurst) {
+        checkPositive("maxRequestBurst", maxRequestBurst);
+        this.maxRequestBurst = maxRequestBurst;
+    }
+
+    /**
+     * @return maximum number of articles held by the listing cache, 0 when it is off
+     */
+    public int getMaxCachedArticles() {
+        return maxCachedArticles;
+    }
+
+    /**
+     * Turn on the cache of article listings, used by
+     * {@link FigShareClient#articles()} and
+     * {@link FigShareClient#articles(int, int)}. Listings are evicted least
+     * recently used first once the cache holds more articles than this.
+     *
+     * @param maxCachedArticles maximum number of articles held by the listing cache, 0 to turn it off
+     */
+    public void setMaxCachedArticles(int maxCachedArticles) {
+        if (maxCachedArticles < 0) {
+            throw new IllegalArgumentException("maxCachedArticles must not be negative: " + maxCachedArticles);
+        }
+        this.maxCachedArticles = maxCachedArticles;
+    }
+
+    /**
+     * @return time to live of cached listings without validators
+     */
+    public long getArticleCacheTtlMillis() {
+        return articleCacheTtlMillis;
+    }
+
+    /**
+     * Listings the server sent with an ETag or Last-Modified header are
+     * revalidated each time instead.
+     *
+     * @param articleCacheTtlMillis time to live of cached listings without validators
+     */
+    public void setArticleCacheTtlMillis(long articleCacheTtlMillis) {
+        checkPositive("articleCacheTtlMillis", articleCacheTtlMillis);
+        this.articleCacheTtlMillis = articleCacheTtlMillis;
+    }
+
+    /**
+     * @return directory of the cached listings on disk, or <code>null</code> if they are kept in memory only
+     */
+    public File getArticleCacheDirectory() {
+        return articleCacheDirectory;
+    }
+
+    /**
+     * Keep cached listings on disk too, so they survive restarts. The
+     * directory may be shared by clients of different users.
+     *
+     * @param articleCacheDirectory directory of the cached listings on disk, or <code>null</code> to keep them in memory only
+     */
+    public void setArticleCacheDirectory(File articleCacheDirectory) {
+        this.articleCacheDirectory = articleCacheDirectory;
+    }
+
+    /**
+     * @return where the client reports its metrics
+     */
+    public FigShareMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Defaults to {@link NoMetrics}, which records nothing. Use
+     * {@link org.biouno.figshare.metrics.InMemoryMetrics} to keep them in
+     * memory, or an implementation of your own to send them elsewhere.
+     *
+     * @param metrics where the client reports its metrics
+     */
+    public void setMetrics(FigShareMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("metrics must not be null");
+        }
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return interceptors of the calls, in the order they are called
+     */
+    public List<RequestInterceptor> getInterceptors() {
+        return Collections.unmodifiableList(interceptors);
+    }
+
+    /**
+     * Add an interceptor of the calls, called after those added before it.
+     *
+     * @param interceptor interceptor of the calls
+     */
+    public void addInterceptor(RequestInterceptor interceptor) {
+        if (interceptor == null) {
+            throw new IllegalArgumentException("interceptor must not be null");
+        }
+        interceptors.add(interceptor);
+    }
+
+    /**
+     * @return calls slower than this are logged, 0 when the log is off
+     */
+    public long getSlowCallThresholdMillis() {
+        return slowCallThresholdMillis;
+    }
+
+    /**
+     * Log the calls slower than this, with the time of each phase, with a
+     * {@link SlowCallLogger} called after the other interceptors.
+     *
+     * @param slowCallThresholdMillis calls slower than this are logged, 0 to turn the log off
+     */
+    public void setSlowCallThresholdMillis(long slowCallThresholdMillis) {
+        if (slowCallThresholdMillis < 0) {
+            throw new IllegalArgumentException("slowCallThresholdMillis must not be negative: "
+                    + slowCallThresholdMillis);
+        }
+        this.slowCallThresholdMillis = slowCallThresholdMillis;
+    }
+
+    private static void checkPositive(String name, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be greater than zero: " + value);
+        }
+    }
+
+}
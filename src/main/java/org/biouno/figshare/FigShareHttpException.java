@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+/**
+ * {@link FigShareClient} exception for a request the API answered with an
+ * error status.
+ *
+ * @since 0.2
+ */
+public class FigShareHttpException extends FigShareClientException {
+
+    /*
+     * Serial UID.
+     */
+    private static final long serialVersionUID = -3187407920583216410L;
+
+    /**
+     * HTTP status code.
+     */
+    private final int statusCode;
+
+    /**
+     * Delay the API asked for before the next request, or -1.
+     */
+    private final long retryAfterMillis;
+
+    /**
+     * Constructor.
+     * @param message message
+     * @param statusCode HTTP status code
+     * @param retryAfterMillis delay the API asked for before the next request, or -1
+     */
+    public FigShareHttpException(String message, int statusCode, long retryAfterMillis) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return the HTTP status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the delay the API asked for with a <code>Retry-After</code> header, or -1 if it did not
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+}
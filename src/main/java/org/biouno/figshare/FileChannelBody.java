@@ -0,0 +1,126 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+/**
+ * A multipart body part with the content of a file, read with positional
+ * {@link FileChannel} reads into a large buffer that each thread reuses,
+ * instead of a new small buffer per upload like
+ * {@link org.apache.http.entity.mime.content.FileBody}. That means fewer
+ * system calls and no garbage per upload.
+ *
+ * <p>HttpClient writes requests to a stream, not to the socket channel, so
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * cannot hand the file to the socket without a copy here; through a stream it
+ * would only add buffers of its own.</p>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class FileChannelBody extends AbstractContentBody {
+
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    /**
+     * Buffer of each uploading thread, reused for every file.
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    };
+
+    private final File file;
+
+    /**
+     * Constructor.
+     *
+     * @param file file
+     */
+    FileChannelBody(File file) {
+        super(ContentType.DEFAULT_BINARY);
+        this.file = file;
+    }
+
+    @Override
+    public String getFilename() {
+        return file.getName();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        transfer(file, 0L, file.length(), out);
+    }
+
+    @Override
+    public String getTransferEncoding() {
+        return "binary";
+    }
+
+    @Override
+    public long getContentLength() {
+        return file.length();
+    }
+
+    /**
+     * Send a region of a file to a stream.
+     *
+     * @param file file
+     * @param offset offset of the region
+     * @param length length of the region
+     * @param out target stream
+     * @throws IOException if the file is shorter than the region, or cannot be read or sent
+     */
+    static void transfer(File file, long offset, long length, OutputStream out) throws IOException {
+        final ByteBuffer buffer = BUFFER.get();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = offset;
+            final long end = offset + length;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                final int read = channel.read(buffer, position);
+                if (read == -1) {
+                    throw new IOException("File " + file + " is shorter than expected");
+                }
+                out.write(buffer.array(), 0, read);
+                position += read;
+            }
+        }
+        out.flush();
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helpers for the files the client keeps on disk: journals, caches, sync
+ * states and search indexes.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class LocalFiles {
+
+    /**
+     * Writes the content of a file.
+     */
+    interface Content {
+
+        /**
+         * @param out stream of the file, closed by the caller
+         * @throws IOException if the content cannot be written
+         */
+        void writeTo(OutputStream out) throws IOException;
+
+    }
+
+    private LocalFiles() {
+    }
+
+    /**
+     * Write a file whole: the content goes to a temporary file of its own,
+     * next to the file, that is then renamed over it. So a crash never leaves
+     * a half-written file, and concurrent writers never share a temporary
+     * file; the last rename wins.
+     *
+     * @param file file to write
+     * @param content content of the file
+     * @throws IOException if the file cannot be written
+     */
+    static void write(File file, Content content) throws IOException {
+        final File temporary = File.createTempFile("." + file.getName() + "-", ".tmp",
+                file.getAbsoluteFile().getParentFile());
+        try {
+            try (OutputStream out = new FileOutputStream(temporary)) {
+                content.writeTo(out);
+            }
+            replace(temporary, file);
+        } finally {
+            if (temporary.exists()) {
+                temporary.delete();
+            }
+        }
+    }
+
+    /**
+     * Rename a file over another, deleting the other first where renaming
+     * does not replace files.
+     *
+     * @param from file to rename
+     * @param to file to replace
+     * @throws IOException if the file cannot be renamed
+     */
+    static void replace(File from, File to) throws IOException {
+        if (!from.renameTo(to)) {
+            if (!to.delete() || !from.renameTo(to)) {
+                throw new IOException("Failed to rename " + from + " to " + to);
+            }
+        }
+    }
+
+    /**
+     * @param value text
+     * @return the MD5 of the text in UTF-8, in hex
+     */
+    static String md5(String value) {
+        return hex(newDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param file file
+     * @return the MD5 of the content of the file, in hex
+     * @throws IOException if the file cannot be read
+     */
+    static String md5(File file) throws IOException {
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has MD5
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        final char[] digits = "0123456789abcdef".toCharArray();
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = digits[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = digits[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+/**
+ * The operations of the API, as seen by the {@link RequestExecutor}. Only
+ * idempotent operations are retried after a failure that may have reached
+ * the server, and uploads and downloads each run in a bulkhead of their own,
+ * apart from the metadata requests.
+ *
+ * @since 0.2
+ */
+enum Operation {
+
+    LIST_ARTICLES("articles", true, false, false),
+    GET_ARTICLE("article", true, false, false),
+    CREATE_ARTICLE("createArticle", false, false, false),
+    UPLOAD_FILE("uploadFile", false, true, false),
+    UPLOAD_CHUNK("uploadFileResumable", true, true, false),
+    DOWNLOAD_FILE("downloadFile", true, false, true);
+
+    private final String name;
+    private final boolean idempotent;
+    private final boolean upload;
+    private final boolean download;
+
+    private Operation(String name, boolean idempotent, boolean upload, boolean download) {
+        this.name = name;
+        this.idempotent = idempotent;
+        this.upload = upload;
+        this.download = download;
+    }
+
+    /**
+     * @return the name of the operation in metrics, after the method of the client
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return whether the operation can be sent again without changing its outcome
+     */
+    boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * @return whether the operation sends file content
+     */
+    boolean isUpload() {
+        return upload;
+    }
+
+    /**
+     * @return whether the operation receives file content
+     */
+    boolean isDownload() {
+        return download;
+    }
+
+}
@@ -0,0 +1,505 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+
+/**
+ * Downloads a file in ranges, one GET per range with a <code>Range</code>
+ * header, several ranges at the same time, each written where it belongs in
+ * a pre-allocated partial file with positional {@link FileChannel} writes.
+ * The partial file is renamed to the target once all of its ranges are
+ * written and its size is verified.
+ *
+ * <p>The first range is also the probe: a 206 response says how large the
+ * file is, and the remaining ranges are shared between the calling thread and
+ * up to <code>segmentConcurrency - 1</code> free worker threads. A server that
+ * ignores ranges answers with the whole file, which is then written as it
+ * comes.</p>
+ *
+ * <p>Each range written is recorded in a {@link DownloadJournal} next to the
+ * partial file, and the next download of the same URL to the same target
+ * requests only the ranges that are missing, with an <code>If-Range</code>
+ * header, so that content changed in between is downloaded again from the
+ * start.</p>
+ *
+ * <p>#Not-Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class RangedDownload {
+
+    private static final int BUFFER_SIZE = 128 * 1024;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+
+    /**
+     * Buffer of each downloading thread, reused for every range.
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    };
+
+    private final FigShareClient client;
+    private final ExecutorService executor;
+    private final org.biouno.figshare.v1.model.File file;
+    private final String url;
+    private final File target;
+    private final File partFile;
+    private final File journalFile;
+    private final long segmentSize;
+    private final int segmentConcurrency;
+
+    /**
+     * Constructor.
+     *
+     * @param client client, to sign and send the requests
+     * @param executor worker threads, to download ranges in parallel
+     * @param file file to download, with its download URL
+     * @param target where to write the file
+     * @param segmentSize size of the ranges
+     * @param segmentConcurrency number of ranges downloaded at the same time
+     */
+    RangedDownload(FigShareClient client, ExecutorService executor, org.biouno.figshare.v1.model.File file,
+            File target, long segmentSize, int segmentConcurrency) {
+        this.client = client;
+        this.executor = executor;
+        this.file = file;
+        this.url = file.getDownloadUrl();
+        this.target = target;
+        this.partFile = new File(target.getPath() + ".part");
+        this.journalFile = new File(target.getPath() + ".part.properties");
+        this.segmentSize = segmentSize;
+        this.segmentConcurrency = segmentConcurrency;
+    }
+
+    /**
+     * Download the file, resuming a previous download of it if there is one.
+     *
+     * @return number of bytes downloaded
+     * @throws IOException if a range fails, leaving what was written so far to
+     *         resume from, or if the file does not have the expected size
+     */
+    long download() throws IOException {
+        final DownloadJournal journal = DownloadJournal.open(journalFile, url, segmentSize);
+        if (journal != null && partFile.length() == journal.getSize()) {
+            try {
+                final FileChannel channel = new RandomAccessFile(partFile, "rw").getChannel();
+                try {
+                    new Segments(journal, channel).download();
+                    channel.force(false);
+                } finally {
+                    channel.close();
+                }
+                return complete(journal.getSize(), journal.getSize());
+            } catch (ContentChangedException e) {
+                // the ranges written before do not belong to this content any more
+            }
+        }
+        discard();
+        return probe();
+    }
+
+    /**
+     * Request the first range, to learn the size of the file, and download
+     * the rest.
+     */
+    private long probe() throws IOException {
+        final HttpGet request = new HttpGet(url);
+        request.setHeader(HttpHeaders.RANGE, "bytes=0-" + (segmentSize - 1));
+        long size = 0L;
+        FileChannel channel = null;
+        DownloadJournal journal = null;
+        final RequestTrace trace = client.startTrace(Operation.DOWNLOAD_FILE);
+        try {
+            CloseableHttpResponse response = null;
+            try {
+                response = client.execute(Operation.DOWNLOAD_FILE, request, trace);
+            } catch (FigShareHttpException e) {
+                if (e.getStatusCode() != HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                    throw e;
+                }
+                // no byte to ask a range of: the file is empty
+            }
+            if (response != null) {
+                try {
+                    if (response.getStatusLine().getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT) {
+                        return write(response.getEntity());
+                    }
+                    final long[] range = contentRange(response, 0L);
+                    size = range[2];
+                    final long length = range[1] + 1;
+                    if (length != Math.min(segmentSize, size)) {
+                        throw new IOException("Expected the first " + Math.min(segmentSize, size)
+                                + " bytes, but got " + length + " bytes");
+                    }
+                    channel = allocate(size);
+                    if (size > segmentSize) {
+                        journal = DownloadJournal.create(journalFile, url, size, segmentSize, validator(response));
+                    }
+                    if (copy(response.getEntity(), channel, 0L, length) != length) {
+                        throw new IOException("Expected " + length + " bytes at offset 0");
+                    }
+                } finally {
+                    response.close();
+                }
+            }
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        } finally {
+            trace.finish();
+        }
+        if (channel == null) {
+            return whole();
+        }
+        try {
+            if (journal != null) {
+                journal.complete(0);
+                new Segments(journal, channel).download();
+            }
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+        return complete(size, size);
+    }
+
+    /**
+     * Download the whole file with one request, without ranges.
+     */
+    private long whole() throws IOException {
+        final RequestTrace trace = client.startTrace(Operation.DOWNLOAD_FILE);
+        try {
+            final CloseableHttpResponse response = client.execute(Operation.DOWNLOAD_FILE, new HttpGet(url), trace);
+            try {
+                return write(response.getEntity());
+            } finally {
+                response.close();
+            }
+        } finally {
+            trace.finish();
+        }
+    }
+
+    /**
+     * Write a response with the whole file, as it comes.
+     */
+    private long write(HttpEntity entity) throws IOException {
+        final long written;
+        final FileChannel channel = new RandomAccessFile(partFile, "rw").getChannel();
+        try {
+            channel.truncate(0L);
+            written = entity != null ? copy(entity, channel, 0L, Long.MAX_VALUE) : 0L;
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+        final long expected = entity != null && entity.getContentLength() >= 0 ? entity.getContentLength() : written;
+        return complete(expected, written);
+    }
+
+    /**
+     * Create the partial file with its final size, so that ranges can be
+     * written in any order.
+     */
+    private FileChannel allocate(long size) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(partFile, "rw");
+        try {
+            file.setLength(size);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        return file.getChannel();
+    }
+
+    /**
+     * Verify the size of the partial file, and move it to the target.
+     *
+     * @param expected number of bytes the server said it would send
+     * @param written number of bytes written
+     * @return number of bytes written
+     */
+    private long complete(long expected, long written) throws IOException {
+        if (written != expected) {
+            discard();
+            throw new IOException("Expected " + expected + " bytes of " + url + ", but got " + written);
+        }
+        if (!file.isSize(written)) {
+            discard();
+            throw new IOException("Expected " + file.getSize() + " of " + url + ", but got " + written + " bytes");
+        }
+        LocalFiles.replace(partFile, target);
+        journalFile.delete();
+        return written;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            FigShareClient.closeQuietly(channel);
+        }
+    }
+
+    private void discard() {
+        partFile.delete();
+        journalFile.delete();
+    }
+
+    /**
+     * Copy a response body to the partial file with positional writes.
+     *
+     * @param entity response body
+     * @param channel partial file
+     * @param position where the body goes in the file
+     * @param maxLength largest number of bytes expected
+     * @return number of bytes copied
+     * @throws IOException if the body cannot be read, or is longer than expected
+     */
+    private static long copy(HttpEntity entity, FileChannel channel, long position, long maxLength)
+            throws IOException {
+        final ByteBuffer buffer = BUFFER.get();
+        final byte[] bytes = buffer.array();
+        long copied = 0L;
+        final InputStream in = entity.getContent();
+        try {
+            int read;
+            while ((read = in.read(bytes)) != -1) {
+                if (copied + read > maxLength) {
+                    throw new IOException("Expected at most " + maxLength + " bytes at offset " + position);
+                }
+                buffer.clear();
+                buffer.limit(read);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + copied + buffer.position());
+                }
+                copied += read;
+            }
+        } finally {
+            in.close();
+        }
+        return copied;
+    }
+
+    /**
+     * @return the first byte, the last byte and the size from the
+     *         <code>Content-Range</code> of a 206 response
+     * @throws IOException if the range is missing, unknown or not at the expected offset
+     */
+    private static long[] contentRange(CloseableHttpResponse response, long start) throws IOException {
+        final Header header = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+        final Matcher matcher = header != null ? CONTENT_RANGE.matcher(header.getValue()) : null;
+        if (matcher == null || !matcher.find() || "*".equals(matcher.group(3))) {
+            throw new IOException("Partial response without a known Content-Range: "
+                    + (header != null ? header.getValue() : null));
+        }
+        final long[] range = new long[] { Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)),
+                Long.parseLong(matcher.group(3)) };
+        if (range[0] != start || range[1] < range[0] || range[1] >= range[2]) {
+            throw new IOException("Expected a range from byte " + start + ", but got " + header.getValue());
+        }
+        return range;
+    }
+
+    /**
+     * @return a strong <code>ETag</code>, or else the
+     *         <code>Last-Modified</code> date, to ask for the rest of the same
+     *         content with <code>If-Range</code>; or <code>null</code>
+     */
+    private static String validator(CloseableHttpResponse response) {
+        final Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+        if (etag != null && !etag.getValue().startsWith("W/")) {
+            return etag.getValue();
+        }
+        final Header lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+        return lastModified != null ? lastModified.getValue() : null;
+    }
+
+    /**
+     * The server answered a range request with other content than the ranges
+     * written before.
+     */
+    private static final class ContentChangedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        ContentChangedException(String message) {
+            super(message);
+        }
+
+    }
+
+    /**
+     * The ranges of one download that are not written yet. The calling
+     * thread and the helping worker threads take the next range until there
+     * is none left, so the download completes even when no worker thread is
+     * free, and stops taking ranges after the first failure.
+     */
+    private final class Segments implements Runnable {
+
+        private final DownloadJournal journal;
+        private final FileChannel channel;
+        private int next;
+        private int inFlight;
+        private Exception failure;
+
+        Segments(DownloadJournal journal, FileChannel channel) {
+            this.journal = journal;
+            this.channel = channel;
+        }
+
+        /**
+         * Download the ranges not written yet, with the help of free worker
+         * threads, and wait for the helpers.
+         */
+        void download() throws IOException {
+            for (int i = 1; i < segmentConcurrency; i++) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // no worker to spare, this thread does the work
+                    break;
+                }
+            }
+            work();
+            synchronized (this) {
+                while (inFlight > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        failure = new InterruptedIOException("Interrupted while downloading " + url);
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                }
+                if (failure != null) {
+                    throw (RuntimeException) failure;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            work();
+        }
+
+        private void work() {
+            int segment;
+            while ((segment = claim()) >= 0) {
+                try {
+                    fetch(segment);
+                } catch (IOException e) {
+                    failed(e);
+                } catch (RuntimeException e) {
+                    failed(e);
+                } finally {
+                    synchronized (this) {
+                        inFlight--;
+                        notifyAll();
+                    }
+                }
+            }
+        }
+
+        private synchronized int claim() {
+            while (failure == null && next < journal.getSegments()) {
+                final int segment = next++;
+                if (!journal.isComplete(segment)) {
+                    inFlight++;
+                    return segment;
+                }
+            }
+            return -1;
+        }
+
+        private synchronized void failed(Exception e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        private void fetch(int segment) throws IOException {
+            final long size = journal.getSize();
+            final long start = segment * segmentSize;
+            final long length = Math.min(segmentSize, size - start);
+            final HttpGet request = new HttpGet(url);
+            request.setHeader(HttpHeaders.RANGE, "bytes=" + start + "-" + (start + length - 1));
+            if (journal.getValidator() != null) {
+                request.setHeader(HttpHeaders.IF_RANGE, journal.getValidator());
+            }
+            final RequestTrace trace = client.startTrace(Operation.DOWNLOAD_FILE);
+            try {
+                final CloseableHttpResponse response = client.execute(Operation.DOWNLOAD_FILE, request, trace);
+                try {
+                    final int status = response.getStatusLine().getStatusCode();
+                    if (status != HttpStatus.SC_PARTIAL_CONTENT) {
+                        throw new ContentChangedException("Range at offset " + start + " answered with HTTP "
+                                + status);
+                    }
+                    final long[] range = contentRange(response, start);
+                    if (range[2] != size) {
+                        throw new ContentChangedException("Expected " + size + " bytes in total, but the server has "
+                                + range[2]);
+                    }
+                    if (range[1] - range[0] + 1 != length
+                            || copy(response.getEntity(), channel, start, length) != length) {
+                        throw new IOException("Expected " + length + " bytes at offset " + start);
+                    }
+                } finally {
+                    response.close();
+                }
+            } finally {
+                trace.finish();
+            }
+            journal.complete(segment);
+        }
+
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side token bucket. Each request takes a token, tokens come back at a
+ * steady rate, and up to <code>burst</code> of them can be saved while the
+ * client is idle. A request without a token waits for its turn, so a bulk job
+ * runs at the limit instead of going over it.
+ *
+ * <p>The API can also ask the whole client to hold off for a while (a 429
+ * with <code>Retry-After</code>), which {@link #pause(long)} applies to every
+ * request, limited or not.</p>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class RateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+    /**
+     * Nanoseconds per token, or 0 if unlimited.
+     */
+    private final double interval;
+    private final double burst;
+    private double tokens;
+    private long refilled;
+    private long pausedUntil;
+
+    /**
+     * @param permitsPerSecond tokens per second, or 0 for no limit
+     * @param burst maximum number of tokens saved while idle
+     */
+    RateLimiter(double permitsPerSecond, int burst) {
+        this.interval = permitsPerSecond > 0 ? NANOS_PER_SECOND / permitsPerSecond : 0;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.refilled = System.nanoTime();
+        this.pausedUntil = refilled;
+    }
+
+    /**
+     * Take a token, waiting for one if there is none left.
+     *
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    void acquire() throws InterruptedIOException {
+        final long wait = reserve(System.nanoTime());
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+            }
+        }
+    }
+
+    /**
+     * Hold off every request for a while.
+     *
+     * @param millis how long
+     */
+    synchronized void pause(long millis) {
+        pausedUntil = Math.max(pausedUntil, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Take a token, possibly one that is not there yet, so that the waiting
+     * happens outside the lock.
+     *
+     * @param now current time, in nanoseconds
+     * @return how long to wait for the token
+     */
+    synchronized long reserve(long now) {
+        long wait = pausedUntil - now;
+        if (interval > 0) {
+            tokens = Math.min(burst, tokens + (now - refilled) / interval);
+            refilled = now;
+            tokens -= 1;
+            if (tokens < 0) {
+                wait = Math.max(wait, (long) (-tokens * interval));
+            }
+        }
+        return Math.max(0L, wait);
+    }
+
+}
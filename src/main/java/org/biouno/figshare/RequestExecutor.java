@@ -0,0 +1,437 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.biouno.figshare.RequestTrace.Phase;
+import org.biouno.figshare.metrics.ErrorCause;
+import org.biouno.figshare.metrics.FigShareMetrics;
+import org.biouno.figshare.metrics.NoMetrics;
+
+/**
+ * Signs and sends every request of the client. It waits for the rate limiter
+ * before each request, and classifies the responses: a 2xx or 3xx response is
+ * returned, anything else becomes a {@link FigShareHttpException}.
+ *
+ * <p>Each operation has a {@link CircuitBreaker}, opened by I/O errors and
+ * 5xx responses, and uploads, downloads and metadata requests each have a
+ * {@link Bulkhead}, held while the request is sent and until the response
+ * headers arrive.</p>
+ *
+ * <p>Each attempt is reported to the {@link FigShareMetrics} of the client,
+ * and timed into the {@link RequestTrace} of the call, which the
+ * {@link RequestInterceptor}s of the client get before each attempt and once
+ * the call finishes.</p>
+ *
+ * <p>Failures that are likely to go away are retried, with an exponential
+ * backoff with jitter, or after the delay the API asked for with
+ * <code>Retry-After</code>:</p>
+ *
+ * <ul>
+ * <li>a 429, for any operation, as the API did not process the request;</li>
+ * <li>a 502, 503 or 504, or an I/O error, for idempotent operations.</li>
+ * </ul>
+ *
+ * <p>Requests are signed again before each attempt, with a new nonce and
+ * timestamp.</p>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class RequestExecutor {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int MAX_ERROR_LENGTH = 512;
+    private static final long POOL_SAMPLE_INTERVAL = TimeUnit.SECONDS.toNanos(1L);
+
+    private final CloseableHttpClient httpClient;
+    private final OAuthSigner signer;
+    private final RateLimiter rateLimiter;
+    private final int maxRetries;
+    private final long retryBaseDelayMillis;
+    private final long retryMaxDelayMillis;
+    private final Map<Operation, CircuitBreaker> circuitBreakers = new EnumMap<>(Operation.class);
+    private final Bulkhead uploads;
+    private final Bulkhead downloads;
+    private final Bulkhead metadata;
+    private final FigShareMetrics metrics;
+    private final ConnPoolControl<HttpRoute> connectionPool;
+    private final List<RequestInterceptor> interceptors;
+    /**
+     * When the connection pool was last sampled. Racy, at worst it is
+     * sampled twice.
+     */
+    private volatile long lastPoolSample;
+
+    /**
+     * Constructor.
+     *
+     * @param httpClient HTTP client, without retries of its own
+     * @param connectionPool connection pool of the HTTP client, to sample its stats
+     * @param signer OAuth signer, to sign the requests
+     * @param endpoint API endpoint, for error messages
+     * @param configuration client configuration
+     */
+    RequestExecutor(CloseableHttpClient httpClient, ConnPoolControl<HttpRoute> connectionPool,
+            OAuthSigner signer, String endpoint, FigShareClientConfiguration configuration) {
+        this.httpClient = httpClient;
+        this.connectionPool = connectionPool;
+        this.metrics = configuration.getMetrics();
+        this.lastPoolSample = System.nanoTime() - POOL_SAMPLE_INTERVAL;
+        this.signer = signer;
+        this.rateLimiter = new RateLimiter(configuration.getMaxRequestsPerSecond(),
+                configuration.getMaxRequestBurst());
+        this.maxRetries = configuration.getMaxRetries();
+        this.retryBaseDelayMillis = configuration.getRetryBaseDelayMillis();
+        this.retryMaxDelayMillis = configuration.getRetryMaxDelayMillis();
+        for (Operation operation : Operation.values()) {
+            circuitBreakers.put(operation, new CircuitBreaker(operation + " at " + endpoint,
+                    configuration.getCircuitBreakerFailureThreshold(), configuration.getCircuitBreakerOpenMillis()));
+        }
+        final List<RequestInterceptor> interceptors = new ArrayList<>(configuration.getInterceptors());
+        if (configuration.getSlowCallThresholdMillis() > 0) {
+            interceptors.add(new SlowCallLogger(configuration.getSlowCallThresholdMillis()));
+        }
+        this.interceptors = Collections.unmodifiableList(interceptors);
+        this.uploads = new Bulkhead("uploads", configuration.getMaxConcurrentUploads(),
+                configuration.getConnectionRequestTimeoutMillis());
+        // downloads hold their place while the content streams, which takes as
+        // long as it takes, so they queue for a place instead of timing out
+        this.downloads = new Bulkhead("downloads", configuration.getMaxConcurrentDownloads(), Long.MAX_VALUE);
+        this.metadata = new Bulkhead("metadata requests", configuration.getMaxConcurrentMetadataRequests(),
+                configuration.getConnectionRequestTimeoutMillis());
+    }
+
+    /**
+     * @param operation API operation
+     * @return the circuit breaker of the operation
+     */
+    CircuitBreaker getCircuitBreaker(Operation operation) {
+        return circuitBreakers.get(operation);
+    }
+
+    /**
+     * Start the trace of a call. The caller must finish it.
+     *
+     * @param operation API operation of the call
+     * @return a new trace
+     */
+    RequestTrace startTrace(Operation operation) {
+        return new RequestTrace(operation.getName(), interceptors);
+    }
+
+    /**
+     * @return whether there are interceptors to trace the calls for
+     */
+    boolean isTracing() {
+        return !interceptors.isEmpty();
+    }
+
+    /**
+     * Sign a request with the OAuth credentials of the client, replacing any
+     * previous signature.
+     *
+     * @param request HTTP request
+     */
+    void sign(HttpRequestBase request) {
+        signer.sign(request);
+    }
+
+    /**
+     * Sign and send a request, retrying it if it failed and can be retried.
+     * The caller must close the response, so that the connection goes back to
+     * the pool.
+     *
+     * @param operation API operation of the request
+     * @param request HTTP request
+     * @param trace trace of the call, which records any failure
+     * @return a 2xx or 3xx HTTP response
+     * @throws FigShareHttpException if the API answered with an error status
+     * @throws FigShareCircuitOpenException if the circuit breaker of the operation is open
+     * @throws IOException if the request fails
+     */
+    CloseableHttpResponse execute(Operation operation, HttpRequestBase request, RequestTrace trace)
+            throws IOException {
+        try {
+            return attempt(operation, request, trace);
+        } catch (IOException e) {
+            trace.failed(e);
+            throw e;
+        } catch (RuntimeException e) {
+            trace.failed(e);
+            throw e;
+        }
+    }
+
+    private CloseableHttpResponse attempt(Operation operation, HttpRequestBase request, RequestTrace trace)
+            throws IOException {
+        final CircuitBreaker circuitBreaker = circuitBreakers.get(operation);
+        final Bulkhead bulkhead = operation.isUpload() ? uploads : operation.isDownload() ? downloads : metadata;
+        final String name = operation.getName();
+        int attempt = 0;
+        while (true) {
+            if (attempt > 0) {
+                metrics.requestRetried(name);
+            }
+            // fail fast while the circuit is open, before waiting on anything
+            try {
+                circuitBreaker.allow(currentMillis());
+            } catch (FigShareCircuitOpenException e) {
+                metrics.requestFailed(name, ErrorCause.CIRCUIT_OPEN);
+                throw e;
+            }
+            try {
+                prepare(bulkhead, name, request, trace);
+            } catch (IOException e) {
+                circuitBreaker.cancel();
+                throw e;
+            } catch (RuntimeException e) {
+                circuitBreaker.cancel();
+                throw e;
+            }
+            CloseableHttpResponse response = null;
+            IOException failure = null;
+            long latency = 0L;
+            try {
+                final HttpClientContext context = HttpClientContext.create();
+                context.setAttribute(RequestTrace.CONTEXT_ATTRIBUTE, trace);
+                trace.sending();
+                final long start = System.nanoTime();
+                try {
+                    // the response keeps the place until its content is read or it is closed
+                    response = new BulkheadResponse(httpClient.execute(request, context), bulkhead);
+                    latency = System.nanoTime() - start;
+                } catch (IOException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    circuitBreaker.onFailure(currentMillis());
+                    throw e;
+                }
+            } finally {
+                if (response == null) {
+                    bulkhead.release();
+                }
+            }
+            if (failure != null) {
+                circuitBreaker.onFailure(currentMillis());
+                metrics.requestFailed(name, isTimeout(failure) ? ErrorCause.TIMEOUT : ErrorCause.IO);
+                if (!operation.isIdempotent() || !canRetry(request, attempt)) {
+                    throw failure;
+                }
+                sleep(backoff(attempt++), trace);
+                continue;
+            }
+            final int status = response.getStatusLine().getStatusCode();
+            trace.responded(status);
+            if (status >= HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+                circuitBreaker.onFailure(currentMillis());
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            if (metrics != NoMetrics.INSTANCE) {
+                record(name, request, status, latency);
+            }
+            if ((metrics != NoMetrics.INSTANCE || isTracing()) && response.getEntity() != null) {
+                response.setEntity(new CountingEntity(response.getEntity(), metrics, name,
+                        isTracing() ? trace : null));
+            }
+            if (status < HttpStatus.SC_BAD_REQUEST) {
+                return response;
+            }
+            metrics.requestFailed(name, status == TOO_MANY_REQUESTS ? ErrorCause.RATE_LIMITED
+                    : status >= HttpStatus.SC_INTERNAL_SERVER_ERROR ? ErrorCause.SERVER_ERROR : ErrorCause.CLIENT_ERROR);
+            final long retryAfter;
+            final String error;
+            try {
+                retryAfter = retryAfterMillis(response.getFirstHeader(HttpHeaders.RETRY_AFTER));
+                error = readError(response.getEntity());
+            } finally {
+                response.close();
+            }
+            if (status == TOO_MANY_REQUESTS) {
+                // hold off the other requests of the client too
+                rateLimiter.pause(retryAfter >= 0 ? retryAfter : retryBaseDelayMillis);
+            }
+            if (isRetryable(operation, status) && canRetry(request, attempt) && retryAfter <= retryMaxDelayMillis) {
+                sleep(retryAfter >= 0 ? retryAfter : backoff(attempt), trace);
+                attempt++;
+                continue;
+            }
+            throw new FigShareHttpException("HTTP " + status + " " + response.getStatusLine().getReasonPhrase()
+                    + (error.isEmpty() ? "" : ": " + error), status, retryAfter);
+        }
+    }
+
+    /**
+     * Wait for the rate limiter, sign the request and take a place in the
+     * bulkhead. The caller must release the place.
+     */
+    private void prepare(Bulkhead bulkhead, String name, HttpRequestBase request, RequestTrace trace)
+            throws IOException {
+        long wait = System.nanoTime();
+        rateLimiter.acquire();
+        trace.add(Phase.WAIT, System.nanoTime() - wait);
+        trace.beforeSend(request);
+        final long signing = System.nanoTime();
+        sign(request);
+        trace.add(Phase.SIGN, System.nanoTime() - signing);
+        wait = System.nanoTime();
+        try {
+            bulkhead.acquire();
+        } catch (FigShareClientException e) {
+            metrics.requestFailed(name, ErrorCause.BULKHEAD_FULL);
+            throw e;
+        } finally {
+            trace.add(Phase.WAIT, System.nanoTime() - wait);
+        }
+    }
+
+    /**
+     * Record a response, and sample the connection pool now and then.
+     */
+    private void record(String name, HttpRequestBase request, int status, long latency) {
+        metrics.requestCompleted(name, status, latency);
+        if (request instanceof HttpEntityEnclosingRequest) {
+            final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity != null && entity.getContentLength() >= 0) {
+                metrics.bytesSent(name, entity.getContentLength());
+            }
+        }
+        final long now = System.nanoTime();
+        if (now - lastPoolSample >= POOL_SAMPLE_INTERVAL) {
+            lastPoolSample = now;
+            final PoolStats stats = connectionPool.getTotalStats();
+            metrics.connectionPoolSampled(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+        }
+    }
+
+    private static boolean isTimeout(IOException e) {
+        return e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException
+                || e instanceof ConnectionPoolTimeoutException;
+    }
+
+    private static long currentMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private static boolean isRetryable(Operation operation, int status) {
+        switch (status) {
+        case TOO_MANY_REQUESTS:
+            return true;
+        case HttpStatus.SC_BAD_GATEWAY:
+        case HttpStatus.SC_SERVICE_UNAVAILABLE:
+        case HttpStatus.SC_GATEWAY_TIMEOUT:
+            return operation.isIdempotent();
+        default:
+            return false;
+        }
+    }
+
+    private boolean canRetry(HttpRequestBase request, int attempt) {
+        if (attempt >= maxRetries) {
+            return false;
+        }
+        if (request instanceof HttpEntityEnclosingRequest) {
+            final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+        return true;
+    }
+
+    /**
+     * @return a delay between half and all of the exponential backoff, so
+     *         that clients failing together do not retry together
+     */
+    private long backoff(int attempt) {
+        final long ceiling = Math.min(retryMaxDelayMillis, retryBaseDelayMillis << Math.min(attempt, 30));
+        final long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    private static void sleep(long millis, RequestTrace trace) throws InterruptedIOException {
+        final long start = System.nanoTime();
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        } finally {
+            trace.add(Phase.WAIT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return the delay of a <code>Retry-After</code> header, in seconds or as
+     *         a date, or -1 if there is none
+     */
+    static long retryAfterMillis(Header header) {
+        if (header == null) {
+            return -1L;
+        }
+        final String value = header.getValue().trim();
+        try {
+            return Math.max(0L, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            final Date date = DateUtils.parseDate(value);
+            return date != null ? Math.max(0L, date.getTime() - System.currentTimeMillis()) : -1L;
+        }
+    }
+
+    private static String readError(HttpEntity entity) throws IOException {
+        if (entity == null) {
+            return "";
+        }
+        final String error = EntityUtils.toString(entity).trim();
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) + "..." : error;
+    }
+
+}
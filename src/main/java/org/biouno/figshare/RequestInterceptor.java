@@ -0,0 +1,59 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import org.apache.http.HttpRequest;
+
+/**
+ * Hook into the calls of a {@link FigShareClient}, e.g. to propagate a trace
+ * context in the request headers, or to report the phase timings of each
+ * call. Interceptors are called in the order they were added to the
+ * {@link FigShareClientConfiguration}, on the thread making the call.
+ *
+ * <p>Interceptors are shared by all the calls of a client, so they must be
+ * thread-safe, and quick, as they run inside the calls. They should not
+ * throw: an exception fails the call.</p>
+ *
+ * @since 0.2
+ */
+public interface RequestInterceptor {
+
+    /**
+     * Called before each request is signed and sent, retries included.
+     *
+     * @param trace trace of the call, with the phases so far
+     * @param request HTTP request, to which headers may be added
+     */
+    void beforeSend(RequestTrace trace, HttpRequest request);
+
+    /**
+     * Called once when the call finishes, successfully or not. For listings
+     * read one article at a time, that is when the iterator is exhausted or
+     * closed.
+     *
+     * @param trace trace of the call, with all its phases
+     */
+    void afterCall(RequestTrace trace);
+
+}
@@ -0,0 +1,310 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.http.HttpRequest;
+
+/**
+ * Timings of one call of a {@link FigShareClient}, from building its URL to
+ * binding its response, given to the {@link RequestInterceptor}s of the
+ * client. A call is one request, with its retries, or all the chunks of a
+ * resumable upload.
+ *
+ * <p>The time of each {@link Phase} adds up over the retries. The phases
+ * cover the call, except for the client code in between, so their sum is a
+ * little short of {@link #getTotalNanos()}.</p>
+ *
+ * <p>#Not-Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class RequestTrace {
+
+    /**
+     * Phases of a call.
+     */
+    public enum Phase {
+        /**
+         * Building the URL.
+         */
+        URL,
+        /**
+         * Waiting for the rate limiter, for a place among the requests in
+         * flight, and before retries.
+         */
+        WAIT,
+        /**
+         * Signing the request with OAuth.
+         */
+        SIGN,
+        /**
+         * Leasing a connection from the pool, and opening it if needed.
+         */
+        CONNECT,
+        /**
+         * Writing the request, with its body.
+         */
+        SEND,
+        /**
+         * Waiting for the response headers.
+         */
+        FIRST_BYTE,
+        /**
+         * Reading the response body.
+         */
+        BODY,
+        /**
+         * Binding the response body to the model classes.
+         */
+        BINDING
+    }
+
+    /**
+     * Attribute of the HTTP context that holds the trace of a request.
+     */
+    static final String CONTEXT_ATTRIBUTE = RequestTrace.class.getName();
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final String operation;
+    private final List<RequestInterceptor> interceptors;
+    private final long startNanos = System.nanoTime();
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long endNanos = -1L;
+    private long attemptStartNanos;
+    private String method;
+    private String uri;
+    private int attempts = 0;
+    private int statusCode = -1;
+    private Throwable failure;
+    private Map<String, Object> attributes;
+
+    /**
+     * Constructor.
+     *
+     * @param operation operation name
+     * @param interceptors interceptors of the client
+     */
+    RequestTrace(String operation, List<RequestInterceptor> interceptors) {
+        this.operation = operation;
+        this.interceptors = interceptors;
+    }
+
+    /**
+     * @return operation name, as in the metrics (e.g. <code>articles</code>)
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return HTTP method, or <code>null</code> if no request was sent (e.g. the listing was cached)
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return request URI, or <code>null</code> if no request was sent
+     */
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * @return number of requests sent, retries included
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return status code of the last response, or -1 if there was none
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return why the call failed, or <code>null</code> if it did not fail
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * @param phase phase
+     * @return time spent in the phase, in nanoseconds
+     */
+    public long getNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return time since the call started, until it finished if it did, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return (endNanos >= 0 ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    /**
+     * @return whether the call finished
+     */
+    public boolean isFinished() {
+        return endNanos >= 0;
+    }
+
+    /**
+     * @param name attribute name
+     * @return the attribute, or <code>null</code>
+     */
+    public Object getAttribute(String name) {
+        return attributes != null ? attributes.get(name) : null;
+    }
+
+    /**
+     * Keep a value with the trace, e.g. a span started by an interceptor
+     * before the request and ended after the call.
+     *
+     * @param name attribute name
+     * @param value attribute value
+     */
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, value);
+    }
+
+    /**
+     * @return the operation, the request, the outcome and the time of each phase, in milliseconds
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(operation);
+        if (method != null) {
+            sb.append(' ').append(method).append(' ').append(uri);
+        }
+        if (statusCode >= 0) {
+            sb.append(" -> ").append(statusCode);
+        }
+        if (failure != null) {
+            sb.append(" failed: ").append(failure);
+        }
+        sb.append(" in ").append(millis(getTotalNanos())).append(" ms");
+        if (attempts > 1) {
+            sb.append(" after ").append(attempts).append(" attempts");
+        }
+        sb.append(" (");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                sb.append(", ");
+            }
+            sb.append(phase.name().toLowerCase(Locale.ENGLISH)).append(' ').append(millis(getNanos(phase)));
+        }
+        return sb.append(')').toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ENGLISH, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Add time to a phase.
+     *
+     * @param phase phase
+     * @param nanos time, in nanoseconds
+     */
+    void add(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Called before each attempt is signed. Passes the request to the
+     * interceptors, which may add headers to it.
+     *
+     * @param request HTTP request
+     */
+    void beforeSend(HttpRequest request) {
+        attempts++;
+        method = request.getRequestLine().getMethod();
+        uri = request.getRequestLine().getUri();
+        for (RequestInterceptor interceptor : interceptors) {
+            interceptor.beforeSend(this, request);
+        }
+    }
+
+    /**
+     * Called when the request is handed to the HTTP client, which then leases
+     * a connection.
+     */
+    void sending() {
+        attemptStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Called once the HTTP client has a connection, and is about to write the
+     * request.
+     */
+    void connected() {
+        add(Phase.CONNECT, System.nanoTime() - attemptStartNanos);
+    }
+
+    /**
+     * @param statusCode status code of a response
+     */
+    void responded(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @param failure why the call failed
+     */
+    void failed(Throwable failure) {
+        if (this.failure == null) {
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Finish the call, and pass the trace to the interceptors. Only the first
+     * call does anything.
+     */
+    void finish() {
+        if (endNanos >= 0) {
+            return;
+        }
+        endNanos = System.nanoTime();
+        for (RequestInterceptor interceptor : interceptors) {
+            interceptor.afterCall(this);
+        }
+    }
+
+}
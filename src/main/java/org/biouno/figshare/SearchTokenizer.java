@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into search terms: runs of letters and digits, in lower case
+ * and without accents, so that "Violão" and "VIOLAO" are both the term
+ * "violao". Compatibility characters are folded too, so the ligature "ﬁ" is
+ * "fi".
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class SearchTokenizer {
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * Adds the terms of the text to a list, in order and with repetitions.
+     *
+     * @param text text, may be <code>null</code>
+     * @param terms list the terms are added to
+     */
+    static void tokenize(String text, List<String> terms) {
+        if (text == null) {
+            return;
+        }
+        if (!isAscii(text)) {
+            // decomposes the accented letters, so the marks can be dropped below
+            text = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFKD);
+        }
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                    term.append(c);
+                } else if (c >= 'A' && c <= 'Z') {
+                    term.append((char) (c + ('a' - 'A')));
+                } else {
+                    flush(term, terms);
+                }
+            } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                // the accent of the letter before it
+                continue;
+            } else if (Character.isLetterOrDigit(c)) {
+                // compatibility forms can decompose to capitals
+                term.append(Character.toLowerCase(c));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLetterOrDigit(text.codePointAt(i))) {
+                term.append(c).append(text.charAt(++i));
+            } else {
+                flush(term, terms);
+            }
+        }
+        flush(term, terms);
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void flush(StringBuilder term, List<String> terms) {
+        if (term.length() > 0) {
+            terms.add(term.toString());
+            term.setLength(0);
+        }
+    }
+
+}
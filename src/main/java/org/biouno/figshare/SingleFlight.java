@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs at most one call per key at a time. Callers asking for a key while a
+ * call for it is in flight wait for that call and share its result, instead
+ * of making their own. Once the call completes, the next caller starts a new
+ * one, so results are never cached.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @param <K> key type
+ * @param <V> result type
+ * @since 0.2
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run a call, or join the one in flight for the same key.
+     *
+     * @param key key
+     * @param call the call, run in the caller thread if no other is in flight
+     * @return the result of the call
+     * @throws FigShareClientException if the call failed, or the caller was interrupted while waiting
+     */
+    V run(K key, Callable<V> call) throws FigShareClientException {
+        final FutureTask<V> task = new FutureTask<>(call);
+        FutureTask<V> flight = inFlight.putIfAbsent(key, task);
+        if (flight == null) {
+            flight = task;
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+        }
+        try {
+            return flight.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof FigShareClientException) {
+                throw (FigShareClientException) cause;
+            }
+            throw new FigShareClientException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FigShareClientException("Interrupted while waiting for " + key, e);
+        }
+    }
+
+    /**
+     * @return number of calls in flight
+     */
+    int size() {
+        return inFlight.size();
+    }
+
+}
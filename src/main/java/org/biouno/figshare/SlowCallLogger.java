@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.HttpRequest;
+
+/**
+ * Logs the calls slower than a threshold, with the time of each phase, e.g.
+ *
+ * <pre>
+ * Slow call: articles GET http://api.figshare.com/v1/my_data/articles -&gt; 200 in 1520.112 ms (url 0.004, wait 0.000, sign 0.210,
+ * connect 0.130, send 0.051, first_byte 1490.337, body 22.648, binding 6.519)
+ * </pre>
+ *
+ * <p>Added by the client when
+ * {@link FigShareClientConfiguration#setSlowCallThresholdMillis(long)} is
+ * set, logging to the <code>org.biouno.figshare.SlowCallLogger</code> logger
+ * at <code>WARNING</code>.</p>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class SlowCallLogger implements RequestInterceptor {
+
+    private static final Logger LOGGER = Logger.getLogger(SlowCallLogger.class.getName());
+
+    private final long thresholdNanos;
+    private final Logger logger;
+    private final Level level;
+
+    /**
+     * Constructor.
+     *
+     * @param thresholdMillis calls that take longer than this are logged
+     */
+    public SlowCallLogger(long thresholdMillis) {
+        this(thresholdMillis, LOGGER, Level.WARNING);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param thresholdMillis calls that take longer than this are logged
+     * @param logger logger
+     * @param level level of the log records
+     */
+    public SlowCallLogger(long thresholdMillis, Logger logger, Level level) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("thresholdMillis must not be negative: " + thresholdMillis);
+        }
+        this.thresholdNanos = thresholdMillis * 1000000L;
+        this.logger = logger;
+        this.level = level;
+    }
+
+    @Override
+    public void beforeSend(RequestTrace trace, HttpRequest request) {
+        // nothing to do until the call finishes
+    }
+
+    @Override
+    public void afterCall(RequestTrace trace) {
+        if (trace.getTotalNanos() >= thresholdNanos && logger.isLoggable(level)) {
+            logger.log(level, "Slow call: " + trace);
+        }
+    }
+
+}
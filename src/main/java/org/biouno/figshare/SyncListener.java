@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import org.biouno.figshare.v1.model.Article;
+
+/**
+ * Receives the changes found by an {@link ArticleSync}. If a method throws an
+ * exception the sync stops, and the change is not recorded in the
+ * {@link SyncState}, so it is found again by the next sync.
+ *
+ * @since 0.2
+ */
+public interface SyncListener {
+
+    /**
+     * An article that was not synced before.
+     *
+     * @param article the article, with its details
+     */
+    void onAdded(Article article);
+
+    /**
+     * An article whose version or content changed since the last sync.
+     *
+     * @param article the article, with its details
+     */
+    void onUpdated(Article article);
+
+    /**
+     * An article that is no longer listed.
+     *
+     * @param articleId article ID
+     */
+    void onDeleted(long articleId);
+
+}
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.biouno.figshare.v1.model.Article;
+
+/**
+ * What an {@link ArticleSync} found.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class SyncResult {
+
+    private final int added;
+    private final int updated;
+    private final int deleted;
+    private final int unchanged;
+    private final List<BatchResult<Long, Article>> failures;
+    private final boolean listingComplete;
+
+    SyncResult(int added, int updated, int deleted, int unchanged, List<BatchResult<Long, Article>> failures,
+            boolean listingComplete) {
+        this.added = added;
+        this.updated = updated;
+        this.deleted = deleted;
+        this.unchanged = unchanged;
+        this.failures = Collections.unmodifiableList(failures);
+        this.listingComplete = listingComplete;
+    }
+
+    /**
+     * @return the number of articles added
+     */
+    public int getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the number of articles updated
+     */
+    public int getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return the number of articles deleted
+     */
+    public int getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return the number of articles listed without changes
+     */
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return the articles that changed, but whose details could not be
+     * fetched; they are tried again by the next sync
+     */
+    public List<BatchResult<Long, Article>> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return whether the whole listing was read, ending with a short page;
+     * if not, the server did not page the listing, which may have been cut
+     * short, so no article was reported as deleted
+     */
+    public boolean isListingComplete() {
+        return listingComplete;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "SyncResult [added=" + added + ", updated=" + updated + ", deleted=" + deleted + ", unchanged="
+                + unchanged + ", failures=" + failures.size() + ", listingComplete=" + listingComplete + "]";
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The articles an {@link ArticleSync} has seen: the version and a hash of the
+ * listing of each, to tell which articles changed since. It can be saved to a
+ * file and loaded back, so that a sync continues where the last one stopped.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class SyncState {
+
+    /**
+     * "FSST".
+     */
+    private static final int MAGIC = 0x46535354;
+    private static final int FORMAT = 1;
+
+    /**
+     * What is known of a synced article.
+     */
+    static final class Entry {
+        private final long version;
+        private final long hash;
+        /**
+         * The last sync that listed the article.
+         */
+        private int seen;
+
+        Entry(long version, long hash, int seen) {
+            this.version = version;
+            this.hash = hash;
+            this.seen = seen;
+        }
+
+        boolean isSame(long version, long hash) {
+            return this.version == version && this.hash == hash;
+        }
+    }
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private int run = 0;
+
+    /**
+     * Creates an empty state, for a first sync.
+     */
+    public SyncState() {
+        super();
+    }
+
+    /**
+     * Loads a state saved with {@link #save(File)}.
+     *
+     * @param file file
+     * @return the state, empty if the file does not exist
+     * @throws IOException if the file cannot be read, or is not a sync state
+     */
+    public static SyncState load(File file) throws IOException {
+        SyncState state = new SyncState();
+        if (!file.exists()) {
+            return state;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a sync state: " + file);
+            }
+            int format = in.readInt();
+            if (format != FORMAT) {
+                throw new IOException("Unsupported sync state format " + format + ": " + file);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                state.entries.put(Long.valueOf(id), new Entry(in.readLong(), in.readLong(), 0));
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated sync state: " + file, e);
+        }
+        return state;
+    }
+
+    /**
+     * Saves the state. The file is written next to the target and renamed, so
+     * that a crash never leaves a half-written state.
+     *
+     * @param file file
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save(File file) throws IOException {
+        long[] ids = new long[entries.size()];
+        int i = 0;
+        for (Long id : entries.keySet()) {
+            ids[i++] = id.longValue();
+        }
+        Arrays.sort(ids);
+        final long[] sorted = ids;
+        LocalFiles.write(file, new LocalFiles.Content() {
+            @Override
+            public void writeTo(OutputStream stream) throws IOException {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeInt(sorted.length);
+                for (long id : sorted) {
+                    Entry entry = entries.get(Long.valueOf(id));
+                    out.writeLong(id);
+                    out.writeLong(entry.version);
+                    out.writeLong(entry.hash);
+                }
+                out.flush();
+            }
+        });
+    }
+
+    /**
+     * @return the number of articles synced
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param articleId article ID
+     * @return whether the article was synced
+     */
+    public synchronized boolean contains(long articleId) {
+        return entries.containsKey(Long.valueOf(articleId));
+    }
+
+    /**
+     * @param articleId article ID
+     * @return the version of the article when it was synced, or <code>null</code>
+     */
+    public synchronized Long getVersion(long articleId) {
+        Entry entry = entries.get(Long.valueOf(articleId));
+        return entry != null ? Long.valueOf(entry.version) : null;
+    }
+
+    /**
+     * Starts a sync.
+     *
+     * @return the number of the sync, to mark the articles it lists
+     */
+    synchronized int start() {
+        return ++run;
+    }
+
+    /**
+     * Marks an article as listed by a sync.
+     *
+     * @return what was known of the article, or <code>null</code>
+     */
+    synchronized Entry see(long articleId, int run) {
+        Entry entry = entries.get(Long.valueOf(articleId));
+        if (entry != null) {
+            entry.seen = run;
+        }
+        return entry;
+    }
+
+    synchronized void put(long articleId, long version, long hash, int run) {
+        entries.put(Long.valueOf(articleId), new Entry(version, hash, run));
+    }
+
+    synchronized void remove(long articleId) {
+        entries.remove(Long.valueOf(articleId));
+    }
+
+    /**
+     * @return the articles not listed by a sync
+     */
+    synchronized List<Long> unseen(int run) {
+        List<Long> unseen = new ArrayList<>();
+        for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().seen != run) {
+                unseen.add(entry.getKey());
+            }
+        }
+        return unseen;
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Local record of a chunked upload, so that an interrupted upload can resume
+ * from the last chunk acknowledged by the server. The journal is a properties
+ * file with the file path, size, modification time and checksum, and the
+ * offset up to which the server has acknowledged the content.
+ *
+ * <p>A journal only matches a file whose size and modification time are
+ * still the same, so a file changed since the upload started is uploaded
+ * again from the start. The checksum is computed when an upload starts, and
+ * read back from the journal when it resumes, so that resuming does not read
+ * the whole file again.</p>
+ *
+ * <p>#Not-Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class UploadJournal {
+
+    private static final String PATH = "path";
+    private static final String ARTICLE_ID = "articleId";
+    private static final String SIZE = "size";
+    private static final String MODIFIED = "modified";
+    private static final String CHECKSUM = "checksum";
+    private static final String CHUNK_SIZE = "chunkSize";
+    private static final String ACKNOWLEDGED = "acknowledged";
+
+    private final File journalFile;
+    private final String path;
+    private final long articleId;
+    private final long size;
+    private final long modified;
+    private final String checksum;
+    private final long chunkSize;
+    private long acknowledged;
+
+    private UploadJournal(File journalFile, String path, long articleId, long size, long modified,
+            String checksum, long chunkSize, long acknowledged) {
+        this.journalFile = journalFile;
+        this.path = path;
+        this.articleId = articleId;
+        this.size = size;
+        this.modified = modified;
+        this.checksum = checksum;
+        this.chunkSize = chunkSize;
+        this.acknowledged = acknowledged;
+    }
+
+    /**
+     * Open the journal of an upload, resuming the previous one if it was for
+     * the same content, or starting a new one otherwise.
+     *
+     * @param directory journal directory
+     * @param articleId article ID
+     * @param file file being uploaded
+     * @param chunkSize size of the chunks
+     * @return the journal
+     * @throws IOException if the file or the journal cannot be read
+     */
+    static UploadJournal open(File directory, long articleId, File file, long chunkSize) throws IOException {
+        final String path = file.getCanonicalPath();
+        final long size = file.length();
+        final long modified = file.lastModified();
+        final File journalFile = new File(directory, "upload-" + articleId + "-" + LocalFiles.md5(path) + ".properties");
+        if (journalFile.isFile()) {
+            final Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(journalFile)) {
+                properties.load(in);
+            }
+            final String checksum = properties.getProperty(CHECKSUM);
+            if (checksum != null
+                    && path.equals(properties.getProperty(PATH))
+                    && String.valueOf(articleId).equals(properties.getProperty(ARTICLE_ID))
+                    && String.valueOf(size).equals(properties.getProperty(SIZE))
+                    && String.valueOf(modified).equals(properties.getProperty(MODIFIED))
+                    && String.valueOf(chunkSize).equals(properties.getProperty(CHUNK_SIZE))) {
+                try {
+                    final long acknowledged = Long.parseLong(properties.getProperty(ACKNOWLEDGED));
+                    return new UploadJournal(journalFile, path, articleId, size, modified, checksum, chunkSize,
+                            Math.max(0L, Math.min(size, acknowledged)));
+                } catch (NumberFormatException e) {
+                    // start again
+                }
+            }
+        }
+        return new UploadJournal(journalFile, path, articleId, size, modified, LocalFiles.md5(file), chunkSize, 0L);
+    }
+
+    /**
+     * @return the file size
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the file checksum (MD5, hex)
+     */
+    String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return the offset up to which the server acknowledged the content
+     */
+    long getAcknowledged() {
+        return acknowledged;
+    }
+
+    /**
+     * Record that the server has the content up to an offset.
+     *
+     * @param offset offset of the first byte not acknowledged yet
+     * @throws IOException if the journal cannot be written
+     */
+    void acknowledge(long offset) throws IOException {
+        acknowledged = offset;
+        final Properties properties = new Properties();
+        properties.setProperty(PATH, path);
+        properties.setProperty(ARTICLE_ID, String.valueOf(articleId));
+        properties.setProperty(SIZE, String.valueOf(size));
+        properties.setProperty(MODIFIED, String.valueOf(modified));
+        properties.setProperty(CHECKSUM, checksum);
+        properties.setProperty(CHUNK_SIZE, String.valueOf(chunkSize));
+        properties.setProperty(ACKNOWLEDGED, String.valueOf(acknowledged));
+        final File parent = journalFile.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create upload journal directory " + parent);
+        }
+        LocalFiles.write(journalFile, new LocalFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                properties.store(out, "FigShare upload journal");
+            }
+        });
+    }
+
+    /**
+     * Forget the upload, once it has completed.
+     */
+    void delete() {
+        if (journalFile.exists() && !journalFile.delete()) {
+            journalFile.deleteOnExit();
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare.metrics;
+
+/**
+ * Why a request failed.
+ *
+ * @since 0.2
+ */
+public enum ErrorCause {
+
+    /**
+     * Connecting, reading or waiting for a pooled connection timed out.
+     */
+    TIMEOUT,
+    /**
+     * Any other I/O error, such as a refused or reset connection.
+     */
+    IO,
+    /**
+     * The API answered with a 4xx status, other than 429.
+     */
+    CLIENT_ERROR,
+    /**
+     * The API answered with a 429 status.
+     */
+    RATE_LIMITED,
+    /**
+     * The API answered with a 5xx status.
+     */
+    SERVER_ERROR,
+    /**
+     * The circuit breaker of the operation was open, so no request was sent.
+     */
+    CIRCUIT_OPEN,
+    /**
+     * The bulkhead of the operation was full, so no request was sent.
+     */
+    BULKHEAD_FULL,
+    /**
+     * The response was not valid JSON, or not what was expected.
+     */
+    PARSE
+
+}
@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare.metrics;
+
+/**
+ * What the {@link org.biouno.figshare.FigShareClient} reports about its
+ * requests. Set an implementation with
+ * {@link org.biouno.figshare.FigShareClientConfiguration#setMetrics(FigShareMetrics)}.
+ *
+ * <p>The operations are named after the methods of the client:
+ * <code>articles</code>, <code>article</code>, <code>createArticle</code>,
+ * <code>uploadFile</code> and <code>uploadFileResumable</code>. Retries are
+ * requests of their own.</p>
+ *
+ * <p>The methods are called on the threads making the requests, so they must
+ * be thread-safe, and fast.</p>
+ *
+ * @since 0.2
+ */
+public interface FigShareMetrics {
+
+    /**
+     * A request got a response, whatever its status.
+     *
+     * @param operation operation name
+     * @param statusCode HTTP status code
+     * @param latencyNanos time from sending the request to receiving the response headers
+     */
+    void requestCompleted(String operation, int statusCode, long latencyNanos);
+
+    /**
+     * A request failed, or an error response was turned into an exception.
+     *
+     * @param operation operation name
+     * @param cause why it failed
+     */
+    void requestFailed(String operation, ErrorCause cause);
+
+    /**
+     * A failed request is about to be sent again.
+     *
+     * @param operation operation name
+     */
+    void requestRetried(String operation);
+
+    /**
+     * @param operation operation name
+     * @param bytes size of a request body
+     */
+    void bytesSent(String operation, long bytes);
+
+    /**
+     * @param operation operation name
+     * @param bytes size of a response body, as read
+     */
+    void bytesReceived(String operation, long bytes);
+
+    /**
+     * @param operation operation name
+     * @param nanos time spent binding the JSON of a response to the model
+     */
+    void responseParsed(String operation, long nanos);
+
+    /**
+     * A sample of the HTTP connection pool, taken at most about once a
+     * second while requests are being made.
+     *
+     * @param leased connections in use
+     * @param available idle connections
+     * @param pending requests waiting for a connection
+     * @param max maximum number of connections
+     */
+    void connectionPoolSampled(int leased, int available, int pending, int max);
+
+}
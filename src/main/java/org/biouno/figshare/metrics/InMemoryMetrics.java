@@ -0,0 +1,287 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare.metrics;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics kept in memory, per operation, with lock-free counters and
+ * {@link Histogram}s, to be read or scraped by the application. For instance,
+ * {@link #format()} gives them in the Prometheus text format.
+ *
+ * <pre>
+ * InMemoryMetrics metrics = new InMemoryMetrics();
+ * configuration.setMetrics(metrics);
+ * ...
+ * long p99 = metrics.getOperation("articles").getLatency().getPercentile(99);
+ * </pre>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class InMemoryMetrics implements FigShareMetrics {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    /**
+     * The metrics of one operation.
+     */
+    public static final class OperationMetrics {
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLongArray errors = new AtomicLongArray(ErrorCause.values().length);
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private final Histogram latency = new Histogram();
+        private final Histogram parseTime = new Histogram();
+
+        OperationMetrics() {
+        }
+
+        /**
+         * @return number of requests that got a response
+         */
+        public long getRequests() {
+            return requests.get();
+        }
+
+        /**
+         * @param cause cause
+         * @return number of failures for that cause
+         */
+        public long getErrors(ErrorCause cause) {
+            return errors.get(cause.ordinal());
+        }
+
+        /**
+         * @return number of failures, for any cause
+         */
+        public long getErrors() {
+            long total = 0L;
+            for (int i = 0; i < errors.length(); i++) {
+                total += errors.get(i);
+            }
+            return total;
+        }
+
+        /**
+         * @return number of retried requests
+         */
+        public long getRetries() {
+            return retries.get();
+        }
+
+        /**
+         * @return bytes of request bodies
+         */
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        /**
+         * @return bytes of response bodies
+         */
+        public long getBytesReceived() {
+            return bytesReceived.get();
+        }
+
+        /**
+         * @return latency until the response headers, in nanoseconds
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return time spent binding JSON, in nanoseconds
+         */
+        public Histogram getParseTime() {
+            return parseTime;
+        }
+
+    }
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private volatile int leasedConnections = 0;
+    private volatile int availableConnections = 0;
+    private volatile int pendingConnections = 0;
+    private volatile int maxConnections = 0;
+
+    /**
+     * @return the metrics of each operation that was used, by operation name
+     */
+    public Map<String, OperationMetrics> getOperations() {
+        return Collections.unmodifiableMap(operations);
+    }
+
+    /**
+     * @param operation operation name
+     * @return the metrics of the operation, or <code>null</code> if it was not used
+     */
+    public OperationMetrics getOperation(String operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * @return connections in use, at the last sample
+     */
+    public int getLeasedConnections() {
+        return leasedConnections;
+    }
+
+    /**
+     * @return idle connections, at the last sample
+     */
+    public int getAvailableConnections() {
+        return availableConnections;
+    }
+
+    /**
+     * @return requests waiting for a connection, at the last sample
+     */
+    public int getPendingConnections() {
+        return pendingConnections;
+    }
+
+    /**
+     * @return maximum number of connections, at the last sample
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    @Override
+    public void requestCompleted(String operation, int statusCode, long latencyNanos) {
+        final OperationMetrics metrics = operation(operation);
+        metrics.requests.incrementAndGet();
+        metrics.latency.record(latencyNanos);
+    }
+
+    @Override
+    public void requestFailed(String operation, ErrorCause cause) {
+        operation(operation).errors.incrementAndGet(cause.ordinal());
+    }
+
+    @Override
+    public void requestRetried(String operation) {
+        operation(operation).retries.incrementAndGet();
+    }
+
+    @Override
+    public void bytesSent(String operation, long bytes) {
+        operation(operation).bytesSent.addAndGet(bytes);
+    }
+
+    @Override
+    public void bytesReceived(String operation, long bytes) {
+        operation(operation).bytesReceived.addAndGet(bytes);
+    }
+
+    @Override
+    public void responseParsed(String operation, long nanos) {
+        operation(operation).parseTime.record(nanos);
+    }
+
+    @Override
+    public void connectionPoolSampled(int leased, int available, int pending, int max) {
+        leasedConnections = leased;
+        availableConnections = available;
+        pendingConnections = pending;
+        maxConnections = max;
+    }
+
+    /**
+     * @return the metrics in the Prometheus text format, with times in seconds
+     */
+    public String format() {
+        final StringBuilder out = new StringBuilder();
+        final Map<String, OperationMetrics> sorted = new TreeMap<>(operations);
+        for (Map.Entry<String, OperationMetrics> entry : sorted.entrySet()) {
+            final String labels = "operation=\"" + entry.getKey() + "\"";
+            final OperationMetrics metrics = entry.getValue();
+            line(out, "figshare_requests_total", labels, metrics.getRequests());
+            for (ErrorCause cause : ErrorCause.values()) {
+                final long errors = metrics.getErrors(cause);
+                if (errors > 0) {
+                    line(out, "figshare_errors_total",
+                            labels + ",cause=\"" + cause.name().toLowerCase(Locale.ENGLISH) + "\"", errors);
+                }
+            }
+            line(out, "figshare_retries_total", labels, metrics.getRetries());
+            line(out, "figshare_sent_bytes_total", labels, metrics.getBytesSent());
+            line(out, "figshare_received_bytes_total", labels, metrics.getBytesReceived());
+            summary(out, "figshare_request_seconds", labels, metrics.getLatency());
+            summary(out, "figshare_parse_seconds", labels, metrics.getParseTime());
+        }
+        line(out, "figshare_connections_leased", "", leasedConnections);
+        line(out, "figshare_connections_available", "", availableConnections);
+        line(out, "figshare_connections_pending", "", pendingConnections);
+        line(out, "figshare_connections_max", "", maxConnections);
+        return out.toString();
+    }
+
+    private OperationMetrics operation(String operation) {
+        OperationMetrics metrics = operations.get(operation);
+        if (metrics == null) {
+            final OperationMetrics created = new OperationMetrics();
+            metrics = operations.putIfAbsent(operation, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, Histogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        for (double quantile : QUANTILES) {
+            out.append(name).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getPercentile(quantile * 100) / NANOS_PER_SECOND).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ")
+                .append(histogram.getSum() / NANOS_PER_SECOND).append('\n');
+        line(out, name + "_count", labels, histogram.getCount());
+    }
+
+    private static void line(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare.metrics;
+
+/**
+ * Metrics that are not recorded. The default of the client.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class NoMetrics implements FigShareMetrics {
+
+    /**
+     * The instance.
+     */
+    public static final NoMetrics INSTANCE = new NoMetrics();
+
+    private NoMetrics() {
+    }
+
+    @Override
+    public void requestCompleted(String operation, int statusCode, long latencyNanos) {
+    }
+
+    @Override
+    public void requestFailed(String operation, ErrorCause cause) {
+    }
+
+    @Override
+    public void requestRetried(String operation) {
+    }
+
+    @Override
+    public void bytesSent(String operation, long bytes) {
+    }
+
+    @Override
+    public void bytesReceived(String operation, long bytes) {
+    }
+
+    @Override
+    public void responseParsed(String operation, long nanos) {
+    }
+
+    @Override
+    public void connectionPoolSampled(int leased, int available, int pending, int max) {
+    }
+
+}
@@ -24,47 +24,76 @@
 package org.biouno.figshare.v1.model;
 
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
 /**
  * An article.
  *
+ * <p>Articles are compact, so that large listings can be held in memory: the
+ * numbers are primitives, with a flag for those that are missing, and the
+ * lists are immutable, sized to their elements, and shared when empty.</p>
+ *
+ * <p>The total size and the published date are parsed once, when the article
+ * is created, and are available in bytes and in milliseconds since the epoch
+ * next to the strings returned by the API.</p>
+ *
  * <p>#Thread-safe#</p>
  *
  * @since 0.1
  */
+@JsonAdapter(ModelTypeAdapterFactory.class)
 public final class Article {
 
+    // flags of the numbers that are present
+    private static final int ARTICLE_ID = 1;
+    private static final int MASTER_PUBLISHER_ID = 1 << 1;
+    private static final int VERSION = 1 << 2;
+    private static final int DOWNLOADS = 1 << 3;
+    private static final int SHARES = 1 << 4;
+    private static final int VIEWS = 1 << 5;
+
     @SerializedName("article_id")
-    private Long articleId;
-    private String title;
+    private final long articleId;
+    private final String title;
     @SerializedName("master_publisher_id")
-    private Long masterPublisherId;
+    private final long masterPublisherId;
     @SerializedName("defined_type")
-    private String definedType;
-    private String status;
-    private Long version;
+    private final String definedType;
+    private final String status;
+    private final long version;
     @SerializedName("published_date")
-    private String publishedDate;
-    private String description;
+    private final String publishedDate;
+    private final String description;
     @SerializedName("description_nohtml")
-    private String descriptionNohtml;
+    private final String descriptionNohtml;
     @SerializedName("total_size")
-    private String totalSize;
+    private final String totalSize;
     private final List<Author> authors;
     private final List<Tag> tags;
     private final List<Category> categories;
     private final List<File> files;
     private final List<Link> links;
 
-    private String doi;
-    private Long downloads;
+    private final String doi;
+    private final long downloads;
     private final List<Owner> owners;
-    private Long shares;
-    private Long views;
+    private final long shares;
+    private final long views;
+    /**
+     * Flags of the numbers that are present.
+     */
+    private final transient byte present;
+    /**
+     * Total size in bytes, or {@link Units#UNKNOWN}.
+     */
+    private final transient long totalSizeBytes;
+    /**
+     * Published date in milliseconds since the epoch, or {@link Units#UNKNOWN}.
+     */
+    private final transient long publishedMillis;
 
     /**
      * Article construcor.
@@ -89,27 +118,74 @@ public final class Article {
             String publishedDate, String description, String descriptionNohtml,
             String totalSize, String doi, Long downloads, Long shares,
             Long views) {
+        this(articleId, title, masterPublisherId, definedType, status, version,
+                publishedDate, description, descriptionNohtml, totalSize, doi,
+                downloads, shares, views, Collections.<Author>emptyList(),
+                Collections.<Tag>emptyList(), Collections.<Category>emptyList(),
+                Collections.<File>emptyList(), Collections.<Link>emptyList(),
+                Collections.<Owner>emptyList());
+    }
+
+    /**
+     * Article constructor, with the related objects. The lists are copied,
+     * and the getters return them immutable, so build them up before
+     * creating the article.
+     *
+     * @param articleId ID
+     * @param title title
+     * @param masterPublisherId master published ID
+     * @param definedType defined type
+     * @param status status
+     * @param version version
+     * @param publishedDate published date
+     * @param description description
+     * @param descriptionNohtml raw description
+     * @param totalSize total size
+     * @param doi DOI
+     * @param downloads number of downloads
+     * @param shares number of shares
+     * @param views number of views
+     * @param authors authors
+     * @param tags tags
+     * @param categories categories
+     * @param files files
+     * @param links links
+     * @param owners owners
+     * @since 0.2
+     */
+    public Article(Long articleId, String title, Long masterPublisherId,
+            String definedType, String status, Long version,
+            String publishedDate, String description, String descriptionNohtml,
+            String totalSize, String doi, Long downloads, Long shares,
+            Long views, List<Author> authors, List<Tag> tags,
+            List<Category> categories, List<File> files, List<Link> links,
+            List<Owner> owners) {
         super();
-        this.articleId = articleId;
+        this.articleId = valueOf(articleId);
+        this.masterPublisherId = valueOf(masterPublisherId);
+        this.version = valueOf(version);
+        this.downloads = valueOf(downloads);
+        this.shares = valueOf(shares);
+        this.views = valueOf(views);
+        this.present = (byte) (flag(articleId, ARTICLE_ID) | flag(masterPublisherId, MASTER_PUBLISHER_ID)
+                | flag(version, VERSION) | flag(downloads, DOWNLOADS) | flag(shares, SHARES)
+                | flag(views, VIEWS));
         this.title = title;
-        this.masterPublisherId = masterPublisherId;
         this.definedType = definedType;
         this.status = status;
-        this.version = version;
         this.publishedDate = publishedDate;
         this.description = description;
         this.descriptionNohtml = descriptionNohtml;
         this.totalSize = totalSize;
+        this.totalSizeBytes = Units.parseSize(totalSize);
+        this.publishedMillis = Units.parseDate(publishedDate);
         this.doi = doi;
-        this.downloads = downloads;
-        this.shares = shares;
-        this.views = views;
-        authors = new LinkedList<>();
-        tags = new LinkedList<>();
-        categories = new LinkedList<>();
-        files = new LinkedList<>();
-        links = new LinkedList<>();
-        owners = new LinkedList<>();
+        this.authors = CompactList.copyOf(authors);
+        this.tags = CompactList.copyOf(tags);
+        this.categories = CompactList.copyOf(categories);
+        this.files = CompactList.copyOf(files);
+        this.links = CompactList.copyOf(links);
+        this.owners = CompactList.copyOf(owners);
     }
 
     /**
@@ -158,11 +234,27 @@ public final class Article {
                 doi, downloads, shares, views);
     }
 
+    private static long valueOf(Long value) {
+        return value != null ? value.longValue() : 0L;
+    }
+
+    private static int flag(Long value, int flag) {
+        return value != null ? flag : 0;
+    }
+
+    private Long number(long value, int flag) {
+        return (present & flag) != 0 ? Long.valueOf(value) : null;
+    }
+
+    private static Long known(long value) {
+        return value != Units.UNKNOWN ? Long.valueOf(value) : null;
+    }
+
     /**
      * @return the articleId
      */
     public Long getArticleId() {
-        return articleId;
+        return number(articleId, ARTICLE_ID);
     }
 
     /**
@@ -176,7 +268,7 @@ public final class Article {
      * @return the masterPublisherId
      */
     public Long getMasterPublisherId() {
-        return masterPublisherId;
+        return number(masterPublisherId, MASTER_PUBLISHER_ID);
     }
 
     /**
@@ -197,7 +289,7 @@ public final class Article {
      * @return the version
      */
     public Long getVersion() {
-        return version;
+        return number(version, VERSION);
     }
 
     /**
@@ -228,39 +320,57 @@ public final class Article {
         return totalSize;
     }
 
+    /**
+     * @return the total size in bytes, or {@code null} if it is missing or
+     * can not be parsed
+     * @since 0.2
+     */
+    public Long getTotalSizeBytes() {
+        return known(totalSizeBytes);
+    }
+
+    /**
+     * @return the published date in milliseconds since the epoch, read as UTC,
+     * or {@code null} if it is missing or can not be parsed
+     * @since 0.2
+     */
+    public Long getPublishedInstant() {
+        return known(publishedMillis);
+    }
+
     /**
      * @return the authors
      */
     public List<Author> getAuthors() {
-        return Collections.unmodifiableList(authors);
+        return authors;
     }
 
     /**
      * @return the tags
      */
     public List<Tag> getTags() {
-        return Collections.unmodifiableList(tags);
+        return tags;
     }
 
     /**
      * @return the categories
      */
     public List<Category> getCategories() {
-        return Collections.unmodifiableList(categories);
+        return categories;
     }
 
     /**
      * @return the files
      */
     public List<File> getFiles() {
-        return Collections.unmodifiableList(files);
+        return files;
     }
 
     /**
      * @return the links
      */
     public List<Link> getLinks() {
-        return Collections.unmodifiableList(links);
+        return links;
     }
 
     /**
@@ -281,21 +391,21 @@ public final class Article {
      * @return the downloads
      */
     public Long getDownloads() {
-        return downloads;
+        return number(downloads, DOWNLOADS);
     }
 
     /**
      * @return the shares
      */
     public Long getShares() {
-        return shares;
+        return number(shares, SHARES);
     }
 
     /**
      * @return the views
      */
     public Long getViews() {
-        return views;
+        return number(views, VIEWS);
     }
 
     /* (non-Javadoc)
@@ -305,11 +415,10 @@ public final class Article {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result
-                + ((articleId == null) ? 0 : articleId.hashCode());
-        result = prime * result + ((authors == null) ? 0 : authors.hashCode());
-        result = prime * result
-                + ((categories == null) ? 0 : categories.hashCode());
+        result = prime * result + present;
+        result = prime * result + hash(articleId);
+        result = prime * result + authors.hashCode();
+        result = prime * result + categories.hashCode();
         result = prime * result
                 + ((definedType == null) ? 0 : definedType.hashCode());
         result = prime * result
@@ -319,28 +428,28 @@ public final class Article {
                 + ((descriptionNohtml == null) ? 0 : descriptionNohtml
                         .hashCode());
         result = prime * result + ((doi == null) ? 0 : doi.hashCode());
-        result = prime * result
-                + ((downloads == null) ? 0 : downloads.hashCode());
-        result = prime * result + ((files == null) ? 0 : files.hashCode());
-        result = prime * result + ((links == null) ? 0 : links.hashCode());
-        result = prime
-                * result
-                + ((masterPublisherId == null) ? 0 : masterPublisherId
-                        .hashCode());
-        result = prime * result + ((owners == null) ? 0 : owners.hashCode());
+        result = prime * result + hash(downloads);
+        result = prime * result + files.hashCode();
+        result = prime * result + links.hashCode();
+        result = prime * result + hash(masterPublisherId);
+        result = prime * result + owners.hashCode();
         result = prime * result
                 + ((publishedDate == null) ? 0 : publishedDate.hashCode());
-        result = prime * result + ((shares == null) ? 0 : shares.hashCode());
+        result = prime * result + hash(shares);
         result = prime * result + ((status == null) ? 0 : status.hashCode());
-        result = prime * result + ((tags == null) ? 0 : tags.hashCode());
+        result = prime * result + tags.hashCode();
         result = prime * result + ((title == null) ? 0 : title.hashCode());
         result = prime * result
                 + ((totalSize == null) ? 0 : totalSize.hashCode());
-        result = prime * result + ((version == null) ? 0 : version.hashCode());
-        result = prime * result + ((views == null) ? 0 : views.hashCode());
+        result = prime * result + hash(version);
+        result = prime * result + hash(views);
         return result;
     }
 
+    private static int hash(long value) {
+        return (int) (value ^ (value >>> 32));
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
      */
@@ -353,20 +462,16 @@ public final class Article {
         if (getClass() != obj.getClass())
             return false;
         Article other = (Article) obj;
-        if (articleId == null) {
-            if (other.articleId != null)
-                return false;
-        } else if (!articleId.equals(other.articleId))
+        // missing numbers are stored as 0, so comparing the flags and the
+        // numbers compares the numbers that are present
+        if (present != other.present || articleId != other.articleId
+                || masterPublisherId != other.masterPublisherId
+                || version != other.version || downloads != other.downloads
+                || shares != other.shares || views != other.views)
             return false;
-        if (authors == null) {
-            if (other.authors != null)
-                return false;
-        } else if (!authors.equals(other.authors))
+        if (!authors.equals(other.authors))
             return false;
-        if (categories == null) {
-            if (other.categories != null)
-                return false;
-        } else if (!categories.equals(other.categories))
+        if (!categories.equals(other.categories))
             return false;
         if (definedType == null) {
             if (other.definedType != null)
@@ -388,50 +493,23 @@ public final class Article {
                 return false;
         } else if (!doi.equals(other.doi))
             return false;
-        if (downloads == null) {
-            if (other.downloads != null)
-                return false;
-        } else if (!downloads.equals(other.downloads))
-            return false;
-        if (files == null) {
-            if (other.files != null)
-                return false;
-        } else if (!files.equals(other.files))
-            return false;
-        if (links == null) {
-            if (other.links != null)
-                return false;
-        } else if (!links.equals(other.links))
+        if (!files.equals(other.files))
             return false;
-        if (masterPublisherId == null) {
-            if (other.masterPublisherId != null)
-                return false;
-        } else if (!masterPublisherId.equals(other.masterPublisherId))
+        if (!links.equals(other.links))
             return false;
-        if (owners == null) {
-            if (other.owners != null)
-                return false;
-        } else if (!owners.equals(other.owners))
+        if (!owners.equals(other.owners))
             return false;
         if (publishedDate == null) {
             if (other.publishedDate != null)
                 return false;
         } else if (!publishedDate.equals(other.publishedDate))
             return false;
-        if (shares == null) {
-            if (other.shares != null)
-                return false;
-        } else if (!shares.equals(other.shares))
-            return false;
         if (status == null) {
             if (other.status != null)
                 return false;
         } else if (!status.equals(other.status))
             return false;
-        if (tags == null) {
-            if (other.tags != null)
-                return false;
-        } else if (!tags.equals(other.tags))
+        if (!tags.equals(other.tags))
             return false;
         if (title == null) {
             if (other.title != null)
@@ -443,16 +521,6 @@ public final class Article {
                 return false;
         } else if (!totalSize.equals(other.totalSize))
             return false;
-        if (version == null) {
-            if (other.version != null)
-                return false;
-        } else if (!version.equals(other.version))
-            return false;
-        if (views == null) {
-            if (other.views != null)
-                return false;
-        } else if (!views.equals(other.views))
-            return false;
         return true;
     }
 
@@ -461,16 +529,16 @@ public final class Article {
      */
     @Override
     public String toString() {
-        return "Article [articleId=" + articleId + ", title=" + title
-                + ", masterPublisherId=" + masterPublisherId + ", definedType="
-                + definedType + ", status=" + status + ", version=" + version
+        return "Article [articleId=" + getArticleId() + ", title=" + title
+                + ", masterPublisherId=" + getMasterPublisherId() + ", definedType="
+                + definedType + ", status=" + status + ", version=" + getVersion()
                 + ", publishedDate=" + publishedDate + ", description="
                 + description + ", descriptionNohtml=" + descriptionNohtml
                 + ", totalSize=" + totalSize + ", authors=" + authors
                 + ", tags=" + tags + ", categories=" + categories + ", files="
                 + files + ", links=" + links + ", doi=" + doi + ", downloads="
-                + downloads + ", owners=" + owners + ", shares=" + shares
-                + ", views=" + views + "]";
+                + getDownloads() + ", owners=" + owners + ", shares=" + getShares()
+                + ", views=" + getViews() + "]";
     }
 
 }
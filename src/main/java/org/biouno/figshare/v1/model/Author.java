@@ -23,6 +23,7 @@
  */
 package org.biouno.figshare.v1.model;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
 /**
@@ -32,6 +33,7 @@ import com.google.gson.annotations.SerializedName;
  *
  * @since 0.1
  */
+@JsonAdapter(ModelTypeAdapterFactory.class)
 public final class Author {
 
     /**
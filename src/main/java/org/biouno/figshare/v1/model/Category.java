@@ -23,6 +23,8 @@
  */
 package org.biouno.figshare.v1.model;
 
+import com.google.gson.annotations.JsonAdapter;
+
 /**
  * A category.
  *
@@ -30,6 +32,7 @@ package org.biouno.figshare.v1.model;
  *
  * @since 0.1
  */
+@JsonAdapter(ModelTypeAdapterFactory.class)
 public final class Category {
 
     /**
@@ -23,15 +23,20 @@
  */
 package org.biouno.figshare.v1.model;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
 /**
  * A file.
  *
+ * <p>The size is parsed once, when the file is created, and is available in
+ * bytes next to the string returned by the API.</p>
+ *
  * <p>#Thread-safe#</p>
  *
  * @since 0.1
  */
+@JsonAdapter(ModelTypeAdapterFactory.class)
 public final class File {
 
     /**
@@ -60,6 +65,17 @@ public final class File {
      */
     private final String name;
 
+    /**
+     * URL of the content of the file.
+     */
+    @SerializedName("download_url")
+    private final String downloadUrl;
+
+    /**
+     * Size in bytes, or {@link Units#UNKNOWN}.
+     */
+    private final transient long sizeBytes;
+
     /**
      * Constructor.
      * @param size size
@@ -69,12 +85,28 @@ public final class File {
      * @param name file name with extension
      */
     public File(String size, String thumb, Long id, String mimeType, String name) {
+        this(size, thumb, id, mimeType, name, null);
+    }
+
+    /**
+     * Constructor.
+     * @param size size
+     * @param thumb thumbnail URL
+     * @param id ID
+     * @param mimeType mime/type
+     * @param name file name with extension
+     * @param downloadUrl URL of the content of the file
+     * @since 0.2
+     */
+    public File(String size, String thumb, Long id, String mimeType, String name, String downloadUrl) {
         super();
         this.size = size;
         this.thumb = thumb;
         this.id = id;
         this.mimeType = mimeType;
         this.name = name;
+        this.downloadUrl = downloadUrl;
+        this.sizeBytes = Units.parseSize(size);
     }
 
     /**
@@ -84,6 +116,33 @@ public final class File {
         return size;
     }
 
+    /**
+     * @return the size in bytes, or {@code null} if it is missing or can not be
+     * parsed
+     * @since 0.2
+     */
+    public Long getSizeBytes() {
+        return sizeBytes != Units.UNKNOWN ? Long.valueOf(sizeBytes) : null;
+    }
+
+    /**
+     * Whether a number of bytes is the size of the file, to the precision of
+     * {@link #getSize()}: "116.88 KB" is any size from 116.875 KB to
+     * 116.885 KB.
+     *
+     * @param bytes number of bytes
+     * @return <code>true</code> if it is the size of the file, or if the size is not known
+     * @since 0.2
+     */
+    public boolean isSize(long bytes) {
+        if (sizeBytes == Units.UNKNOWN) {
+            return true;
+        }
+        long precision = Units.sizePrecision(size);
+        // half a step either way, and the rounding of the bytes of the size
+        return Math.abs(bytes - sizeBytes) <= (precision > 1L ? (precision + 1L) / 2L : 0L);
+    }
+
     /**
      * @return the thumb
      */
@@ -112,6 +171,14 @@ public final class File {
         return name;
     }
 
+    /**
+     * @return the URL of the content of the file, or <code>null</code>
+     * @since 0.2
+     */
+    public String getDownloadUrl() {
+        return downloadUrl;
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Object#hashCode()
      */
@@ -119,6 +186,8 @@ public final class File {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
+        result = prime * result
+                + ((downloadUrl == null) ? 0 : downloadUrl.hashCode());
         result = prime * result + ((id == null) ? 0 : id.hashCode());
         result = prime * result
                 + ((mimeType == null) ? 0 : mimeType.hashCode());
@@ -140,6 +209,11 @@ public final class File {
         if (getClass() != obj.getClass())
             return false;
         File other = (File) obj;
+        if (downloadUrl == null) {
+            if (other.downloadUrl != null)
+                return false;
+        } else if (!downloadUrl.equals(other.downloadUrl))
+            return false;
         if (id == null) {
             if (other.id != null)
                 return false;
@@ -174,7 +248,8 @@ public final class File {
     @Override
     public String toString() {
         return "File [size=" + size + ", thumb=" + thumb + ", id=" + id
-                + ", mimeType=" + mimeType + ", name=" + name + "]";
+                + ", mimeType=" + mimeType + ", name=" + name
+                + ", downloadUrl=" + downloadUrl + "]";
     }
 
 }
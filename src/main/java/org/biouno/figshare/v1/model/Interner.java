@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare.v1.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonical instances of values that repeat across a listing, such as tag
+ * and category names, so that articles held in memory share one copy of
+ * each. It stops taking new values once it holds
+ * {@link #MAX_SIZE}, so a stream of unique values cannot grow it
+ * forever.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @param <T> value type, immutable, with equals and hashCode
+ * @since 0.2
+ */
+final class Interner<T> {
+
+    /**
+     * Maximum number of canonical values.
+     */
+    static final int MAX_SIZE = 65536;
+
+    private final ConcurrentMap<T, T> values = new ConcurrentHashMap<>();
+
+    /**
+     * @param value value, or <code>null</code>
+     * @return the canonical instance equal to the value, or the value itself
+     */
+    T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        final T canonical = values.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (values.size() >= MAX_SIZE) {
+            return value;
+        }
+        final T previous = values.putIfAbsent(value, value);
+        return previous != null ? previous : value;
+    }
+
+}
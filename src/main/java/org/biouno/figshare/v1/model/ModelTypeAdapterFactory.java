@@ -0,0 +1,571 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * sharedAuthors OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare.v1.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Hand-written Gson type adapters for the model classes. They read and write
+ * the same JSON as Gson's reflective adapters, without the reflection, and
+ * they are thread-safe, so one Gson instance with this factory can be shared
+ * by any number of threads.
+ *
+ * <p>Lists missing from the JSON are read as empty lists. Values that repeat
+ * across articles (types, statuses, MIME types, and the authors, owners,
+ * tags and categories) are read as shared instances, so that large listings
+ * take less memory. Each factory keeps its own shared values, so they are
+ * freed with the Gson instance (e.g. the client) that uses it.</p>
+ *
+ * <p>The model classes name this factory with {@link com.google.gson.annotations.JsonAdapter},
+ * so any Gson instance reads and writes them with these adapters, even one
+ * that does not register the factory.</p>
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+public final class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    // the values are shared by the articles this factory reads, and go away with it
+    private final Interner<String> sharedStrings = new Interner<>();
+    private final Interner<Author> sharedAuthors = new Interner<>();
+    private final Interner<Category> sharedCategories = new Interner<>();
+    private final Interner<Owner> sharedOwners = new Interner<>();
+    private final Interner<Tag> sharedTags = new Interner<>();
+
+    private final TypeAdapter<Author> authorAdapter = new AuthorAdapter();
+    private final TypeAdapter<Category> categoryAdapter = new CategoryAdapter();
+    private final TypeAdapter<File> fileAdapter = new FileAdapter();
+    private final TypeAdapter<Link> linkAdapter = new LinkAdapter();
+    private final TypeAdapter<Owner> ownerAdapter = new OwnerAdapter();
+    private final TypeAdapter<Tag> tagAdapter = new TagAdapter();
+    private final TypeAdapter<Article> articleAdapter = new ArticleAdapter();
+
+    /* (non-Javadoc)
+     * @see com.google.gson.TypeAdapterFactory#create(com.google.gson.Gson, com.google.gson.reflect.TypeToken)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        final Class<? super T> rawType = type.getRawType();
+        if (rawType == Article.class) {
+            return (TypeAdapter<T>) articleAdapter;
+        } else if (rawType == Author.class) {
+            return (TypeAdapter<T>) authorAdapter;
+        } else if (rawType == Category.class) {
+            return (TypeAdapter<T>) categoryAdapter;
+        } else if (rawType == File.class) {
+            return (TypeAdapter<T>) fileAdapter;
+        } else if (rawType == Link.class) {
+            return (TypeAdapter<T>) linkAdapter;
+        } else if (rawType == Owner.class) {
+            return (TypeAdapter<T>) ownerAdapter;
+        } else if (rawType == Tag.class) {
+            return (TypeAdapter<T>) tagAdapter;
+        }
+        return null;
+    }
+
+    // --- helpers
+
+    private static String readString(JsonReader in) throws IOException {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        } else if (token == JsonToken.BOOLEAN) {
+            // e.g. "total_size": false for articles without files
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    private static Long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return Long.valueOf(in.nextLong());
+    }
+
+    private static <T> List<T> readList(JsonReader in, TypeAdapter<T> adapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return Collections.emptyList();
+        }
+        final List<T> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(adapter.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    private static void writeLong(JsonWriter out, String name, Long value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value.longValue());
+        }
+    }
+
+    private static <T> void writeList(JsonWriter out, String name, List<T> list, TypeAdapter<T> adapter)
+            throws IOException {
+        if (list != null) {
+            out.name(name).beginArray();
+            for (T element : list) {
+                adapter.write(out, element);
+            }
+            out.endArray();
+        }
+    }
+
+    // --- adapters
+
+    private final class ArticleAdapter extends TypeAdapter<Article> {
+
+        @Override
+        public Article read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Long articleId = null;
+            String title = null;
+            Long masterPublisherId = null;
+            String definedType = null;
+            String status = null;
+            Long version = null;
+            String publishedDate = null;
+            String description = null;
+            String descriptionNohtml = null;
+            String totalSize = null;
+            String doi = null;
+            Long downloads = null;
+            Long shares = null;
+            Long views = null;
+            List<Author> authors = Collections.emptyList();
+            List<Tag> tags = Collections.emptyList();
+            List<Category> categories = Collections.emptyList();
+            List<File> files = Collections.emptyList();
+            List<Link> links = Collections.emptyList();
+            List<Owner> owners = Collections.emptyList();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "article_id":
+                    articleId = readLong(in);
+                    break;
+                case "title":
+                    title = readString(in);
+                    break;
+                case "master_publisher_id":
+                    masterPublisherId = readLong(in);
+                    break;
+                case "defined_type":
+                    definedType = sharedStrings.intern(readString(in));
+                    break;
+                case "status":
+                    status = sharedStrings.intern(readString(in));
+                    break;
+                case "version":
+                    version = readLong(in);
+                    break;
+                case "published_date":
+                    publishedDate = readString(in);
+                    break;
+                case "description":
+                    description = readString(in);
+                    break;
+                case "description_nohtml":
+                    descriptionNohtml = readString(in);
+                    break;
+                case "total_size":
+                    totalSize = readString(in);
+                    break;
+                case "doi":
+                    doi = readString(in);
+                    break;
+                case "downloads":
+                    downloads = readLong(in);
+                    break;
+                case "shares":
+                    shares = readLong(in);
+                    break;
+                case "views":
+                    views = readLong(in);
+                    break;
+                case "authors":
+                    authors = readList(in, authorAdapter);
+                    break;
+                case "tags":
+                    tags = readList(in, tagAdapter);
+                    break;
+                case "categories":
+                    categories = readList(in, categoryAdapter);
+                    break;
+                case "files":
+                    files = readList(in, fileAdapter);
+                    break;
+                case "links":
+                    links = readList(in, linkAdapter);
+                    break;
+                case "owners":
+                    owners = readList(in, ownerAdapter);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Article(articleId, title, masterPublisherId, definedType, status, version,
+                    publishedDate, description, descriptionNohtml, totalSize, doi, downloads, shares, views,
+                    authors, tags, categories, files, links, owners);
+        }
+
+        @Override
+        public void write(JsonWriter out, Article article) throws IOException {
+            if (article == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeLong(out, "article_id", article.getArticleId());
+            writeString(out, "title", article.getTitle());
+            writeLong(out, "master_publisher_id", article.getMasterPublisherId());
+            writeString(out, "defined_type", article.getDefinedType());
+            writeString(out, "status", article.getStatus());
+            writeLong(out, "version", article.getVersion());
+            writeString(out, "published_date", article.getPublishedDate());
+            writeString(out, "description", article.getDescription());
+            writeString(out, "description_nohtml", article.getDescriptionNohtml());
+            writeString(out, "total_size", article.getTotalSize());
+            writeList(out, "authors", article.getAuthors(), authorAdapter);
+            writeList(out, "tags", article.getTags(), tagAdapter);
+            writeList(out, "categories", article.getCategories(), categoryAdapter);
+            writeList(out, "files", article.getFiles(), fileAdapter);
+            writeList(out, "links", article.getLinks(), linkAdapter);
+            writeString(out, "doi", article.getDoi());
+            writeLong(out, "downloads", article.getDownloads());
+            writeList(out, "owners", article.getOwners(), ownerAdapter);
+            writeLong(out, "shares", article.getShares());
+            writeLong(out, "views", article.getViews());
+            out.endObject();
+        }
+
+    }
+
+    private final class AuthorAdapter extends TypeAdapter<Author> {
+
+        @Override
+        public Author read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String firstName = null;
+            String lastName = null;
+            Long id = null;
+            String fullName = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "first_name":
+                    firstName = readString(in);
+                    break;
+                case "last_name":
+                    lastName = readString(in);
+                    break;
+                case "id":
+                    id = readLong(in);
+                    break;
+                case "full_name":
+                    fullName = readString(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return sharedAuthors.intern(new Author(firstName, lastName, id, fullName));
+        }
+
+        @Override
+        public void write(JsonWriter out, Author author) throws IOException {
+            if (author == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeString(out, "first_name", author.getFirstName());
+            writeString(out, "last_name", author.getLastName());
+            writeLong(out, "id", author.getId());
+            writeString(out, "full_name", author.getFullName());
+            out.endObject();
+        }
+
+    }
+
+    private final class CategoryAdapter extends TypeAdapter<Category> {
+
+        @Override
+        public Category read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Long id = null;
+            String name = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "id":
+                    id = readLong(in);
+                    break;
+                case "name":
+                    name = readString(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return sharedCategories.intern(new Category(id, name));
+        }
+
+        @Override
+        public void write(JsonWriter out, Category category) throws IOException {
+            if (category == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeLong(out, "id", category.getId());
+            writeString(out, "name", category.getName());
+            out.endObject();
+        }
+
+    }
+
+    private final class FileAdapter extends TypeAdapter<File> {
+
+        @Override
+        public File read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String size = null;
+            String thumb = null;
+            Long id = null;
+            String mimeType = null;
+            String name = null;
+            String downloadUrl = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "size":
+                    size = readString(in);
+                    break;
+                case "thumb":
+                    thumb = readString(in);
+                    break;
+                case "id":
+                    id = readLong(in);
+                    break;
+                case "mime_type":
+                    mimeType = sharedStrings.intern(readString(in));
+                    break;
+                case "name":
+                    name = readString(in);
+                    break;
+                case "download_url":
+                    downloadUrl = readString(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new File(size, thumb, id, mimeType, name, downloadUrl);
+        }
+
+        @Override
+        public void write(JsonWriter out, File file) throws IOException {
+            if (file == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeString(out, "size", file.getSize());
+            writeString(out, "thumb", file.getThumb());
+            writeLong(out, "id", file.getId());
+            writeString(out, "mime_type", file.getMimeType());
+            writeString(out, "name", file.getName());
+            writeString(out, "download_url", file.getDownloadUrl());
+            out.endObject();
+        }
+
+    }
+
+    private final class LinkAdapter extends TypeAdapter<Link> {
+
+        @Override
+        public Link read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Long id = null;
+            String link = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "id":
+                    id = readLong(in);
+                    break;
+                case "link":
+                    link = readString(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Link(id, link);
+        }
+
+        @Override
+        public void write(JsonWriter out, Link link) throws IOException {
+            if (link == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeLong(out, "id", link.getId());
+            writeString(out, "link", link.getLink());
+            out.endObject();
+        }
+
+    }
+
+    private final class OwnerAdapter extends TypeAdapter<Owner> {
+
+        @Override
+        public Owner read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Long id = null;
+            String fullName = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "id":
+                    id = readLong(in);
+                    break;
+                case "full_name":
+                    fullName = readString(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return sharedOwners.intern(new Owner(id, fullName));
+        }
+
+        @Override
+        public void write(JsonWriter out, Owner owner) throws IOException {
+            if (owner == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeLong(out, "id", owner.getId());
+            writeString(out, "full_name", owner.getFullName());
+            out.endObject();
+        }
+
+    }
+
+    private final class TagAdapter extends TypeAdapter<Tag> {
+
+        @Override
+        public Tag read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Long id = null;
+            String name = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case "id":
+                    id = readLong(in);
+                    break;
+                case "name":
+                    name = readString(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return sharedTags.intern(new Tag(id, name));
+        }
+
+        @Override
+        public void write(JsonWriter out, Tag tag) throws IOException {
+            if (tag == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeLong(out, "id", tag.getId());
+            writeString(out, "name", tag.getName());
+            out.endObject();
+        }
+
+    }
+
+}
@@ -0,0 +1,299 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 The BioUno team, Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.figshare.v1.model;
+
+/**
+ * Parsers for the human readable sizes ("116.88 KB") and dates
+ * ("09:27, Jun 03, 2015") of the figshare API. They read the characters in
+ * place, without allocating, so that the models can parse their values once,
+ * when they are read.
+ *
+ * <p>#Thread-safe#</p>
+ *
+ * @since 0.2
+ */
+final class Units {
+
+    /**
+     * Returned for values that are missing or can not be parsed.
+     */
+    static final long UNKNOWN = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_MINUTE = 60L * 1000L;
+    private static final long MILLIS_PER_DAY = 24L * 60L * MILLIS_PER_MINUTE;
+
+    private static final String MONTHS = "janfebmaraprmayjunjulaugsepoctnovdec";
+
+    private Units() {
+    }
+
+    /**
+     * Parses a size, such as "999 KB" or "1.90 MB", into bytes. The units are
+     * binary, so 1 KB is 1024 bytes, and a size without a unit is in bytes.
+     *
+     * @param size size
+     * @return bytes, rounded to the nearest byte, or {@link #UNKNOWN}
+     */
+    static long parseSize(String size) {
+        if (size == null) {
+            return UNKNOWN;
+        }
+        int length = size.length();
+        int i = skipSpaces(size, 0);
+        long mantissa = 0L;
+        long scale = 1L;
+        int digits = 0;
+        boolean fraction = false;
+        for (; i < length; i++) {
+            char c = size.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 18) {
+                    return UNKNOWN;
+                }
+                mantissa = mantissa * 10L + (c - '0');
+                if (fraction) {
+                    scale *= 10L;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return UNKNOWN;
+        }
+        i = skipSpaces(size, i);
+        int shift;
+        if (i == length) {
+            shift = 0;
+        } else {
+            switch (Character.toUpperCase(size.charAt(i))) {
+            case 'B':
+                // "B", "byte", "bytes"
+                shift = 0;
+                i++;
+                if (size.regionMatches(true, i, "ytes", 0, 4)) {
+                    i += 4;
+                } else if (size.regionMatches(true, i, "yte", 0, 3)) {
+                    i += 3;
+                }
+                break;
+            case 'K':
+                shift = 10;
+                break;
+            case 'M':
+                shift = 20;
+                break;
+            case 'G':
+                shift = 30;
+                break;
+            case 'T':
+                shift = 40;
+                break;
+            default:
+                return UNKNOWN;
+            }
+            if (shift > 0) {
+                i++;
+                if (i < length && Character.toUpperCase(size.charAt(i)) == 'I') {
+                    // "KiB"
+                    i++;
+                }
+                if (i == length || Character.toUpperCase(size.charAt(i)) != 'B') {
+                    return UNKNOWN;
+                }
+                i++;
+            }
+        }
+        if (skipSpaces(size, i) != length || mantissa > (Long.MAX_VALUE >> shift)) {
+            return UNKNOWN;
+        }
+        return ((mantissa << shift) + scale / 2) / scale;
+    }
+
+    /**
+     * The precision of a size: the bytes of one step of its last digit, such
+     * as 10.24 bytes for "116.88 KB", rounded up.
+     *
+     * @param size size, that {@link #parseSize(String)} can parse
+     * @return bytes of one step of the last digit, or 0 if the size can not be parsed
+     */
+    static long sizePrecision(String size) {
+        if (parseSize(size) == UNKNOWN) {
+            return 0L;
+        }
+        long decimals = 1L;
+        int point = size.indexOf('.');
+        if (point >= 0) {
+            for (int i = point + 1; i < size.length() && isDigit(size.charAt(i)); i++) {
+                decimals *= 10L;
+            }
+        }
+        long unit;
+        switch (unitOf(size)) {
+        case 'K':
+            unit = 1L << 10;
+            break;
+        case 'M':
+            unit = 1L << 20;
+            break;
+        case 'G':
+            unit = 1L << 30;
+            break;
+        case 'T':
+            unit = 1L << 40;
+            break;
+        default:
+            unit = 1L;
+        }
+        return (unit + decimals - 1) / decimals;
+    }
+
+    private static char unitOf(String size) {
+        for (int i = 0; i < size.length(); i++) {
+            char c = Character.toUpperCase(size.charAt(i));
+            if (c >= 'A' && c <= 'Z') {
+                return c;
+            }
+        }
+        return 'B';
+    }
+
+    /**
+     * Parses a date, such as "09:27, Jun 03, 2015", into milliseconds since the
+     * epoch. The API does not give the time zone of its dates, so they are read
+     * as UTC.
+     *
+     * @param date date
+     * @return milliseconds since the epoch, or {@link #UNKNOWN}
+     */
+    static long parseDate(String date) {
+        if (date == null) {
+            return UNKNOWN;
+        }
+        int length = date.length();
+        int i = skipSpaces(date, 0);
+        // HH:mm
+        int hours = 0;
+        int start = i;
+        for (; i < length && isDigit(date.charAt(i)); i++) {
+            hours = hours * 10 + (date.charAt(i) - '0');
+        }
+        if (i - start < 1 || i - start > 2 || i == length || date.charAt(i++) != ':') {
+            return UNKNOWN;
+        }
+        int minutes = 0;
+        start = i;
+        for (; i < length && isDigit(date.charAt(i)); i++) {
+            minutes = minutes * 10 + (date.charAt(i) - '0');
+        }
+        if (i - start != 2 || i == length || date.charAt(i++) != ',') {
+            return UNKNOWN;
+        }
+        // MMM dd
+        i = skipSpaces(date, i);
+        if (i + 3 > length) {
+            return UNKNOWN;
+        }
+        int month = month(date.charAt(i), date.charAt(i + 1), date.charAt(i + 2));
+        i = skipSpaces(date, i + 3);
+        int day = 0;
+        start = i;
+        for (; i < length && isDigit(date.charAt(i)); i++) {
+            day = day * 10 + (date.charAt(i) - '0');
+        }
+        if (month == 0 || i - start < 1 || i - start > 2 || i == length || date.charAt(i++) != ',') {
+            return UNKNOWN;
+        }
+        // yyyy
+        i = skipSpaces(date, i);
+        int year = 0;
+        start = i;
+        for (; i < length && isDigit(date.charAt(i)); i++) {
+            year = year * 10 + (date.charAt(i) - '0');
+        }
+        if (i - start != 4 || skipSpaces(date, i) != length) {
+            return UNKNOWN;
+        }
+        if (hours > 23 || minutes > 59 || day < 1 || day > daysInMonth(year, month)) {
+            return UNKNOWN;
+        }
+        return epochDay(year, month, day) * MILLIS_PER_DAY + (hours * 60L + minutes) * MILLIS_PER_MINUTE;
+    }
+
+    private static int skipSpaces(String value, int i) {
+        while (i < value.length() && value.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return the month, from 1 to 12, or 0 if the name is not known
+     */
+    private static int month(char a, char b, char c) {
+        char first = Character.toLowerCase(a);
+        char second = Character.toLowerCase(b);
+        char third = Character.toLowerCase(c);
+        for (int i = 0; i < MONTHS.length(); i += 3) {
+            if (MONTHS.charAt(i) == first && MONTHS.charAt(i + 1) == second && MONTHS.charAt(i + 2) == third) {
+                return i / 3 + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+        case 2:
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    /**
+     * @return days since 1970-01-01 in the proleptic Gregorian calendar
+     */
+    private static long epochDay(int year, int month, int day) {
+        // shifts the year to start in March, so the leap day is the last one
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+}
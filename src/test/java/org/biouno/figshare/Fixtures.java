@@ -0,0 +1,44 @@
+package org.biouno.figshare;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * JSON fixtures for tests, derived from the files in src/test/resources.
+ *
+ * @since 0.2
+ */
+public final class Fixtures {
+
+	private Fixtures() {
+	}
+
+	public static String read(String resource) throws IOException {
+		return FileUtils.readFileToString(new File(Fixtures.class.getResource(resource).getFile()), "UTF-8");
+	}
+
+	/**
+	 * Create a listing like articles.json, with copies of its article numbered
+	 * from <code>firstId</code> to <code>firstId + count - 1</code>.
+	 */
+	public static String articles(long firstId, int count) throws IOException {
+		JsonObject listing = new JsonParser().parse(read("/articles.json")).getAsJsonObject();
+		JsonObject template = listing.get("items").getAsJsonArray().get(0).getAsJsonObject();
+		JsonArray items = new JsonArray();
+		for (int i = 0; i < count; i++) {
+			JsonObject item = new JsonParser().parse(template.toString()).getAsJsonObject();
+			item.addProperty("article_id", firstId + i);
+			items.add(item);
+		}
+		listing.add("items", items);
+		listing.addProperty("count", count);
+		return listing.toString();
+	}
+
+}
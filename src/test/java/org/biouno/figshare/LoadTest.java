@@ -0,0 +1,172 @@
+package org.biouno.figshare;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * End-to-end load test of the client against a {@link MockFigShareServer}.
+ * For each concurrency level, it runs a number of calls and reports the
+ * throughput, the 50th and 99th latency percentiles and the failures.
+ *
+ * <p>Run it with:</p>
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=org.biouno.figshare.LoadTest \
+ *   -Dexec.args="articles 2000 1,4,16,64"
+ * </pre>
+ *
+ * <p>The operation is one of <code>articles</code>, <code>page</code> or
+ * <code>create</code>.</p>
+ *
+ * @since 0.2
+ */
+public class LoadTest {
+
+	public enum Operation {
+		ARTICLES, PAGE, CREATE
+	}
+
+	/**
+	 * The outcome of one concurrency level.
+	 */
+	public static final class Report {
+		final int concurrency;
+		final int calls;
+		final int failures;
+		final long elapsedNanos;
+		final long p50Nanos;
+		final long p99Nanos;
+
+		Report(int concurrency, long[] latencies, int failures, long elapsedNanos) {
+			this.concurrency = concurrency;
+			this.calls = latencies.length;
+			this.failures = failures;
+			this.elapsedNanos = elapsedNanos;
+			Arrays.sort(latencies);
+			this.p50Nanos = percentile(latencies, 0.50);
+			this.p99Nanos = percentile(latencies, 0.99);
+		}
+
+		public double getThroughput() {
+			return calls * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%11d %8d %8d %12.1f %10.2f %10.2f", concurrency, calls, failures, getThroughput(),
+					p50Nanos / 1e6, p99Nanos / 1e6);
+		}
+
+		private static long percentile(long[] sorted, double percentile) {
+			if (sorted.length == 0) {
+				return 0L;
+			}
+			int index = (int) Math.ceil(percentile * sorted.length) - 1;
+			return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+		}
+	}
+
+	private final String endpoint;
+	private final Operation operation;
+
+	public LoadTest(String endpoint, Operation operation) {
+		this.endpoint = endpoint;
+		this.operation = operation;
+	}
+
+	/**
+	 * Run <code>calls</code> calls split across <code>concurrency</code>
+	 * threads, with a client pooling as many connections as threads.
+	 */
+	public Report run(final int concurrency, int calls) throws Exception {
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxTotalConnections(concurrency);
+		configuration.setMaxConnectionsPerRoute(concurrency);
+		configuration.setMaxConcurrentMetadataRequests(concurrency);
+		final FigShareClient client = FigShareClient.to(endpoint, 1, "ck", "cs", "tk", "ts", configuration);
+		ExecutorService threads = Executors.newFixedThreadPool(concurrency);
+		try {
+			// warm up the pool and the code paths
+			for (int i = 0; i < Math.min(concurrency, 10); i++) {
+				call(client);
+			}
+			final long[] latencies = new long[calls];
+			List<Future<Integer>> workers = new ArrayList<>();
+			final int share = calls / concurrency;
+			long start = System.nanoTime();
+			for (int t = 0; t < concurrency; t++) {
+				final int from = t * share;
+				final int to = t == concurrency - 1 ? calls : from + share;
+				workers.add(threads.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						int failures = 0;
+						for (int i = from; i < to; i++) {
+							long before = System.nanoTime();
+							try {
+								LoadTest.this.call(client);
+							} catch (RuntimeException e) {
+								failures++;
+							}
+							latencies[i] = System.nanoTime() - before;
+						}
+						return failures;
+					}
+				}));
+			}
+			int failures = 0;
+			for (Future<Integer> worker : workers) {
+				failures += worker.get();
+			}
+			return new Report(concurrency, latencies, failures, System.nanoTime() - start);
+		} finally {
+			threads.shutdownNow();
+			client.close();
+		}
+	}
+
+	private void call(FigShareClient client) {
+		switch (operation) {
+		case ARTICLES:
+			client.articles();
+			break;
+		case PAGE:
+			client.articles(1, 10);
+			break;
+		case CREATE:
+			client.createArticle("Load test", "An article created by the load test", "dataset");
+			break;
+		default:
+			throw new IllegalStateException("Unknown operation " + operation);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Operation operation = Operation.valueOf((args.length > 0 ? args[0] : "articles").toUpperCase());
+		int calls = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		String[] levels = (args.length > 2 ? args[2] : "1,4,16,64").split(",");
+		long latency = args.length > 3 ? Long.parseLong(args[3]) : 0L;
+		MockFigShareServer server = new MockFigShareServer("ck", "cs", "tk", "ts", 64)
+			.withArticles(100)
+			.withLatency(latency, latency / 2)
+			.start();
+		try {
+			System.out.println(String.format("%s, %d calls per level, %d ms server latency", operation, calls, latency));
+			System.out.println(String.format("%11s %8s %8s %12s %10s %10s", "concurrency", "calls", "failures",
+					"calls/s", "p50 ms", "p99 ms"));
+			LoadTest test = new LoadTest(server.getEndpoint(), operation);
+			for (String level : levels) {
+				System.out.println(test.run(Integer.parseInt(level.trim()), calls));
+			}
+		} finally {
+			server.stop();
+		}
+	}
+
+}
@@ -0,0 +1,399 @@
+package org.biouno.figshare;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Base64;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embeddable, in-memory stand-in for the FigShare v1 API, for tests and
+ * load tests that must run offline. It verifies the OAuth 1.0 (HMAC-SHA1)
+ * signature of every request, and can add latency and fail a share of the
+ * requests on purpose. Listings carry an ETag, and are answered with a 304 when
+ * the client already has them.
+ *
+ * <p>It serves:</p>
+ * <ul>
+ * <li><code>GET /v1/my_data/articles</code>, optionally with <code>page</code> and <code>page_size</code></li>
+ * <li><code>GET /v1/my_data/articles/{id}</code></li>
+ * <li><code>POST /v1/my_data/articles</code></li>
+ * <li><code>PUT /v1/my_data/articles/{id}/files</code></li>
+ * </ul>
+ *
+ * @since 0.2
+ */
+public class MockFigShareServer {
+
+	static {
+		// without it, the JDK server holds small responses back for the delayed ACK (~40 ms)
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private static final Pattern ARTICLE = Pattern.compile("/v1/my_data/articles/(\\d+)");
+	private static final Pattern FILES = Pattern.compile("/v1/my_data/articles/(\\d+)/files");
+	private static final Pattern FILENAME = Pattern.compile("filename=\"([^\"]+)\"");
+	private static final Pattern AUTHORIZATION_PARAMETER = Pattern.compile("(\\w+)=\"([^\"]*)\"");
+
+	private final String consumerKey;
+	private final String consumerSecret;
+	private final String tokenKey;
+	private final String tokenSecret;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Map<Long, JsonObject> articles = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final AtomicLong nextFileId = new AtomicLong(1);
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger rejected = new AtomicInteger();
+	private final AtomicInteger injected = new AtomicInteger();
+	private final AtomicInteger notModified = new AtomicInteger();
+	private volatile long latencyMillis = 0L;
+	private volatile long latencyJitterMillis = 0L;
+	private volatile double errorRate = 0.0;
+	private volatile int errorStatus = 500;
+	private volatile boolean paging = true;
+
+	/**
+	 * @param threads number of threads serving requests
+	 */
+	public MockFigShareServer(String consumerKey, String consumerSecret, String tokenKey, String tokenSecret,
+			int threads) throws IOException {
+		this.consumerKey = consumerKey;
+		this.consumerSecret = consumerSecret;
+		this.tokenKey = tokenKey;
+		this.tokenSecret = tokenSecret;
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+		executor = Executors.newFixedThreadPool(threads);
+		server.setExecutor(executor);
+		server.createContext("/v1/my_data/articles", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					dispatch(exchange);
+				} catch (RuntimeException e) {
+					respond(exchange, 500, "{\"error\": \"" + e + "\"}");
+				}
+			}
+		});
+	}
+
+	/**
+	 * Add articles, copies of the article in articles.json.
+	 */
+	public MockFigShareServer withArticles(int count) throws IOException {
+		JsonObject template = new JsonParser().parse(Fixtures.read("/articles.json")).getAsJsonObject()
+				.get("items").getAsJsonArray().get(0).getAsJsonObject();
+		for (int i = 0; i < count; i++) {
+			JsonObject article = new JsonParser().parse(template.toString()).getAsJsonObject();
+			long id = nextId.getAndIncrement();
+			article.addProperty("article_id", id);
+			articles.put(id, article);
+		}
+		return this;
+	}
+
+	/**
+	 * Delay every response by a fixed time, plus a random time up to the jitter.
+	 */
+	public MockFigShareServer withLatency(long millis, long jitterMillis) {
+		latencyMillis = millis;
+		latencyJitterMillis = jitterMillis;
+		return this;
+	}
+
+	/**
+	 * Fail a share of the requests, between 0 and 1, with an HTTP status.
+	 */
+	public MockFigShareServer withErrors(double rate, int status) {
+		errorRate = rate;
+		errorStatus = status;
+		return this;
+	}
+
+	/**
+	 * Page listings when asked to, or answer every listing with all the articles.
+	 */
+	public MockFigShareServer withPaging(boolean paging) {
+		this.paging = paging;
+		return this;
+	}
+
+	public MockFigShareServer start() {
+		server.start();
+		return this;
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	public String getEndpoint() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	public int getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * @return number of requests rejected because of a bad OAuth signature
+	 */
+	public int getRejectedCount() {
+		return rejected.get();
+	}
+
+	/**
+	 * @return number of requests failed on purpose
+	 */
+	public int getInjectedErrorCount() {
+		return injected.get();
+	}
+
+	/**
+	 * @return number of listings answered with a 304, because the client had them already
+	 */
+	public int getNotModifiedCount() {
+		return notModified.get();
+	}
+
+	public JsonObject getArticle(long id) {
+		return articles.get(id);
+	}
+
+	public void removeArticle(long id) {
+		articles.remove(id);
+	}
+
+	private void dispatch(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+		if (!verifySignature(exchange)) {
+			rejected.incrementAndGet();
+			respond(exchange, 401, "{\"error\": \"Invalid OAuth signature\"}");
+			return;
+		}
+		sleep();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		if (errorRate > 0 && random.nextDouble() < errorRate) {
+			injected.incrementAndGet();
+			respond(exchange, errorStatus, "{\"error\": \"Injected failure\"}");
+			return;
+		}
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+		Matcher files = FILES.matcher(path);
+		Matcher article = ARTICLE.matcher(path);
+		if ("GET".equals(method) && path.equals("/v1/my_data/articles")) {
+			listArticles(exchange);
+		} else if ("POST".equals(method) && path.equals("/v1/my_data/articles")) {
+			createArticle(exchange, new String(body, "UTF-8"));
+		} else if ("GET".equals(method) && article.matches()) {
+			JsonObject found = articles.get(Long.parseLong(article.group(1)));
+			if (found == null) {
+				respond(exchange, 404, "{\"error\": \"No such article\"}");
+			} else {
+				respond(exchange, 200, listing(Collections.singletonList(found)).toString());
+			}
+		} else if ("PUT".equals(method) && files.matches()) {
+			uploadFile(exchange, Long.parseLong(files.group(1)), new String(body, "ISO-8859-1"));
+		} else {
+			respond(exchange, 404, "{\"error\": \"Not found\"}");
+		}
+	}
+
+	private void listArticles(HttpExchange exchange) throws IOException {
+		List<JsonObject> all = new ArrayList<>(new TreeMap<>(articles).values());
+		Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+		if (paging && query.containsKey("page") && query.containsKey("page_size")) {
+			int page = Integer.parseInt(query.get("page"));
+			int pageSize = Integer.parseInt(query.get("page_size"));
+			int from = Math.min(all.size(), (page - 1) * pageSize);
+			all = all.subList(from, Math.min(all.size(), from + pageSize));
+		}
+		// a weak validator is enough for the client cache
+		String body = listing(all).toString();
+		String etag = "W/\"" + Integer.toHexString(body.hashCode()) + "\"";
+		exchange.getResponseHeaders().set("ETag", etag);
+		if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			notModified.incrementAndGet();
+			respond(exchange, 304, "");
+		} else {
+			respond(exchange, 200, body);
+		}
+	}
+
+	private void createArticle(HttpExchange exchange, String body) throws IOException {
+		JsonObject request = new JsonParser().parse(body).getAsJsonObject();
+		JsonObject article = new JsonParser().parse(Fixtures.read("/article.json")).getAsJsonObject();
+		long id = nextId.getAndIncrement();
+		article.addProperty("article_id", id);
+		article.add("title", request.get("title"));
+		article.add("description", request.get("description"));
+		article.add("defined_type", request.get("defined_type"));
+		articles.put(id, article);
+		respond(exchange, 200, article.toString());
+	}
+
+	private void uploadFile(HttpExchange exchange, long articleId, String body) throws IOException {
+		JsonObject article = articles.get(articleId);
+		if (article == null) {
+			respond(exchange, 404, "{\"error\": \"No such article\"}");
+			return;
+		}
+		Matcher matcher = FILENAME.matcher(body);
+		JsonObject file = new JsonObject();
+		file.addProperty("id", nextFileId.getAndIncrement());
+		file.addProperty("name", matcher.find() ? matcher.group(1) : "unnamed");
+		file.addProperty("size", body.length() + " B");
+		file.addProperty("mime_type", "application/octet-stream");
+		synchronized (article) {
+			if (!article.has("files")) {
+				article.add("files", new JsonArray());
+			}
+			article.getAsJsonArray("files").add(file);
+		}
+		respond(exchange, 200, file.toString());
+	}
+
+	private static JsonObject listing(List<JsonObject> items) {
+		JsonArray array = new JsonArray();
+		for (JsonObject item : items) {
+			array.add(item);
+		}
+		JsonObject listing = new JsonObject();
+		listing.addProperty("count", items.size());
+		listing.add("items", array);
+		return listing;
+	}
+
+	private void sleep() {
+		long delay = latencyMillis;
+		if (latencyJitterMillis > 0) {
+			delay += ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1);
+		}
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		if (bytes.length == 0) {
+			// the JDK server has no body stream for a 304, so close the exchange itself
+			exchange.sendResponseHeaders(status, -1);
+			exchange.close();
+			return;
+		}
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+
+	// --- OAuth 1.0
+
+	/**
+	 * Check the HMAC-SHA1 signature of the Authorization header, computed over
+	 * the method, the URL and the OAuth and query parameters.
+	 */
+	boolean verifySignature(HttpExchange exchange) throws UnsupportedEncodingException {
+		String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+		if (authorization == null || !authorization.startsWith("OAuth ")) {
+			return false;
+		}
+		Map<String, String> oauth = new TreeMap<>();
+		Matcher matcher = AUTHORIZATION_PARAMETER.matcher(authorization.substring("OAuth ".length()));
+		while (matcher.find()) {
+			oauth.put(matcher.group(1), URLDecoder.decode(matcher.group(2), "UTF-8"));
+		}
+		String signature = oauth.remove("oauth_signature");
+		oauth.remove("realm");
+		if (signature == null || !consumerKey.equals(oauth.get("oauth_consumer_key"))
+				|| !tokenKey.equals(oauth.get("oauth_token"))
+				|| !"HMAC-SHA1".equals(oauth.get("oauth_signature_method"))) {
+			return false;
+		}
+		// parameters, sorted by encoded name and value
+		List<String> parameters = new ArrayList<>();
+		for (Map.Entry<String, String> entry : oauth.entrySet()) {
+			parameters.add(encode(entry.getKey()) + "=" + encode(entry.getValue()));
+		}
+		for (Map.Entry<String, String> entry : parseQuery(exchange.getRequestURI().getRawQuery()).entrySet()) {
+			parameters.add(encode(entry.getKey()) + "=" + encode(entry.getValue()));
+		}
+		Collections.sort(parameters);
+		StringBuilder normalized = new StringBuilder();
+		for (String parameter : parameters) {
+			if (normalized.length() > 0) {
+				normalized.append('&');
+			}
+			normalized.append(parameter);
+		}
+		URI uri = exchange.getRequestURI();
+		String host = exchange.getRequestHeaders().getFirst("Host");
+		String baseString = exchange.getRequestMethod().toUpperCase() + "&"
+				+ encode("http://" + host.toLowerCase() + uri.getRawPath()) + "&" + encode(normalized.toString());
+		try {
+			Mac mac = Mac.getInstance("HmacSHA1");
+			mac.init(new SecretKeySpec((encode(consumerSecret) + "&" + encode(tokenSecret)).getBytes("UTF-8"), "HmacSHA1"));
+			String expected = new String(Base64.encodeBase64(mac.doFinal(baseString.getBytes("UTF-8"))), "US-ASCII");
+			return expected.equals(signature);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+		Map<String, String> query = new TreeMap<>();
+		if (rawQuery != null && !rawQuery.isEmpty()) {
+			for (String pair : rawQuery.split("&")) {
+				int equals = pair.indexOf('=');
+				String name = equals < 0 ? pair : pair.substring(0, equals);
+				String value = equals < 0 ? "" : pair.substring(equals + 1);
+				query.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+			}
+		}
+		return query;
+	}
+
+	private static String encode(String value) throws UnsupportedEncodingException {
+		return URLEncoder.encode(value, "UTF-8").replace("+", "%20").replace("*", "%2A").replace("%7E", "~");
+	}
+
+}
@@ -0,0 +1,109 @@
+package org.biouno.figshare;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server standing in for the FigShare API in tests. It records
+ * the client ports it sees, so tests can tell whether connections are reused.
+ *
+ * @since 0.2
+ */
+public class StubServer {
+
+	static {
+		// without it, the JDK server holds small responses back for the delayed ACK (~40 ms)
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+	private final AtomicInteger requests = new AtomicInteger();
+
+	public StubServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+	}
+
+	/**
+	 * Serve a fixed body for a path (and anything under it).
+	 */
+	public StubServer respond(String path, final int status, final String body) {
+		return handle(path, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				send(exchange, status, body);
+			}
+		});
+	}
+
+	public StubServer handle(String path, final HttpHandler handler) {
+		server.createContext(path, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				clientPorts.add(exchange.getRemoteAddress().getPort());
+				handler.handle(exchange);
+			}
+		});
+		return this;
+	}
+
+	public StubServer start() {
+		server.start();
+		return this;
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the endpoint URL to give to the {@link FigShareClient}
+	 */
+	public String getEndpoint() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	public int getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * @return number of distinct client ports, i.e. TCP connections, seen so far
+	 */
+	public int getConnectionCount() {
+		return clientPorts.size();
+	}
+
+	public static void send(HttpExchange exchange, int status, String body) throws IOException {
+		// drain the request body, so the connection can be reused
+		byte[] buffer = new byte[8192];
+		while (exchange.getRequestBody().read(buffer) != -1) {
+			// discard
+		}
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		if (bytes.length > 0) {
+			out.write(bytes);
+		}
+		out.close();
+	}
+
+}
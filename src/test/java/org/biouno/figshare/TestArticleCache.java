@@ -0,0 +1,176 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.biouno.figshare.v1.model.Article;
+import org.biouno.figshare.v1.model.ModelTypeAdapterFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Tests for the cache of article listings.
+ *
+ * @since 0.2
+ */
+public class TestArticleCache {
+
+	private MockFigShareServer server;
+	private File directory;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new MockFigShareServer("ck", "cs", "tk", "ts", 4).withArticles(20).start();
+		directory = File.createTempFile("figshare", "cache");
+		directory.delete();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+		FileUtils.deleteQuietly(directory);
+	}
+	
+	private FigShareClient client(String endpoint, int maxCachedArticles, File directory) {
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxCachedArticles(maxCachedArticles);
+		configuration.setArticleCacheDirectory(directory);
+		return FigShareClient.to(endpoint, 1, "ck", "cs", "tk", "ts", configuration);
+	}
+	
+	@Test
+	public void testUnchangedListingIsRevalidated() throws Exception {
+		try (FigShareClient client = client(server.getEndpoint(), 1000, null)) {
+			List<Article> first = client.articles();
+			assertEquals(20, first.size());
+			assertSame(first, client.articles());
+			assertSame(first, client.articles());
+			assertEquals(3, server.getRequestCount());
+			assertEquals(2, server.getNotModifiedCount());
+			// a changed listing is fetched again
+			client.createArticle("New", "A new article", "dataset");
+			assertEquals(21, client.articles().size());
+			assertEquals(2, server.getNotModifiedCount());
+		}
+	}
+	
+	@Test
+	public void testListingWithoutValidatorsIsKeptUntilItExpires() throws Exception {
+		StubServer stub = new StubServer().respond("/v1/my_data/articles", 200, Fixtures.articles(1, 3)).start();
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxCachedArticles(1000);
+		configuration.setArticleCacheTtlMillis(1000L);
+		try (FigShareClient client = FigShareClient.to(stub.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration)) {
+			assertEquals(3, client.articles().size());
+			assertEquals(3, client.articles().size());
+			assertEquals(1, stub.getRequestCount());
+			Thread.sleep(1200L);
+			assertEquals(3, client.articles().size());
+			assertEquals(2, stub.getRequestCount());
+		} finally {
+			stub.stop();
+		}
+	}
+	
+	@Test
+	public void testLeastRecentlyUsedPagesAreEvicted() throws Exception {
+		try (FigShareClient client = client(server.getEndpoint(), 10, null)) {
+			client.articles(1, 5);
+			client.articles(2, 5);
+			client.articles(1, 5);
+			// the second page is the least recently used
+			client.articles(3, 5);
+			assertEquals(4, server.getRequestCount());
+			client.articles(1, 5);
+			assertEquals(2, server.getNotModifiedCount());
+			client.articles(2, 5);
+			assertEquals(2, server.getNotModifiedCount());
+			assertEquals(6, server.getRequestCount());
+		}
+	}
+	
+	@Test
+	public void testListingIsReadBackFromDisk() throws Exception {
+		try (FigShareClient client = client(server.getEndpoint(), 1000, directory)) {
+			assertEquals(20, client.articles().size());
+		}
+		assertEquals(2, directory.list().length);
+		try (FigShareClient client = client(server.getEndpoint(), 1000, directory)) {
+			List<Article> articles = client.articles();
+			assertEquals(20, articles.size());
+			assertEquals(Long.valueOf(1L), articles.get(0).getArticleId());
+		}
+		assertEquals(1, server.getNotModifiedCount());
+	}
+	
+	@Test
+	public void testListingsOfOtherUsersAreNotShared() throws Exception {
+		Gson gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+		String url = server.getEndpoint() + "v1/my_data/articles";
+		String json = Fixtures.articles(1, 3);
+		ArticleCache mine = new ArticleCache(gson, server.getEndpoint(), 1, "tk", 1000, 60000L, directory);
+		mine.put(url, json, Collections.<Article>emptyList(), "\"1\"", null, System.currentTimeMillis());
+		ArticleCache same = new ArticleCache(gson, server.getEndpoint(), 1, "tk", 1000, 60000L, directory);
+		assertEquals("\"1\"", same.get(url).getETag());
+		assertEquals(3, same.get(url).getArticles().size());
+		ArticleCache other = new ArticleCache(gson, server.getEndpoint(), 1, "other", 1000, 60000L, directory);
+		assertNull(other.get(url));
+	}
+	
+	@Test
+	public void testConcurrentFetchesKeepTheirValidators() throws Exception {
+		final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+		final String url = server.getEndpoint() + "v1/my_data/articles";
+		final ArticleCache cache = new ArticleCache(gson, server.getEndpoint(), 1, "tk", 1000, 60000L, directory);
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Void>> fetches = new ArrayList<>();
+			for (int i = 1; i <= 4; i++) {
+				final int count = i;
+				final String json = Fixtures.articles(1, count);
+				fetches.add(threads.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (int j = 0; j < 100; j++) {
+							cache.put(url, json, Collections.<Article>emptyList(), "\"" + count + "\"", null,
+									System.currentTimeMillis());
+							// read back by another client sharing the directory
+							ArticleCache.Entry entry = new ArticleCache(gson, server.getEndpoint(), 1, "tk", 1000,
+									60000L, directory).get(url);
+							if (entry != null) {
+								assertEquals("\"" + entry.getArticles().size() + "\"", entry.getETag());
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> fetch : fetches) {
+				fetch.get();
+			}
+		} finally {
+			threads.shutdownNow();
+		}
+		// the listing on disk has the validators it was sent with
+		ArticleCache.Entry entry = new ArticleCache(gson, server.getEndpoint(), 1, "tk", 1000, 60000L, directory)
+				.get(url);
+		assertEquals("\"" + entry.getArticles().size() + "\"", entry.getETag());
+		assertEquals(2, directory.list().length);
+	}
+
+}
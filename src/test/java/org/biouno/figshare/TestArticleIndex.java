@@ -0,0 +1,194 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biouno.figshare.v1.model.Article;
+import org.biouno.figshare.v1.model.ModelTypeAdapterFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Tests for the index of fetched articles.
+ *
+ * @since 0.2
+ */
+public class TestArticleIndex {
+
+	private Gson gson;
+	private ArticleIndex index;
+
+	@Before
+	public void setUp() {
+		gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+		List<Article> articles = new ArrayList<>();
+		for (long id = 1; id <= 1000; id++) {
+			articles.add(article(id, id % 2 == 0 ? "Public" : "Private", id % 3 == 0 ? "dataset" : "figure",
+					id % 10, id % 7, "tag" + (id % 5), "tag" + (id % 4)));
+		}
+		index = new ArticleIndex(articles);
+	}
+
+	private Article article(long id, String status, String definedType, long category, long author, String... tags) {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"article_id\": ").append(id)
+			.append(", \"status\": \"").append(status)
+			.append("\", \"defined_type\": \"").append(definedType)
+			.append("\", \"categories\": [{\"id\": ").append(category).append(", \"name\": \"c").append(category)
+			.append("\"}], \"authors\": [{\"id\": ").append(author).append(", \"full_name\": \"a").append(author)
+			.append("\"}], \"tags\": [");
+		for (int i = 0; i < tags.length; i++) {
+			if (i > 0) {
+				json.append(", ");
+			}
+			json.append("{\"id\": ").append(tags[i].hashCode()).append(", \"name\": \"").append(tags[i]).append("\"}");
+		}
+		json.append("]}");
+		return gson.fromJson(json.toString(), Article.class);
+	}
+
+	private static void assertMatches(List<Article> found, long count, Filter filter) {
+		long previous = 0L;
+		for (Article article : found) {
+			long id = article.getArticleId().longValue();
+			assertTrue("Not sorted by ID", id > previous);
+			assertTrue("Does not match: " + id, filter.matches(id));
+			previous = id;
+		}
+		assertEquals(count, found.size());
+	}
+
+	private interface Filter {
+		boolean matches(long id);
+	}
+
+	@Test
+	public void testSingleField() {
+		assertEquals(1000, index.size());
+		assertMatches(index.byStatus("Public"), 500, new Filter() {
+			@Override
+			public boolean matches(long id) {
+				return id % 2 == 0;
+			}
+		});
+		assertMatches(index.byDefinedType("dataset"), 333, new Filter() {
+			@Override
+			public boolean matches(long id) {
+				return id % 3 == 0;
+			}
+		});
+		assertMatches(index.byCategory(3), 100, new Filter() {
+			@Override
+			public boolean matches(long id) {
+				return id % 10 == 3;
+			}
+		});
+		assertMatches(index.byAuthor(0), 142, new Filter() {
+			@Override
+			public boolean matches(long id) {
+				return id % 7 == 0;
+			}
+		});
+		// tag0 is on multiples of 5 and of 4
+		assertMatches(index.byTagName("tag0"), 400, new Filter() {
+			@Override
+			public boolean matches(long id) {
+				return id % 5 == 0 || id % 4 == 0;
+			}
+		});
+		assertEquals(index.byTagName("tag1"), index.byTagId("tag1".hashCode()));
+		assertTrue(index.byTagName("missing").isEmpty());
+		assertTrue(index.byStatus("public").isEmpty());
+	}
+
+	@Test
+	public void testIntersection() {
+		assertMatches(index.query().status("Public").definedType("dataset").category(6).author(3).find(), 5,
+				new Filter() {
+					@Override
+					public boolean matches(long id) {
+						return id % 6 == 0 && id % 10 == 6 && id % 7 == 3;
+					}
+				});
+		assertMatches(index.query().tagName("tag1").tagName("tag2").find(), 100, new Filter() {
+			@Override
+			public boolean matches(long id) {
+				return id % 5 == 1 && id % 4 == 2 || id % 5 == 2 && id % 4 == 1;
+			}
+		});
+		assertTrue(index.query().status("Public").status("Private").find().isEmpty());
+		assertTrue(index.query().status("Public").tagName("missing").find().isEmpty());
+		assertEquals(1000, index.query().find().size());
+		List<Article> limited = index.query().status("Public").limit(3).find();
+		assertEquals(3, limited.size());
+		assertEquals(Long.valueOf(6L), limited.get(2).getArticleId());
+	}
+
+	@Test
+	public void testIncrementalUpdates() {
+		assertEquals(100, index.byCategory(3).size());
+		Article previous = index.add(article(3, "Public", "figure", 42, 0, "moved"));
+		assertEquals(Long.valueOf(3L), previous.getArticleId());
+		assertEquals(99, index.byCategory(3).size());
+		assertEquals(1, index.byCategory(42).size());
+		assertEquals(1, index.byTagName("moved").size());
+		assertEquals(501, index.byStatus("Public").size());
+		assertEquals(1000, index.size());
+
+		assertEquals(Long.valueOf(3L), index.remove(3).getArticleId());
+		assertNull(index.remove(3));
+		assertNull(index.get(3));
+		assertTrue(index.byCategory(42).isEmpty());
+		assertTrue(index.byTagName("moved").isEmpty());
+		assertEquals(500, index.byStatus("Public").size());
+		assertEquals(999, index.size());
+
+		for (long id = 1; id <= 1000; id++) {
+			index.remove(id);
+		}
+		assertEquals(0, index.size());
+		assertTrue(index.byStatus("Public").isEmpty());
+		index.add(article(7, "Public", "figure", 1, 1, "tag"));
+		assertEquals(1, index.query().status("Public").tagName("tag").find().size());
+	}
+
+	@Test
+	public void testNewestFirst() {
+		List<Article> articles = new ArrayList<>();
+		for (long id = 1000; id >= 1; id--) {
+			articles.add(article(id, id % 2 == 0 ? "Public" : "Private", "figure", id % 10, id % 7, "tag" + (id % 5),
+					"tag" + (id % 4), "tag" + (id % 5)));
+		}
+		ArticleIndex newestFirst = new ArticleIndex(articles);
+		assertMatches(newestFirst.byStatus("Public"), 500, new Filter() {
+			@Override
+			public boolean matches(long id) {
+				return id % 2 == 0;
+			}
+		});
+		assertMatches(newestFirst.query().tagName("tag0").category(4).find(), 50, new Filter() {
+			@Override
+			public boolean matches(long id) {
+				return (id % 5 == 0 || id % 4 == 0) && id % 10 == 4;
+			}
+		});
+		newestFirst.add(article(1001, "Public", "figure", 4, 1, "tag0"));
+		newestFirst.remove(4);
+		assertEquals(Long.valueOf(1001L), newestFirst.byCategory(4).get(99).getArticleId());
+		assertEquals(100, newestFirst.byCategory(4).size());
+		assertEquals(500, newestFirst.byStatus("Public").size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testArticlesNeedAnId() {
+		index.add(gson.fromJson("{\"title\": \"no id\"}", Article.class));
+	}
+
+}
@@ -0,0 +1,90 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.biouno.figshare.v1.model.Article;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the lookup of single articles.
+ *
+ * @since 0.2
+ */
+public class TestArticleLookup {
+
+	private MockFigShareServer server;
+	private FigShareClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new MockFigShareServer("ck", "cs", "tk", "ts", 4).withArticles(10).start();
+		client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts");
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.stop();
+	}
+	
+	@Test
+	public void testArticle() throws Exception {
+		Article article = client.article(7L);
+		assertEquals(Long.valueOf(7L), article.getArticleId());
+		assertEquals(1, server.getRequestCount());
+	}
+	
+	@Test
+	public void testMissingArticle() throws Exception {
+		try {
+			client.article(99L);
+			fail("Expected an exception for a missing article");
+		} catch (FigShareClientException expected) {
+			assertEquals("Article not found: 99", expected.getMessage());
+		}
+	}
+	
+	@Test
+	public void testConcurrentLookupsShareOneRequest() throws Exception {
+		server.withLatency(300L, 0L);
+		final int callers = 16;
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService threads = Executors.newFixedThreadPool(callers);
+		try {
+			List<Future<Article>> lookups = new ArrayList<>();
+			for (int i = 0; i < callers; i++) {
+				lookups.add(threads.submit(new Callable<Article>() {
+					@Override
+					public Article call() throws Exception {
+						start.await();
+						return client.article(3L);
+					}
+				}));
+			}
+			start.countDown();
+			Article first = lookups.get(0).get();
+			for (Future<Article> lookup : lookups) {
+				assertSame(first, lookup.get());
+			}
+		} finally {
+			threads.shutdownNow();
+		}
+		assertEquals(1, server.getRequestCount());
+		// once the lookup completed, the next one asks the server again
+		client.article(3L);
+		assertEquals(2, server.getRequestCount());
+	}
+
+}
@@ -0,0 +1,214 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.biouno.figshare.ArticleSearchIndex.Hit;
+import org.biouno.figshare.v1.model.Article;
+import org.biouno.figshare.v1.model.ModelTypeAdapterFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+/**
+ * Tests for the full text index of articles.
+ *
+ * @since 0.2
+ */
+public class TestArticleSearchIndex {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Gson gson;
+	private ArticleSearchIndex index;
+
+	@Before
+	public void setUp() throws Exception {
+		gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+		index = new ArticleSearchIndex(Arrays.asList(
+				article(1, "Violão", "A test guitar"),
+				article(2, "Guitar strings", "Nylon strings for a classical guitar, the VIOLAO"),
+				article(3, "Drums", "A drum kit, without any guitar"),
+				article(4, "Piano", "An upright piano"),
+				article(5, "Café data", "Coffee consumption, in cups per day")));
+	}
+
+	private Article article(long id, String title, String description) {
+		JsonObject json = new JsonObject();
+		json.addProperty("article_id", id);
+		json.addProperty("title", title);
+		json.addProperty("description_nohtml", description);
+		return gson.fromJson(json, Article.class);
+	}
+
+	private static List<Long> ids(List<Hit> hits) {
+		List<Long> ids = new ArrayList<>();
+		for (Hit hit : hits) {
+			ids.add(Long.valueOf(hit.getArticleId()));
+		}
+		return ids;
+	}
+
+	@Test
+	public void testTokenizer() {
+		List<String> terms = new ArrayList<>();
+		SearchTokenizer.tokenize("Violão, VIOLAO & café-au-lait (ﬁsh) 2015; Ñandú", terms);
+		assertEquals(Arrays.asList("violao", "violao", "cafe", "au", "lait", "fish", "2015", "nandu"), terms);
+		terms.clear();
+		SearchTokenizer.tokenize(null, terms);
+		SearchTokenizer.tokenize(" ,.; ", terms);
+		assertTrue(terms.isEmpty());
+	}
+
+	@Test
+	public void testAccentsAndCaseAreFolded() {
+		assertEquals(Arrays.asList(1L, 2L), ids(index.search("violao", 10)));
+		assertEquals(Arrays.asList(1L, 2L), ids(index.search("VIOLÃO", 10)));
+		assertEquals(Arrays.asList(5L), ids(index.search("cafe", 10)));
+		assertTrue(index.search("trumpet", 10).isEmpty());
+		assertTrue(index.search("", 10).isEmpty());
+	}
+
+	@Test
+	public void testRanking() {
+		// in the title of 2, which also has it twice
+		List<Hit> hits = index.search("guitar", 10);
+		assertEquals(Arrays.asList(2L, 1L, 3L), ids(hits));
+		assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+		// the article with both terms first
+		assertEquals(Arrays.asList(2L, 1L, 3L), ids(index.search("classical guitar", 10)));
+		assertEquals(Arrays.asList(2L, 1L), ids(index.search("classical guitar", 2)));
+		// a term in a short title counts more than common terms in a longer text
+		assertEquals(Arrays.asList(4L, 2L, 1L, 3L), ids(index.search("piano classical guitar", 10)));
+	}
+
+	@Test
+	public void testIncrementalUpdates() {
+		assertTrue(index.add(article(4, "Guitar amplifier", "Loud")));
+		assertEquals(5, index.size());
+		assertTrue(index.search("piano", 10).isEmpty());
+		assertTrue(ids(index.search("guitar", 10)).contains(4L));
+		assertTrue(index.remove(4));
+		assertFalse(index.remove(4));
+		assertFalse(index.contains(4));
+		assertEquals(4, index.size());
+		assertTrue(index.search("amplifier", 10).isEmpty());
+		assertFalse(index.add(article(6, null, null)));
+		assertEquals(5, index.size());
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		File file = new File(folder.getRoot(), "articles.idx");
+		index.save(file);
+		ArticleSearchIndex loaded = ArticleSearchIndex.load(file);
+		assertEquals(5, loaded.size());
+		assertTrue(loaded.contains(3));
+		assertFalse(loaded.contains(7));
+		for (String query : new String[] { "guitar", "violao", "classical piano guitar", "cafe", "nothing" }) {
+			List<Hit> expected = index.search(query, 10);
+			List<Hit> actual = loaded.search(query, 10);
+			assertEquals(query, ids(expected), ids(actual));
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(query, expected.get(i).getScore(), actual.get(i).getScore(), 1e-9);
+			}
+		}
+
+		// saving a loaded index copies it as it is
+		File copy = new File(folder.getRoot(), "copy.idx");
+		loaded.save(copy);
+		assertTrue(FileUtils.contentEquals(file, copy));
+
+		// and changing it copies it to memory first
+		assertTrue(loaded.remove(1));
+		loaded.add(article(7, "Ukulele", "A small guitar"));
+		// the description of 7 is shorter than the one of 3
+		assertEquals(Arrays.asList(2L, 7L, 3L), ids(loaded.search("guitar", 10)));
+		loaded.save(file);
+		assertEquals(Arrays.asList(7L), ids(ArticleSearchIndex.load(file).search("ukulele", 10)));
+		assertEquals(Arrays.asList(2L, 1L, 3L), ids(ArticleSearchIndex.load(copy).search("guitar", 10)));
+	}
+
+	@Test
+	public void testSaveAndLoadEmptyIndex() throws Exception {
+		File file = new File(folder.getRoot(), "empty.idx");
+		new ArticleSearchIndex().save(file);
+		ArticleSearchIndex loaded = ArticleSearchIndex.load(file);
+		assertEquals(0, loaded.size());
+		assertTrue(loaded.search("guitar", 10).isEmpty());
+	}
+
+	@Test
+	public void testLoadRejectsOtherFiles() throws Exception {
+		File file = folder.newFile("other.idx");
+		FileUtils.writeStringToFile(file, "not an index, but long enough", "UTF-8");
+		try {
+			ArticleSearchIndex.load(file);
+			fail("Expected the file to be rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Not a search index"));
+		}
+	}
+
+	@Test
+	public void testNewestFirst() throws Exception {
+		ArticleSearchIndex newestFirst = new ArticleSearchIndex(Arrays.asList(
+				article(5, "Café data", "Coffee consumption, in cups per day"),
+				article(4, "Piano", "An upright piano"),
+				article(3, "Drums", "A drum kit, without any guitar"),
+				article(2, "Guitar strings", "Nylon strings for a classical guitar, the VIOLAO"),
+				article(1, "Violão", "A test guitar")));
+		for (String query : new String[] { "guitar", "violao", "classical piano guitar", "a" }) {
+			assertEquals(query, ids(index.search(query, 10)), ids(newestFirst.search(query, 10)));
+		}
+		File ascending = new File(folder.getRoot(), "ascending.idx");
+		File descending = new File(folder.getRoot(), "descending.idx");
+		index.save(ascending);
+		newestFirst.remove(2);
+		newestFirst.add(article(2, "Guitar strings", "Nylon strings for a classical guitar, the VIOLAO"));
+		newestFirst.save(descending);
+		assertTrue(FileUtils.contentEquals(ascending, descending));
+	}
+
+	@Test
+	public void testLoadRejectsDamagedFiles() throws Exception {
+		File file = new File(folder.getRoot(), "articles.idx");
+		index.save(file);
+		byte[] saved = FileUtils.readFileToByteArray(file);
+
+		FileUtils.writeByteArrayToFile(file, Arrays.copyOf(saved, saved.length - 4));
+		assertCorrupt(file);
+
+		byte[] damaged = saved.clone();
+		// the postings offset of the first term, past the end of the file
+		int entry = 24 + 5 * 12 + 8;
+		damaged[entry] = 0x7f;
+		FileUtils.writeByteArrayToFile(file, damaged);
+		assertCorrupt(file);
+	}
+
+	private static void assertCorrupt(File file) {
+		try {
+			ArticleSearchIndex.load(file);
+			fail("Expected the file to be rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupt search index"));
+		}
+	}
+
+}
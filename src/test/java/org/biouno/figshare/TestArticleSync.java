@@ -0,0 +1,208 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.biouno.figshare.v1.model.Article;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Tests for the incremental sync of articles.
+ *
+ * @since 0.2
+ */
+public class TestArticleSync {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MockFigShareServer server;
+	private FigShareClient client;
+	private final Events events = new Events();
+
+	private static class Events implements SyncListener {
+		private final List<String> events = new ArrayList<>();
+
+		@Override
+		public void onAdded(Article article) {
+			events.add("added " + article.getArticleId());
+		}
+
+		@Override
+		public void onUpdated(Article article) {
+			events.add("updated " + article.getArticleId() + " version " + article.getVersion());
+		}
+
+		@Override
+		public void onDeleted(long articleId) {
+			events.add("deleted " + articleId);
+		}
+
+		List<String> take() {
+			List<String> taken = new ArrayList<>(events);
+			events.clear();
+			return taken;
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MockFigShareServer("ck", "cs", "tk", "ts", 4).withArticles(5).start();
+		client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testOnlyChangesAreFetched() throws Exception {
+		SyncState state = new SyncState();
+		ArticleSync sync = new ArticleSync(client, state);
+		SyncResult first = sync.sync(events);
+		assertEquals(5, first.getAdded());
+		assertEquals(5, state.size());
+		assertEquals(5, events.take().size());
+		// the listing and each article
+		assertEquals(6, server.getRequestCount());
+
+		SyncResult second = sync.sync(events);
+		assertEquals(0, second.getAdded() + second.getUpdated() + second.getDeleted());
+		assertEquals(5, second.getUnchanged());
+		assertTrue(events.take().isEmpty());
+		assertEquals(7, server.getRequestCount());
+
+		server.getArticle(2).addProperty("version", 2);
+		JsonObject file = new JsonObject();
+		file.addProperty("id", 1000);
+		file.addProperty("name", "new.csv");
+		file.addProperty("size", "1 KB");
+		JsonArray files = server.getArticle(4).getAsJsonArray("files");
+		files.add(file);
+		server.removeArticle(5);
+		client.createArticle("New", "A new article", "dataset");
+		SyncResult third = sync.sync(events);
+		assertEquals(1, third.getAdded());
+		assertEquals(2, third.getUpdated());
+		assertEquals(1, third.getDeleted());
+		assertEquals(2, third.getUnchanged());
+		assertTrue(third.getFailures().isEmpty());
+		assertEquals(Arrays.asList("updated 2 version 2", "updated 4 version 1", "added 6", "deleted 5"), events.take());
+		assertEquals(Long.valueOf(2L), state.getVersion(2));
+		assertFalse(state.contains(5));
+		// the creation, the listing and the three changed articles
+		assertEquals(12, server.getRequestCount());
+	}
+
+	@Test
+	public void testStateIsSaved() throws Exception {
+		File file = new File(folder.getRoot(), "articles.sync");
+		SyncState state = SyncState.load(file);
+		assertEquals(0, state.size());
+		new ArticleSync(client, state).sync(events);
+		state.save(file);
+
+		server.getArticle(1).addProperty("title", "Changed");
+		SyncState loaded = SyncState.load(file);
+		assertEquals(5, loaded.size());
+		assertEquals(Long.valueOf(1L), loaded.getVersion(3));
+		SyncResult result = new ArticleSync(client, loaded).sync(events);
+		assertEquals(1, result.getUpdated());
+		assertEquals(4, result.getUnchanged());
+	}
+
+	@Test
+	public void testFailedChangesAreRetried() throws Exception {
+		SyncState state = new SyncState();
+		ArticleSync sync = new ArticleSync(client, state);
+		sync.sync(events);
+		events.take();
+		server.getArticle(3).addProperty("version", 7);
+		try {
+			sync.sync(new Events() {
+				@Override
+				public void onUpdated(Article article) {
+					throw new IllegalStateException("Mirror is down");
+				}
+			});
+			fail("Expected the sync to stop");
+		} catch (IllegalStateException e) {
+			assertEquals(Long.valueOf(1L), state.getVersion(3));
+		}
+		sync.sync(events);
+		assertEquals(Arrays.asList("updated 3 version 7"), events.take());
+	}
+
+	@Test
+	public void testUnpagedListingDeletesNothing() throws Exception {
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setPageSize(2);
+		try (FigShareClient paging = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration)) {
+			SyncState state = new SyncState();
+			ArticleSync sync = new ArticleSync(paging, state);
+			SyncResult first = sync.sync(events);
+			assertTrue(first.isListingComplete());
+			assertEquals(5, first.getAdded());
+			events.take();
+
+			// a server that ignores paging may have cut the listing short
+			server.removeArticle(5);
+			server.withPaging(false);
+			SyncResult second = sync.sync(events);
+			assertFalse(second.isListingComplete());
+			assertEquals(0, second.getDeleted());
+			assertTrue(events.take().isEmpty());
+			assertTrue(state.contains(5));
+
+			server.withPaging(true);
+			SyncResult third = sync.sync(events);
+			assertTrue(third.isListingComplete());
+			assertEquals(Arrays.asList("deleted 5"), events.take());
+			assertFalse(state.contains(5));
+		}
+	}
+
+	@Test
+	public void testFailedListingDeletesNothing() throws Exception {
+		SyncState state = new SyncState();
+		ArticleSync sync = new ArticleSync(client, state);
+		sync.sync(events);
+		events.take();
+		server.removeArticle(5);
+		server.withErrors(1.0, 404);
+		try {
+			sync.sync(events);
+			fail("Expected the listing to fail");
+		} catch (FigShareHttpException e) {
+			assertEquals(404, e.getStatusCode());
+		}
+		assertTrue(events.take().isEmpty());
+		assertTrue(state.contains(5));
+	}
+
+	@Test
+	public void testHashCoversTheFiles() throws Exception {
+		Article article = client.article(1);
+		long hash = ArticleSync.hash(article);
+		assertEquals(hash, ArticleSync.hash(client.article(1)));
+		server.getArticle(1).getAsJsonArray("files").get(0).getAsJsonObject().addProperty("size", "121 KB");
+		assertTrue(hash != ArticleSync.hash(client.article(1)));
+	}
+
+}
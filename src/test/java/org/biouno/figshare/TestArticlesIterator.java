@@ -0,0 +1,71 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.StringReader;
+
+import org.biouno.figshare.v1.model.Article;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+/**
+ * Tests for iterating articles as they are read.
+ *
+ * @since 0.2
+ */
+public class TestArticlesIterator {
+
+	private StubServer server;
+	private FigShareClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer()
+			.respond("/v1/my_data/articles", 200, Fixtures.articles(1, 500))
+			.start();
+		client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts");
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.stop();
+	}
+	
+	@Test
+	public void testIterateAllArticles() throws Exception {
+		for (int run = 0; run < 2; run++) {
+			ArticleIterator articles = client.articlesIterator();
+			long expectedId = 1;
+			while (articles.hasNext()) {
+				Article article = articles.next();
+				assertEquals("Wrong article ID", Long.valueOf(expectedId++), article.getArticleId());
+			}
+			assertEquals("Wrong number of articles", 501, expectedId);
+			assertEquals("Connection was not released", 0, client.getConnectionPoolStats().getLeased());
+		}
+		assertEquals("Connection was not reused", 1, server.getConnectionCount());
+	}
+	
+	@Test
+	public void testCloseBeforeExhausted() throws Exception {
+		try (ArticleIterator articles = client.articlesIterator()) {
+			assertEquals("Wrong article ID", Long.valueOf(1L), articles.next().getArticleId());
+		}
+		assertEquals("Connection was not released", 0, client.getConnectionPoolStats().getLeased());
+		assertEquals("Wrong number of articles", 500, client.articles().size());
+	}
+	
+	@Test
+	public void testEmptyListing() throws Exception {
+		ArticleIterator articles = new ArticleIterator(new Gson(), new StringReader("{\"count\": 0, \"items\": []}"), null);
+		assertFalse("Listing should be empty", articles.hasNext());
+		articles = new ArticleIterator(new Gson(), new StringReader("{\"count\": 0}"), null);
+		assertFalse("Listing should be empty", articles.hasNext());
+	}
+	
+}
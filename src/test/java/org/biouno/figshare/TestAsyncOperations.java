@@ -0,0 +1,123 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.biouno.figshare.v1.model.Article;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for the asynchronous operations.
+ *
+ * @since 0.2
+ */
+public class TestAsyncOperations {
+
+	private StubServer server;
+	private FigShareClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		final String articles = Fixtures.read("/articles.json");
+		final String article = Fixtures.read("/article.json");
+		server = new StubServer()
+			.handle("/v1/my_data/articles", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					boolean post = "POST".equals(exchange.getRequestMethod());
+					StubServer.send(exchange, 200, post ? article : articles);
+				}
+			})
+			.start();
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setWorkerThreads(2);
+		client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.stop();
+	}
+	
+	@Test
+	public void testArticlesAsync() throws Exception {
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicReference<List<Article>> result = new AtomicReference<>();
+		Future<List<Article>> future = client.articlesAsync(new FigShareCallback<List<Article>>() {
+			@Override
+			public void completed(List<Article> articles) {
+				result.set(articles);
+				done.countDown();
+			}
+			@Override
+			public void failed(FigShareClientException exception) {
+				done.countDown();
+			}
+		});
+		assertEquals("Article ID doesn't match", Long.valueOf(123456789L), future.get(5, TimeUnit.SECONDS).get(0).getArticleId());
+		assertTrue("Callback not called", done.await(5, TimeUnit.SECONDS));
+		assertNotNull("Callback got no articles", result.get());
+	}
+	
+	@Test
+	public void testFanOut() throws Exception {
+		List<Future<Article>> futures = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			futures.add(client.createArticleAsync("title " + i, "description", "dataset"));
+		}
+		for (Future<Article> future : futures) {
+			assertEquals("Article ID doesn't match", Long.valueOf(123L), future.get(5, TimeUnit.SECONDS).getArticleId());
+		}
+		assertEquals("Wrong number of requests", 50, server.getRequestCount());
+	}
+	
+	@Test
+	public void testFailure() throws Exception {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		final AtomicReference<FigShareClientException> failure = new AtomicReference<>();
+		final CountDownLatch done = new CountDownLatch(1);
+		try (FigShareClient unreachable = FigShareClient.to("http://127.0.0.1:" + port + "/", 1, "ck", "cs", "tk", "ts")) {
+			Future<Article> future = unreachable.createArticleAsync("title", "description", "dataset", new FigShareCallback<Article>() {
+				@Override
+				public void completed(Article article) {
+					done.countDown();
+				}
+				@Override
+				public void failed(FigShareClientException exception) {
+					failure.set(exception);
+					done.countDown();
+				}
+			});
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail("Expected the operation to fail");
+			} catch (ExecutionException e) {
+				assertTrue("Wrong cause", e.getCause() instanceof FigShareClientException);
+			}
+			assertTrue("Callback not called", done.await(5, TimeUnit.SECONDS));
+			assertNotNull("Callback got no failure", failure.get());
+		}
+	}
+	
+}
@@ -0,0 +1,296 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.biouno.figshare.v1.model.Article;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for the timeouts, circuit breakers and bulkheads of the client.
+ *
+ * @since 0.2
+ */
+public class TestCircuitBreaker {
+
+	private StubServer server;
+	private volatile int listingStatus = 200;
+	private volatile long delayMillis = 0L;
+	private final AtomicInteger downloading = new AtomicInteger();
+	private int maxDownloading = 0;
+	
+	@Before
+	public void setUp() throws Exception {
+		final String articles = Fixtures.articles(1, 2);
+		final String article = Fixtures.read("/article.json");
+		server = new StubServer()
+			.handle("/v1/my_data/articles", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					pause(delayMillis);
+					if ("POST".equals(exchange.getRequestMethod())) {
+						StubServer.send(exchange, 200, article);
+					} else {
+						StubServer.send(exchange, listingStatus, listingStatus == 200 ? articles : "{\"error\": \"down\"}");
+					}
+				}
+			})
+			.handle("/files/", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					int current = downloading.incrementAndGet();
+					synchronized (downloading) {
+						maxDownloading = Math.max(maxDownloading, current);
+					}
+					// the headers come at once, the content slowly
+					exchange.sendResponseHeaders(200, 2000);
+					OutputStream out = exchange.getResponseBody();
+					out.write(new byte[1000]);
+					out.flush();
+					pause(500L);
+					// done before the client can read to the end, and send the next request
+					downloading.decrementAndGet();
+					out.write(new byte[1000]);
+					out.close();
+				}
+			})
+			.handle("/v1/my_data/articles/123/files", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					IOUtils.toByteArray(exchange.getRequestBody());
+					pause(500L);
+					StubServer.send(exchange, 200, "{\"id\": 1, \"name\": \"a.txt\"}");
+				}
+			})
+			.start();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+	
+	private static void pause(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	@Test
+	public void testStateTransitions() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 2, 100L);
+		breaker.allow(0L);
+		breaker.onFailure(0L);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		breaker.allow(1L);
+		breaker.onFailure(1L);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		try {
+			breaker.allow(50L);
+			fail("Expected the circuit to be open");
+		} catch (FigShareCircuitOpenException expected) {
+		}
+		// one trial call once the circuit has been open long enough
+		breaker.allow(101L);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		try {
+			breaker.allow(102L);
+			fail("Expected only one trial call");
+		} catch (FigShareCircuitOpenException expected) {
+		}
+		// a trial call that is never sent lets another caller try
+		breaker.cancel();
+		breaker.allow(102L);
+		breaker.onFailure(103L);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		breaker.allow(204L);
+		breaker.onSuccess();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+	
+	@Test
+	public void testOpenCircuitFailsFast() throws Exception {
+		listingStatus = 503;
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxRetries(0);
+		configuration.setCircuitBreakerFailureThreshold(3);
+		configuration.setCircuitBreakerOpenMillis(300L);
+		try (FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration)) {
+			for (int i = 0; i < 3; i++) {
+				try {
+					client.articles();
+					fail("Expected the listing to fail");
+				} catch (FigShareHttpException expected) {
+				}
+			}
+			try {
+				client.articles();
+				fail("Expected the circuit to be open");
+			} catch (FigShareCircuitOpenException expected) {
+			}
+			assertEquals(3, server.getRequestCount());
+			// other operations have circuits of their own
+			client.createArticle("title", "description", "dataset");
+			listingStatus = 200;
+			Thread.sleep(350L);
+			assertEquals(2, client.articles().size());
+			assertEquals(2, client.articles().size());
+		}
+	}
+	
+	@Test
+	public void testOpenCircuitDoesNotWaitOnTheBulkhead() throws Exception {
+		listingStatus = 503;
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxRetries(0);
+		configuration.setCircuitBreakerFailureThreshold(1);
+		configuration.setCircuitBreakerOpenMillis(60000L);
+		configuration.setMaxConcurrentMetadataRequests(1);
+		configuration.setConnectionRequestTimeoutMillis(2000L);
+		final FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration);
+		ExecutorService threads = Executors.newSingleThreadExecutor();
+		try {
+			try {
+				client.articles();
+				fail("Expected the listing to fail");
+			} catch (FigShareHttpException expected) {
+			}
+			// a slow creation takes the only metadata place
+			delayMillis = 1000L;
+			Future<Article> creation = threads.submit(new Callable<Article>() {
+				@Override
+				public Article call() throws Exception {
+					return client.createArticle("title", "description", "dataset");
+				}
+			});
+			Thread.sleep(100L);
+			long start = System.nanoTime();
+			try {
+				client.articles();
+				fail("Expected the circuit to be open");
+			} catch (FigShareCircuitOpenException expected) {
+			}
+			assertTrue("Open circuit waited on the bulkhead", System.nanoTime() - start < 300000000L);
+			creation.get();
+			assertEquals(2, server.getRequestCount());
+		} finally {
+			threads.shutdownNow();
+			client.close();
+		}
+	}
+	
+	@Test
+	public void testDownloadsDoNotStarveMetadataRequests() throws Exception {
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxConnectionsPerRoute(3);
+		configuration.setMaxConcurrentDownloads(2);
+		configuration.setMaxConcurrentMetadataRequests(1);
+		configuration.setDownloadConcurrency(4);
+		final FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration);
+		final List<org.biouno.figshare.v1.model.File> files = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			files.add(new org.biouno.figshare.v1.model.File("2000 B", null, Long.valueOf(i), null, "file" + i + ".bin",
+					server.getEndpoint() + "files/" + i));
+		}
+		final File directory = File.createTempFile("figshare", "downloads");
+		directory.delete();
+		ExecutorService threads = Executors.newSingleThreadExecutor();
+		try {
+			Future<List<BatchResult<org.biouno.figshare.v1.model.File, File>>> downloads = threads.submit(
+					new Callable<List<BatchResult<org.biouno.figshare.v1.model.File, File>>>() {
+						@Override
+						public List<BatchResult<org.biouno.figshare.v1.model.File, File>> call() {
+							return client.downloadFiles(files, directory);
+						}
+					});
+			Thread.sleep(150L);
+			// four slow downloads, but only two hold connections while their content streams
+			long start = System.nanoTime();
+			assertEquals(2, client.articles().size());
+			assertTrue("Listing waited for the downloads", System.nanoTime() - start < 400000000L);
+			for (BatchResult<org.biouno.figshare.v1.model.File, File> result : downloads.get()) {
+				assertTrue(String.valueOf(result.getError()), result.isSuccess());
+				assertEquals(2000L, result.getResult().length());
+			}
+			assertEquals(2, maxDownloading);
+		} finally {
+			threads.shutdownNow();
+			client.close();
+			FileUtils.deleteQuietly(directory);
+		}
+	}
+	
+	@Test
+	public void testSocketTimeout() throws Exception {
+		delayMillis = 2000L;
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxRetries(0);
+		configuration.setSocketTimeoutMillis(200L);
+		try (FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration)) {
+			long start = System.nanoTime();
+			try {
+				client.articles();
+				fail("Expected the listing to time out");
+			} catch (FigShareClientException expected) {
+			}
+			assertTrue(System.nanoTime() - start < 1500000000L);
+		}
+	}
+	
+	@Test
+	public void testUploadsDoNotStarveMetadataRequests() throws Exception {
+		final File upload = File.createTempFile("figshare", ".txt");
+		upload.deleteOnExit();
+		FileUtils.writeStringToFile(upload, "some data", "UTF-8");
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxConnectionsPerRoute(3);
+		configuration.setMaxConcurrentUploads(2);
+		configuration.setMaxConcurrentMetadataRequests(1);
+		final FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration);
+		ExecutorService threads = Executors.newFixedThreadPool(6);
+		try {
+			List<Future<String>> uploads = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				uploads.add(threads.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return client.uploadFile(123L, upload).getName();
+					}
+				}));
+			}
+			Thread.sleep(100L);
+			// six slow uploads are waiting, but the listing has a connection of its own
+			long start = System.nanoTime();
+			assertEquals(2, client.articles().size());
+			assertTrue("Listing waited for the uploads", System.nanoTime() - start < 400000000L);
+			for (Future<String> name : uploads) {
+				assertEquals("a.txt", name.get());
+			}
+		} finally {
+			threads.shutdownNow();
+			client.close();
+		}
+	}
+
+}
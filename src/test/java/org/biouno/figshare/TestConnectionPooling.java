@@ -0,0 +1,64 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for the pooled HTTP connections of the client.
+ *
+ * @since 0.2
+ */
+public class TestConnectionPooling {
+
+	private StubServer server;
+	private FigShareClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		final String articles = FileUtils.readFileToString(new File(getClass().getResource("/articles.json").getFile()), "UTF-8");
+		final String article = FileUtils.readFileToString(new File(getClass().getResource("/article.json").getFile()), "UTF-8");
+		server = new StubServer()
+			.respond("/v1/my_data/articles/123/files", 200, "{\"id\": 1, \"name\": \"a.txt\"}")
+			.handle("/v1/my_data/articles", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					boolean post = "POST".equals(exchange.getRequestMethod());
+					StubServer.send(exchange, 200, post ? article : articles);
+				}
+			})
+			.start();
+		client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts");
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.stop();
+	}
+	
+	@Test
+	public void testConnectionIsReusedAcrossCalls() throws Exception {
+		File upload = File.createTempFile("figshare", ".txt");
+		upload.deleteOnExit();
+		FileUtils.writeStringToFile(upload, "some data", "UTF-8");
+		for (int i = 0; i < 5; i++) {
+			assertEquals(Long.valueOf(123456789L), client.articles().get(0).getArticleId());
+			assertEquals(Long.valueOf(123L), client.createArticle("title", "description", "dataset").getArticleId());
+			assertEquals("a.txt", client.uploadFile(123L, upload).getName());
+		}
+		assertEquals("Wrong number of requests", 15, server.getRequestCount());
+		assertEquals("Connection was not reused", 1, server.getConnectionCount());
+		assertEquals("Connection was not released", 0, client.getConnectionPoolStats().getLeased());
+	}
+	
+}
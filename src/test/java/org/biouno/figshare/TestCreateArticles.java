@@ -0,0 +1,103 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.biouno.figshare.v1.model.Article;
+import org.biouno.figshare.v1.model.ArticleDraft;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for creating many articles at once.
+ *
+ * @since 0.2
+ */
+public class TestCreateArticles {
+
+	private StubServer server;
+	private final AtomicInteger ids = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer()
+			.handle("/v1/my_data/articles", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					JsonObject draft = new JsonParser().parse(IOUtils.toString(exchange.getRequestBody(), "UTF-8")).getAsJsonObject();
+					int current = inFlight.incrementAndGet();
+					try {
+						synchronized (maxInFlight) {
+							maxInFlight.set(Math.max(maxInFlight.get(), current));
+						}
+						Thread.sleep(20);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						inFlight.decrementAndGet();
+					}
+					if ("broken".equals(draft.get("title").getAsString())) {
+						// drop the connection without a response
+						exchange.close();
+						return;
+					}
+					JsonObject article = new JsonObject();
+					article.addProperty("article_id", ids.incrementAndGet());
+					article.add("title", draft.get("title"));
+					article.add("defined_type", draft.get("defined_type"));
+					StubServer.send(exchange, 200, article.toString());
+				}
+			})
+			.start();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+	
+	@Test
+	public void testCreateArticles() throws Exception {
+		List<ArticleDraft> drafts = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			drafts.add(new ArticleDraft(i == 7 ? "broken" : "Draft " + i, "Description " + i, "dataset"));
+		}
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setCreateConcurrency(3);
+		try (FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration)) {
+			List<BatchResult<ArticleDraft, Article>> results = client.createArticles(drafts);
+			assertEquals(30, results.size());
+			for (int i = 0; i < 30; i++) {
+				BatchResult<ArticleDraft, Article> result = results.get(i);
+				assertEquals(drafts.get(i), result.getInput());
+				if (i == 7) {
+					assertFalse(result.isSuccess());
+					assertTrue(result.getError() instanceof FigShareClientException);
+				} else {
+					assertTrue(result.isSuccess());
+					assertEquals("Draft " + i, result.getResult().getTitle());
+				}
+			}
+		}
+		assertEquals(29, ids.get());
+		assertTrue("Too many articles created at once: " + maxInFlight.get(), maxInFlight.get() <= 3);
+		// the dropped connection is the only one not reused
+		assertTrue("Connections were not reused: " + server.getConnectionCount(), server.getConnectionCount() <= 4);
+	}
+
+}
@@ -0,0 +1,343 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for file downloads in parallel ranges, that resume after a failure.
+ *
+ * @since 0.2
+ */
+public class TestDownloadFiles {
+
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private StubServer server;
+	private FigShareClient client;
+	private final Map<String, byte[]> contents = new HashMap<>();
+	private final Map<String, String> etags = new HashMap<>();
+	private final List<Long> ranges = Collections.synchronizedList(new ArrayList<Long>());
+	private volatile boolean rangesSupported = true;
+	private volatile long failFrom = -1L;
+	private volatile long holdMillis = 0L;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer()
+			.handle("/files/", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					int current = inFlight.incrementAndGet();
+					try {
+						synchronized (maxInFlight) {
+							maxInFlight.set(Math.max(maxInFlight.get(), current));
+						}
+						if (holdMillis > 0) {
+							Thread.sleep(holdMillis);
+						}
+						serveFile(exchange);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException(e);
+					} finally {
+						inFlight.decrementAndGet();
+					}
+				}
+
+				private void serveFile(HttpExchange exchange) throws IOException {
+					String path = exchange.getRequestURI().getPath();
+					byte[] content;
+					String etag;
+					synchronized (contents) {
+						content = contents.get(path);
+						etag = etags.get(path);
+					}
+					if (content == null) {
+						StubServer.send(exchange, 404, "{\"error\": \"not found\"}");
+						return;
+					}
+					String range = exchange.getRequestHeaders().getFirst("Range");
+					String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+					exchange.getResponseHeaders().set("ETag", etag);
+					Matcher matcher = range != null ? RANGE.matcher(range) : null;
+					if (matcher == null || !rangesSupported || !matcher.matches()
+							|| (ifRange != null && !ifRange.equals(etag))) {
+						send(exchange, 200, content, 0, content.length);
+						return;
+					}
+					long start = Long.parseLong(matcher.group(1));
+					long end = Math.min(Long.parseLong(matcher.group(2)), content.length - 1);
+					if (start >= content.length) {
+						StubServer.send(exchange, 416, "");
+						return;
+					}
+					ranges.add(start);
+					if (failFrom >= 0 && start >= failFrom) {
+						StubServer.send(exchange, 403, "{\"error\": \"forbidden\"}");
+						return;
+					}
+					exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+					send(exchange, 206, content, (int) start, (int) (end - start + 1));
+				}
+			})
+			.start();
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setDownloadSegmentSize(1000L);
+		configuration.setDownloadSegmentConcurrency(4);
+		client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.stop();
+	}
+
+	private static void send(HttpExchange exchange, int status, byte[] content, int offset, int length)
+			throws IOException {
+		exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(content, offset, length);
+		out.close();
+	}
+
+	private org.biouno.figshare.v1.model.File serve(String name, byte[] content, String size) {
+		synchronized (contents) {
+			contents.put("/files/" + name, content);
+			etags.put("/files/" + name, "\"" + Arrays.hashCode(content) + "\"");
+		}
+		return new org.biouno.figshare.v1.model.File(size, null, Long.valueOf(name.hashCode()), null, name,
+				server.getEndpoint() + "files/" + name);
+	}
+
+	private static byte[] random(int length, long seed) {
+		byte[] content = new byte[length];
+		new Random(seed).nextBytes(content);
+		return content;
+	}
+
+	private static void assertNoPartialFiles(File target) {
+		assertFalse(new File(target.getPath() + ".part").exists());
+		assertFalse(new File(target.getPath() + ".part.properties").exists());
+	}
+
+	@Test
+	public void testRangesAreDownloadedInParallel() throws Exception {
+		// 10.25 KB is 10496 bytes, give or take half of 10.24 bytes
+		byte[] content = random(10500, 1L);
+		File target = new File(folder.getRoot(), "data.bin");
+		assertEquals(target, client.downloadFile(serve("data.bin", content, "10.25 KB"), target));
+		assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+		assertNoPartialFiles(target);
+		assertEquals(11, ranges.size());
+		Collections.sort(ranges);
+		for (int i = 0; i < ranges.size(); i++) {
+			assertEquals(Long.valueOf(i * 1000L), ranges.get(i));
+		}
+	}
+
+	@Test
+	public void testSmallFileIsOneRequest() throws Exception {
+		byte[] content = random(700, 2L);
+		File target = new File(folder.getRoot(), "small.bin");
+		client.downloadFile(serve("small.bin", content, "700 B"), target);
+		assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+		assertEquals(1, server.getRequestCount());
+		assertNoPartialFiles(target);
+	}
+
+	@Test
+	public void testServerWithoutRanges() throws Exception {
+		rangesSupported = false;
+		byte[] content = random(5000, 3L);
+		File target = new File(folder.getRoot(), "whole.bin");
+		client.downloadFile(serve("whole.bin", content, "4.88 KB"), target);
+		assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+		assertEquals(1, server.getRequestCount());
+		assertNoPartialFiles(target);
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		File target = new File(folder.getRoot(), "empty.bin");
+		client.downloadFile(serve("empty.bin", new byte[0], "0 KB"), target);
+		assertTrue(target.isFile());
+		assertEquals(0L, target.length());
+		assertNoPartialFiles(target);
+	}
+
+	@Test
+	public void testResumeAfterFailure() throws Exception {
+		byte[] content = random(10500, 4L);
+		org.biouno.figshare.v1.model.File file = serve("resume.bin", content, "10.25 KB");
+		File target = new File(folder.getRoot(), "resume.bin");
+		failFrom = 5000L;
+		try {
+			client.downloadFile(file, target);
+			fail("Expected the download to fail");
+		} catch (FigShareClientException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("403"));
+		}
+		assertFalse(target.exists());
+		assertEquals(10500L, new File(target.getPath() + ".part").length());
+		assertTrue(new File(target.getPath() + ".part.properties").isFile());
+
+		failFrom = -1L;
+		ranges.clear();
+		client.downloadFile(file, target);
+		assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+		assertNoPartialFiles(target);
+		// the ranges before the failure were not downloaded again
+		Collections.sort(ranges);
+		assertEquals(Arrays.asList(5000L, 6000L, 7000L, 8000L, 9000L, 10000L), ranges);
+	}
+
+	@Test
+	public void testChangedContentIsDownloadedAgain() throws Exception {
+		File target = new File(folder.getRoot(), "changed.bin");
+		failFrom = 5000L;
+		try {
+			client.downloadFile(serve("changed.bin", random(10500, 5L), "10.25 KB"), target);
+			fail("Expected the download to fail");
+		} catch (FigShareClientException e) {
+			// resumed below
+		}
+		failFrom = -1L;
+		byte[] content = random(10500, 6L);
+		client.downloadFile(serve("changed.bin", content, "10.25 KB"), target);
+		assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+		assertNoPartialFiles(target);
+	}
+
+	@Test
+	public void testSizeIsVerified() throws Exception {
+		File target = new File(folder.getRoot(), "wrong.bin");
+		try {
+			client.downloadFile(serve("wrong.bin", random(10500, 7L), "10.4 KB"), target);
+			fail("Expected the download to fail");
+		} catch (FigShareClientException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("10.4 KB"));
+		}
+		assertFalse(target.exists());
+		assertNoPartialFiles(target);
+	}
+
+	@Test
+	public void testDownloadFiles() throws Exception {
+		byte[] first = random(3000, 8L);
+		byte[] second = random(200, 9L);
+		List<org.biouno.figshare.v1.model.File> files = new ArrayList<>();
+		files.add(serve("first.bin", first, "2.93 KB"));
+		files.add(new org.biouno.figshare.v1.model.File("1 KB", null, Long.valueOf(3L), null, "missing.bin", null));
+		org.biouno.figshare.v1.model.File duplicate = serve("second.bin", second, "200 B");
+		files.add(new org.biouno.figshare.v1.model.File("200 B", null, Long.valueOf(4L), null, "first.bin",
+				duplicate.getDownloadUrl()));
+		File directory = new File(folder.getRoot(), "downloads");
+
+		List<BatchResult<org.biouno.figshare.v1.model.File, File>> results = client.downloadFiles(files, directory);
+		assertEquals(3, results.size());
+		assertEquals(new File(directory, "first.bin"), results.get(0).getResult());
+		assertArrayEquals(first, FileUtils.readFileToByteArray(results.get(0).getResult()));
+		assertFalse(results.get(1).isSuccess());
+		assertTrue(results.get(1).getError().getMessage().contains("no download URL"));
+		assertEquals(new File(directory, "4-first.bin"), results.get(2).getResult());
+		assertArrayEquals(second, FileUtils.readFileToByteArray(results.get(2).getResult()));
+	}
+
+	@Test
+	public void testFilesAreDownloadedInParallel() throws Exception {
+		holdMillis = 200L;
+		List<org.biouno.figshare.v1.model.File> files = new ArrayList<>();
+		List<byte[]> expected = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			byte[] content = random(500, 20L + i);
+			expected.add(content);
+			files.add(serve("file" + i + ".bin", content, "500 B"));
+		}
+		File directory = new File(folder.getRoot(), "parallel");
+
+		List<BatchResult<org.biouno.figshare.v1.model.File, File>> results = client.downloadFiles(files, directory);
+		for (int i = 0; i < results.size(); i++) {
+			assertTrue(results.get(i).isSuccess());
+			assertArrayEquals(expected.get(i), FileUtils.readFileToByteArray(results.get(i).getResult()));
+		}
+		assertTrue("Files were downloaded one at a time", maxInFlight.get() > 1);
+	}
+
+	@Test
+	public void testNamesAndIdsAreUnique() throws Exception {
+		byte[] first = random(300, 30L);
+		byte[] second = random(400, 31L);
+		byte[] third = random(500, 32L);
+		String firstUrl = serve("one", first, "300 B").getDownloadUrl();
+		String secondUrl = serve("two", second, "400 B").getDownloadUrl();
+		String thirdUrl = serve("three", third, "500 B").getDownloadUrl();
+		List<org.biouno.figshare.v1.model.File> files = new ArrayList<>();
+		files.add(new org.biouno.figshare.v1.model.File("300 B", null, Long.valueOf(1L), null, "a.bin", firstUrl));
+		files.add(new org.biouno.figshare.v1.model.File("400 B", null, Long.valueOf(2L), null, "a.bin", secondUrl));
+		// named after what the second one falls back to
+		files.add(new org.biouno.figshare.v1.model.File("500 B", null, Long.valueOf(2L), null, "2-a.bin", thirdUrl));
+		files.add(new org.biouno.figshare.v1.model.File("500 B", null, Long.valueOf(3L), null, "2-A.bin", thirdUrl));
+		files.add(new org.biouno.figshare.v1.model.File("500 B", null, Long.valueOf(5L), null, "4-a.bin", thirdUrl));
+		files.add(new org.biouno.figshare.v1.model.File("500 B", null, Long.valueOf(4L), null, "a.bin", thirdUrl));
+		File directory = new File(folder.getRoot(), "unique");
+
+		List<BatchResult<org.biouno.figshare.v1.model.File, File>> results = client.downloadFiles(files, directory);
+		assertEquals(new File(directory, "a.bin"), results.get(0).getResult());
+		assertArrayEquals(first, FileUtils.readFileToByteArray(results.get(0).getResult()));
+		assertEquals(new File(directory, "2-a.bin"), results.get(1).getResult());
+		assertArrayEquals(second, FileUtils.readFileToByteArray(results.get(1).getResult()));
+		assertFalse(results.get(2).isSuccess());
+		assertTrue(results.get(2).getError().getMessage(), results.get(2).getError().getMessage()
+				.contains("already in the batch"));
+		assertEquals(new File(directory, "3-2-A.bin"), results.get(3).getResult());
+		assertEquals(new File(directory, "4-a.bin"), results.get(4).getResult());
+		assertEquals(new File(directory, "4-2-a.bin"), results.get(5).getResult());
+		assertArrayEquals(third, FileUtils.readFileToByteArray(results.get(5).getResult()));
+	}
+
+	@Test
+	public void testDownloadUrlIsRead() throws Exception {
+		org.biouno.figshare.v1.model.File file = client.readFileFromJson("{\"size\": \"116.88 KB\", \"id\": 1,"
+				+ " \"name\": \"a.png\", \"download_url\": \"http://example.com/files/1\"}");
+		assertEquals("http://example.com/files/1", file.getDownloadUrl());
+		assertTrue(file.isSize(119685L));
+		assertTrue(file.isSize(119680L));
+		assertFalse(file.isSize(119700L));
+		assertNull(client.readFileFromJson("{\"id\": 1}").getDownloadUrl());
+	}
+
+}
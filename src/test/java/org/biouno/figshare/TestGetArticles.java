@@ -3,6 +3,7 @@ package org.biouno.figshare;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.io.StringReader;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
@@ -39,4 +40,16 @@ public class TestGetArticles {
 		assertEquals("Article ID doesn't match", Long.valueOf(123456789), articles.get(0).getArticleId());
 	}
 	
+	@Test
+	public void testJsonStreamToObjects() throws Exception {
+		String listing = "{\"items\": [{\"article_id\": 1}, {\"article_id\": 2, \"tags\": [{\"id\": 3, \"name\": \"x\"}]}], "
+				+ "\"count\": 2, \"filtered_by\": {\"status\": [\"Private\"]}}";
+		try (FigShareClient client = FigShareClient.to("", 1, "", "", "", "")) {
+			List<Article> articles = client.readArticlesFromJson(new StringReader(listing));
+			assertEquals("Wrong number of articles", 2, articles.size());
+			assertEquals("Article ID doesn't match", Long.valueOf(2L), articles.get(1).getArticleId());
+			assertEquals("Tag doesn't match", "x", articles.get(1).getTags().get(0).getName());
+		}
+	}
+	
 }
@@ -0,0 +1,81 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the helpers of the files kept on disk.
+ *
+ * @since 0.2
+ */
+public class TestLocalFiles {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testMd5() throws Exception {
+		assertEquals("900150983cd24fb0d6963f7d28e17f72", LocalFiles.md5("abc"));
+		File file = folder.newFile("abc.txt");
+		FileUtils.writeStringToFile(file, "abc", "UTF-8");
+		assertEquals("900150983cd24fb0d6963f7d28e17f72", LocalFiles.md5(file));
+	}
+
+	@Test
+	public void testConcurrentWritesDoNotMix() throws Exception {
+		final File file = new File(folder.getRoot(), "state.bin");
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Void>> writes = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				final byte[] content = new byte[64 * 1024];
+				Arrays.fill(content, (byte) i);
+				writes.add(threads.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (int j = 0; j < 50; j++) {
+							LocalFiles.write(file, new LocalFiles.Content() {
+								@Override
+								public void writeTo(OutputStream out) throws IOException {
+									out.write(content, 0, content.length / 2);
+									Thread.yield();
+									out.write(content, content.length / 2, content.length / 2);
+								}
+							});
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> write : writes) {
+				write.get();
+			}
+		} finally {
+			threads.shutdownNow();
+		}
+		byte[] written = FileUtils.readFileToByteArray(file);
+		byte[] expected = new byte[written.length];
+		Arrays.fill(expected, written[0]);
+		assertArrayEquals("Writes were mixed", expected, written);
+		assertEquals(64 * 1024, written.length);
+		assertTrue("Temporary files were left", Arrays.equals(new String[] { "state.bin" }, folder.getRoot().list()));
+	}
+
+}
@@ -0,0 +1,161 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biouno.figshare.metrics.ErrorCause;
+import org.biouno.figshare.metrics.Histogram;
+import org.biouno.figshare.metrics.InMemoryMetrics;
+import org.biouno.figshare.metrics.InMemoryMetrics.OperationMetrics;
+import org.biouno.figshare.v1.model.Article;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for the metrics reported by the client.
+ *
+ * @since 0.2
+ */
+public class TestMetrics {
+
+	private StubServer server;
+	private final AtomicInteger failures = new AtomicInteger();
+	private volatile String listing;
+
+	@Before
+	public void setUp() throws Exception {
+		listing = Fixtures.articles(1, 2);
+		final String article = Fixtures.read("/article.json");
+		server = new StubServer()
+			.handle("/v1/my_data/articles", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					if (failures.getAndDecrement() > 0) {
+						StubServer.send(exchange, 503, "{\"error\": \"unavailable\"}");
+						return;
+					}
+					boolean post = "POST".equals(exchange.getRequestMethod());
+					StubServer.send(exchange, 200, post ? article : listing);
+				}
+			})
+			.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	private FigShareClient client(InMemoryMetrics metrics) {
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setRetryBaseDelayMillis(10L);
+		configuration.setMetrics(metrics);
+		return FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration);
+	}
+
+	@Test
+	public void testRequestsAreMeasured() throws Exception {
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		try (FigShareClient client = client(metrics)) {
+			for (int i = 0; i < 3; i++) {
+				List<Article> articles = client.articles();
+				assertEquals(2, articles.size());
+			}
+			client.createArticle("title", "description", "dataset");
+		}
+		OperationMetrics articles = metrics.getOperation("articles");
+		assertEquals(3, articles.getRequests());
+		assertEquals(0, articles.getErrors());
+		assertEquals(3, articles.getLatency().getCount());
+		assertEquals(3, articles.getParseTime().getCount());
+		assertEquals(3L * listing.getBytes("UTF-8").length, articles.getBytesReceived());
+		assertEquals(0, articles.getBytesSent());
+
+		OperationMetrics create = metrics.getOperation("createArticle");
+		assertEquals(1, create.getRequests());
+		assertEquals(1, create.getParseTime().getCount());
+		assertTrue("Request body was not counted", create.getBytesSent() > 0);
+
+		assertTrue(metrics.getMaxConnections() > 0);
+		assertTrue(metrics.getLeasedConnections() <= metrics.getMaxConnections());
+	}
+
+	@Test
+	public void testRetriesAndErrorsAreCounted() throws Exception {
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		failures.set(1);
+		try (FigShareClient client = client(metrics)) {
+			assertEquals(2, client.articles().size());
+			failures.set(1);
+			try {
+				client.createArticle("title", "description", "dataset");
+				fail("Expected the creation to fail");
+			} catch (FigShareHttpException e) {
+				assertEquals(503, e.getStatusCode());
+			}
+		}
+		OperationMetrics articles = metrics.getOperation("articles");
+		assertEquals(2, articles.getRequests());
+		assertEquals(1, articles.getRetries());
+		assertEquals(1, articles.getErrors(ErrorCause.SERVER_ERROR));
+		OperationMetrics create = metrics.getOperation("createArticle");
+		assertEquals(0, create.getRetries());
+		assertEquals(1, create.getErrors(ErrorCause.SERVER_ERROR));
+	}
+
+	@Test
+	public void testParseErrorsAreCounted() throws Exception {
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		listing = "{\"items\": [{\"article_id\": }]}";
+		try (FigShareClient client = client(metrics)) {
+			client.articles();
+			fail("Expected the listing to fail");
+		} catch (FigShareClientException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Failed to read articles"));
+		}
+		assertEquals(1, metrics.getOperation("articles").getErrors(ErrorCause.PARSE));
+	}
+
+	@Test
+	public void testFormat() throws Exception {
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		try (FigShareClient client = client(metrics)) {
+			client.articles();
+		}
+		String text = metrics.format();
+		assertTrue(text, text.contains("figshare_requests_total{operation=\"articles\"} 1\n"));
+		assertTrue(text, text.contains("figshare_request_seconds{operation=\"articles\",quantile=\"0.99\"} "));
+		assertTrue(text, text.contains("figshare_request_seconds_count{operation=\"articles\"} 1\n"));
+		assertTrue(text, text.contains("figshare_connections_max "));
+	}
+
+	@Test
+	public void testHistogramPercentiles() throws Exception {
+		Histogram histogram = new Histogram();
+		assertEquals(0L, histogram.getPercentile(99));
+		for (long i = 1; i <= 100000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(100000, histogram.getCount());
+		assertEquals(100000L, histogram.getMax());
+		assertEquals(50000.5, histogram.getMean(), 0.001);
+		assertWithin(50000, histogram.getPercentile(50));
+		assertWithin(99000, histogram.getPercentile(99));
+		assertEquals(100000L, histogram.getPercentile(100));
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		assertTrue("Expected about " + expected + " but got " + actual,
+				actual >= expected && actual <= expected + expected / 8);
+	}
+
+}
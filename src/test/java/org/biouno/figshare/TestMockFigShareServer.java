@@ -0,0 +1,99 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.biouno.figshare.v1.model.Article;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the mock FigShare server, and a short run of the load test.
+ *
+ * @since 0.2
+ */
+public class TestMockFigShareServer {
+
+	private MockFigShareServer server;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new MockFigShareServer("ck", "cs", "tk", "ts", 16).withArticles(25).start();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+	
+	@Test
+	public void testSignedRequestsAreServed() throws Exception {
+		try (FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts")) {
+			assertEquals(25, client.articles().size());
+			assertEquals(10, client.articles(2, 10).size());
+			assertEquals(5, client.articles(3, 10).size());
+			Article article = client.createArticle("A title", "A description", "dataset");
+			assertEquals("A title", article.getTitle());
+			File upload = File.createTempFile("figshare", ".txt");
+			upload.deleteOnExit();
+			FileUtils.writeStringToFile(upload, "some data", "UTF-8");
+			assertEquals(upload.getName(), client.uploadFile(article.getArticleId(), upload).getName());
+			assertEquals(1, server.getArticle(article.getArticleId()).getAsJsonArray("files").size());
+		}
+		assertEquals(0, server.getRejectedCount());
+	}
+	
+	@Test
+	public void testBadSignatureIsRejected() throws Exception {
+		try (FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "wrong", "tk", "ts")) {
+			try {
+				client.articles();
+			} catch (RuntimeException expected) {
+			}
+		}
+		assertEquals(1, server.getRejectedCount());
+	}
+	
+	@Test
+	public void testErrorInjection() throws Exception {
+		server.withErrors(0.5, 503);
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxRetries(0);
+		configuration.setCircuitBreakerFailureThreshold(1000);
+		try (FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration)) {
+			int served = 0;
+			int failed = 0;
+			for (int i = 0; i < 100; i++) {
+				try {
+					assertEquals(10, client.articles(1, 10).size());
+					served++;
+				} catch (FigShareHttpException e) {
+					assertEquals(503, e.getStatusCode());
+					failed++;
+				}
+			}
+			assertEquals(server.getInjectedErrorCount(), failed);
+			assertTrue(served > 0);
+			assertTrue(failed > 0);
+		}
+	}
+	
+	@Test
+	public void testLoadTest() throws Exception {
+		server.withLatency(1, 1);
+		LoadTest test = new LoadTest(server.getEndpoint(), LoadTest.Operation.ARTICLES);
+		for (int concurrency : new int[] { 1, 8 }) {
+			LoadTest.Report report = test.run(concurrency, 200);
+			assertEquals(200, report.calls);
+			assertEquals(0, report.failures);
+			assertTrue(report.p50Nanos <= report.p99Nanos);
+			assertTrue(report.getThroughput() > 0);
+		}
+		assertEquals(0, server.getRejectedCount());
+	}
+
+}
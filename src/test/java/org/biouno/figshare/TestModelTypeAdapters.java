@@ -0,0 +1,131 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.biouno.figshare.v1.model.Article;
+import org.biouno.figshare.v1.model.Author;
+import org.biouno.figshare.v1.model.Category;
+import org.biouno.figshare.v1.model.Link;
+import org.biouno.figshare.v1.model.Owner;
+import org.biouno.figshare.v1.model.Tag;
+import org.biouno.figshare.v1.model.ModelTypeAdapterFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Tests for the hand-written model type adapters.
+ *
+ * @since 0.2
+ */
+public class TestModelTypeAdapters {
+
+	private Gson gson;
+	private Gson reflective;
+	
+	@Before
+	public void setUp() {
+		gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+		reflective = new Gson();
+	}
+	
+	@Test
+	public void testSameAsReflection() throws Exception {
+		String json = new JsonParser().parse(Fixtures.read("/articles.json")).getAsJsonObject()
+				.get("items").getAsJsonArray().get(0).toString();
+		Article expected = reflective.fromJson(json, Article.class);
+		Article article = gson.fromJson(json, Article.class);
+		assertEquals("Article ID doesn't match", expected.getArticleId(), article.getArticleId());
+		assertEquals("Title doesn't match", expected.getTitle(), article.getTitle());
+		assertEquals("Master publisher ID doesn't match", expected.getMasterPublisherId(), article.getMasterPublisherId());
+		assertEquals("Total size doesn't match", expected.getTotalSize(), article.getTotalSize());
+		assertEquals("Authors don't match", expected.getAuthors(), article.getAuthors());
+		assertEquals("Tags don't match", expected.getTags(), article.getTags());
+		assertEquals("Categories don't match", expected.getCategories(), article.getCategories());
+		assertEquals("Files don't match", expected.getFiles(), article.getFiles());
+		assertEquals("Links don't match", expected.getLinks(), article.getLinks());
+		assertTrue("Missing owners should be empty", article.getOwners().isEmpty());
+	}
+	
+	@Test
+	public void testPlainGsonUsesTheAdapters() throws Exception {
+		String json = new JsonParser().parse(Fixtures.read("/articles.json")).getAsJsonObject()
+				.get("items").getAsJsonArray().get(0).toString();
+		Article expected = gson.fromJson(json, Article.class);
+		Article article = reflective.fromJson(json, Article.class);
+		assertEquals("Plain Gson did not read the article like the adapters", expected, article);
+		assertEquals(expected.hashCode(), article.hashCode());
+		assertEquals(expected.getTotalSizeBytes(), article.getTotalSizeBytes());
+		assertEquals(expected.getFiles().get(0).getSizeBytes(), article.getFiles().get(0).getSizeBytes());
+		assertTrue("Plain Gson did not write the article", reflective.toJson(article).contains("\"article_id\""));
+	}
+	
+	@Test
+	public void testValuesAreShared() throws Exception {
+		List<Article> articles = gson.fromJson(new JsonParser().parse(Fixtures.articles(1, 2)).getAsJsonObject().get("items"),
+				new TypeToken<List<Article>>() {}.getType());
+		Article first = articles.get(0);
+		Article second = articles.get(1);
+		assertSame("Tags should be shared", first.getTags().get(0), second.getTags().get(0));
+		assertSame("Defined types should be shared", first.getDefinedType(), second.getDefinedType());
+		assertSame("Empty lists should be shared", first.getOwners(), second.getOwners());
+		assertEquals(Long.valueOf(0L), first.getMasterPublisherId());
+		try {
+			first.getTags().clear();
+			fail("Tags should not be modifiable");
+		} catch (UnsupportedOperationException e) {
+			assertEquals(1, first.getTags().size());
+		}
+	}
+	
+	@Test
+	public void testValuesAreSharedPerFactory() throws Exception {
+		String json = new JsonParser().parse(Fixtures.articles(1, 1)).getAsJsonObject().get("items")
+				.getAsJsonArray().get(0).toString();
+		Article first = gson.fromJson(json, Article.class);
+		Article again = gson.fromJson(json, Article.class);
+		Article other = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create()
+				.fromJson(json, Article.class);
+		assertSame("Tags should be shared", first.getTags().get(0), again.getTags().get(0));
+		assertEquals(first.getTags().get(0), other.getTags().get(0));
+		assertNotSame("Tags should not be shared across factories", first.getTags().get(0), other.getTags().get(0));
+	}
+	
+	@Test
+	public void testArticleWithRelatedObjects() throws Exception {
+		List<Author> authors = new ArrayList<>();
+		authors.add(new Author("Ada", "Lovelace", Long.valueOf(1L), "Ada Lovelace"));
+		List<Tag> tags = Arrays.asList(new Tag(Long.valueOf(2L), "maths"));
+		Article article = new Article(Long.valueOf(3L), "title", null, "dataset", "Public", Long.valueOf(1L),
+				null, "description", "description", "1 KB", null, null, null, null, authors, tags,
+				Collections.<Category>emptyList(), Collections.<org.biouno.figshare.v1.model.File>emptyList(),
+				Collections.<Link>emptyList(), Collections.<Owner>emptyList());
+		authors.clear();
+		assertEquals("Lovelace", article.getAuthors().get(0).getLastName());
+		assertEquals("maths", article.getTags().get(0).getName());
+		assertEquals(article, gson.fromJson(gson.toJson(article), Article.class));
+	}
+	
+	@Test
+	public void testRoundTrip() throws Exception {
+		Article article = gson.fromJson(Fixtures.read("/article.json"), Article.class);
+		assertEquals("Boolean total size doesn't match", "false", article.getTotalSize());
+		assertEquals("Round trip doesn't match", article, gson.fromJson(gson.toJson(article), Article.class));
+		org.biouno.figshare.v1.model.File file = gson.fromJson(Fixtures.read("/upload.json"), org.biouno.figshare.v1.model.File.class);
+		assertEquals("Round trip doesn't match", file, gson.fromJson(gson.toJson(file), org.biouno.figshare.v1.model.File.class));
+	}
+	
+}
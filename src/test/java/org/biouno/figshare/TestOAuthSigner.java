@@ -0,0 +1,103 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.Test;
+
+/**
+ * Tests for the OAuth signatures.
+ *
+ * @since 0.2
+ */
+public class TestOAuthSigner {
+
+	@Test
+	public void testSpecificationExample() throws Exception {
+		// the example of the OAuth 1.0 specification, appendix A.5
+		OAuthSigner signer = new OAuthSigner("dpf43f3p2l4k3l03", "kd94hf93k423kf44", "nnch734d00sl2jdk",
+				"pfkkdhi9sl3r4s00");
+		String authorization = signer.authorization("GET",
+				new URI("http://photos.example.net/photos?file=vacation.jpg&size=original"), "kllo9940pd9333jh",
+				1191242096L);
+		assertEquals("OAuth oauth_consumer_key=\"dpf43f3p2l4k3l03\", oauth_nonce=\"kllo9940pd9333jh\", "
+				+ "oauth_signature=\"tR3%2BTy81lMeYAr%2FFid0kMTYa%2FWM%3D\", oauth_signature_method=\"HMAC-SHA1\", "
+				+ "oauth_timestamp=\"1191242096\", oauth_token=\"nnch734d00sl2jdk\", oauth_version=\"1.0\"",
+				authorization);
+	}
+
+	@Test
+	public void testEncoding() throws Exception {
+		assertEquals("Ladies%20%2B%20Gentlemen", OAuthSigner.encode("Ladies + Gentlemen"));
+		assertEquals("Dogs%2C%20Cats%20%26%20Mice", OAuthSigner.encode("Dogs, Cats & Mice"));
+		assertEquals("-._~", OAuthSigner.encode("-._~"));
+		assertEquals("%E2%98%83%F0%9F%98%80", OAuthSigner.encode("\u2603\uD83D\uDE00"));
+	}
+
+	@Test
+	public void testQueryParametersAreSorted() throws Exception {
+		OAuthSigner signer = new OAuthSigner("ck", "cs", "tk", "ts");
+		// the same parameters in any order, and a default port, sign the same
+		assertEquals(signer.authorization("GET", new URI("http://Example.com/v1/a?b=2&a=1&a1=3"), "n", 1L),
+				signer.authorization("GET", new URI("http://example.com:80/v1/a?a1=3&a=1&b=2"), "n", 1L));
+	}
+
+	@Test
+	public void testSignatureIsReplaced() throws Exception {
+		OAuthSigner signer = new OAuthSigner("ck", "cs", "tk", "ts");
+		HttpGet request = new HttpGet("http://example.com/v1/my_data/articles");
+		signer.sign(request);
+		String first = request.getFirstHeader(HttpHeaders.AUTHORIZATION).getValue();
+		signer.sign(request);
+		assertEquals(1, request.getHeaders(HttpHeaders.AUTHORIZATION).length);
+		assertFalse("Nonce was reused", first.equals(request.getFirstHeader(HttpHeaders.AUTHORIZATION).getValue()));
+	}
+
+	@Test
+	public void testConcurrentSigning() throws Exception {
+		final OAuthSigner signer = new OAuthSigner("ck", "cs", "tk", "ts");
+		final List<URI> uris = new ArrayList<>();
+		final List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			URI uri = new URI("http://example.com/v1/my_data/articles/" + i + "?page=" + i + "&page_size=10");
+			uris.add(uri);
+			expected.add(signer.authorization("GET", uri, "nonce" + i, 1000L + i));
+		}
+		ExecutorService threads = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				final int offset = t;
+				results.add(threads.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						int mismatches = 0;
+						for (int n = 0; n < 5000; n++) {
+							int i = (n + offset) % uris.size();
+							if (!expected.get(i).equals(signer.authorization("GET", uris.get(i), "nonce" + i, 1000L + i))) {
+								mismatches++;
+							}
+						}
+						return mismatches;
+					}
+				}));
+			}
+			for (Future<Integer> result : results) {
+				assertEquals(Integer.valueOf(0), result.get());
+			}
+		} finally {
+			threads.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.biouno.figshare.v1.model.Article;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for paging through articles.
+ *
+ * @since 0.2
+ */
+public class TestPagedArticles {
+
+	private static final int TOTAL = 250;
+	private static final Pattern PAGE = Pattern.compile("page=(\\d+)&page_size=(\\d+)");
+
+	private StubServer server;
+	private FigShareClient client;
+	private CountDownLatch secondPageRequested;
+	
+	@Before
+	public void setUp() throws Exception {
+		secondPageRequested = new CountDownLatch(1);
+		server = new StubServer()
+			.handle("/v1/my_data/articles", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					Matcher matcher = PAGE.matcher(exchange.getRequestURI().getQuery());
+					if (!matcher.find()) {
+						StubServer.send(exchange, 400, "{\"error\": \"no page\"}");
+						return;
+					}
+					int page = Integer.parseInt(matcher.group(1));
+					int pageSize = Integer.parseInt(matcher.group(2));
+					if (page == 2) {
+						secondPageRequested.countDown();
+					}
+					int first = (page - 1) * pageSize + 1;
+					int count = Math.max(0, Math.min(pageSize, TOTAL - first + 1));
+					StubServer.send(exchange, 200, Fixtures.articles(first, count));
+				}
+			})
+			.start();
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setPageSize(100);
+		client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.stop();
+	}
+	
+	@Test
+	public void testAllPagesAreRead() {
+		long expectedId = 1;
+		for (Article article : client.pagedArticles()) {
+			assertEquals("Wrong article ID", Long.valueOf(expectedId++), article.getArticleId());
+		}
+		assertEquals("Wrong number of articles", TOTAL + 1, expectedId);
+		assertEquals("Wrong number of requests", 3, server.getRequestCount());
+	}
+	
+	@Test
+	public void testNextPageIsPrefetched() throws Exception {
+		Iterator<Article> articles = client.pagedArticles().iterator();
+		assertEquals("Wrong article ID", Long.valueOf(1L), articles.next().getArticleId());
+		// still on the first page, but the second one is already on its way
+		assertTrue("Second page was not prefetched", secondPageRequested.await(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testCloseCancelsTheNextPage() throws Exception {
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setPageSize(100);
+		// the fetch of the second page waits a second for the rate limiter
+		configuration.setMaxRequestsPerSecond(1.0);
+		configuration.setMaxRequestBurst(1);
+		try (FigShareClient limited = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration)) {
+			try (ArticlePages.PageIterator articles = limited.pagedArticles().iterator()) {
+				assertEquals("Wrong article ID", Long.valueOf(1L), articles.next().getArticleId());
+			}
+			assertFalse("Second page was requested", secondPageRequested.await(1500, TimeUnit.MILLISECONDS));
+			assertEquals("Wrong number of requests", 1, server.getRequestCount());
+		}
+	}
+	
+	@Test
+	public void testSinglePage() {
+		assertEquals("Wrong number of articles", 50, client.articles(3, 100).size());
+	}
+	
+}
@@ -0,0 +1,99 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.biouno.figshare.v1.model.Article;
+import org.biouno.figshare.v1.model.File;
+import org.biouno.figshare.v1.model.ModelTypeAdapterFactory;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+
+/**
+ * Tests for the sizes and dates parsed by the models.
+ *
+ * @since 0.2
+ */
+public class TestParsedValues {
+
+	private static Long size(String size) {
+		return new File(size, null, Long.valueOf(1L), null, null).getSizeBytes();
+	}
+
+	private static Long date(String date) {
+		return new Article(Long.valueOf(1L), null, null, null, null, null, date, null, null, null).getPublishedInstant();
+	}
+
+	@Test
+	public void testSizes() {
+		assertEquals(Long.valueOf(999L * 1024L), size("999 KB"));
+		assertEquals(Long.valueOf(119685L), size("116.88 KB"));
+		assertEquals(Long.valueOf(1992294L), size("1.90 MB"));
+		assertEquals(Long.valueOf(3L << 30), size("3 GB"));
+		assertEquals(Long.valueOf(1L << 40), size("1 TB"));
+		assertEquals(Long.valueOf(2048L), size("2 KiB"));
+		assertEquals(Long.valueOf(12L), size("12 bytes"));
+		assertEquals(Long.valueOf(12L), size("12 B"));
+		assertEquals(Long.valueOf(12L), size("12"));
+		assertEquals(Long.valueOf(1536L), size(" 1.5kb "));
+		assertEquals(Long.valueOf(0L), size("0 KB"));
+	}
+
+	@Test
+	public void testInvalidSizes() {
+		assertNull(size(null));
+		assertNull(size(""));
+		assertNull(size("false"));
+		assertNull(size("KB"));
+		assertNull(size("12 PB"));
+		assertNull(size("12 KBs"));
+		assertNull(size("1.2.3 KB"));
+		assertNull(size("-1 KB"));
+		assertNull(size("99999999999999999 TB"));
+		assertNull(size("1234567890123456789"));
+	}
+
+	@Test
+	public void testDates() {
+		assertEquals(Long.valueOf(1433323620000L), date("09:27, Jun 03, 2015"));
+		assertEquals(Long.valueOf(1433053500000L), date("06:25, May 31, 2015"));
+		assertEquals(Long.valueOf(1456704000000L), date("00:00, feb 29, 2016"));
+		assertEquals(Long.valueOf(-60000L), date("23:59, Dec 31, 1969"));
+		assertEquals(Long.valueOf(1433323620000L), date("9:27, Jun 3, 2015"));
+	}
+
+	@Test
+	public void testInvalidDates() {
+		assertNull(date(null));
+		assertNull(date(""));
+		assertNull(date("2015-06-03T09:27:00Z"));
+		assertNull(date("24:00, Jun 03, 2015"));
+		assertNull(date("09:60, Jun 03, 2015"));
+		assertNull(date("09:27, Jux 03, 2015"));
+		assertNull(date("09:27, Feb 29, 2015"));
+		assertNull(date("09:27, Jun 31, 2015"));
+		assertNull(date("09:27, Jun 03, 15"));
+		assertNull(date("09:27, Jun 03, 2015 UTC"));
+		assertNull(date("09:27 Jun 03, 2015"));
+	}
+
+	@Test
+	public void testParsedWhenRead() throws Exception {
+		Gson gson = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+		String json = new JsonParser().parse(Fixtures.read("/articles.json")).getAsJsonObject()
+				.get("items").getAsJsonArray().get(0).toString();
+		Article article = gson.fromJson(json, Article.class);
+		assertEquals("116.88 KB", article.getTotalSize());
+		assertEquals(Long.valueOf(119685L), article.getTotalSizeBytes());
+		assertEquals("09:27, Jun 03, 2015", article.getPublishedDate());
+		assertEquals(Long.valueOf(1433323620000L), article.getPublishedInstant());
+		assertEquals(Long.valueOf(120L * 1024L), article.getFiles().get(0).getSizeBytes());
+		Article unsized = gson.fromJson(Fixtures.read("/article.json"), Article.class);
+		assertNull(unsized.getTotalSizeBytes());
+		assertEquals(unsized, gson.fromJson(gson.toJson(unsized), Article.class));
+	}
+
+}
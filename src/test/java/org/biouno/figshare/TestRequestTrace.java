@@ -0,0 +1,200 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.apache.http.HttpRequest;
+import org.biouno.figshare.RequestTrace.Phase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for the request interceptors, the phase timings of the calls and the
+ * slow call log.
+ *
+ * @since 0.2
+ */
+public class TestRequestTrace {
+
+	private StubServer server;
+	private final AtomicInteger failures = new AtomicInteger();
+	private volatile int failureStatus = 503;
+	private volatile long delayMillis = 0L;
+	private final List<String> traceHeaders = new CopyOnWriteArrayList<>();
+	private final List<RequestTrace> traces = new CopyOnWriteArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		final String articles = Fixtures.articles(1, 3);
+		final String article = Fixtures.read("/article.json");
+		server = new StubServer()
+			.handle("/v1/my_data/articles", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					traceHeaders.add(String.valueOf(exchange.getRequestHeaders().getFirst("traceparent")));
+					if (failures.getAndDecrement() > 0) {
+						StubServer.send(exchange, failureStatus, "{\"error\": \"failure\"}");
+						return;
+					}
+					if (delayMillis > 0) {
+						try {
+							Thread.sleep(delayMillis);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+					boolean post = "POST".equals(exchange.getRequestMethod());
+					StubServer.send(exchange, 200, post ? article : articles);
+				}
+			})
+			.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	private FigShareClient client(FigShareClientConfiguration configuration) {
+		configuration.setRetryBaseDelayMillis(10L);
+		configuration.addInterceptor(new RequestInterceptor() {
+			@Override
+			public void beforeSend(RequestTrace trace, HttpRequest request) {
+				request.setHeader("traceparent", "00-trace-" + trace.getAttempts());
+			}
+
+			@Override
+			public void afterCall(RequestTrace trace) {
+				traces.add(trace);
+			}
+		});
+		return FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration);
+	}
+
+	@Test
+	public void testPhasesAreTimed() throws Exception {
+		try (FigShareClient client = client(new FigShareClientConfiguration())) {
+			assertEquals(3, client.articles().size());
+			client.createArticle("title", "description", "dataset");
+		}
+		assertEquals(2, traces.size());
+		RequestTrace listing = traces.get(0);
+		assertEquals("articles", listing.getOperation());
+		assertEquals("GET", listing.getMethod());
+		assertTrue(listing.getUri(), listing.getUri().endsWith("/v1/my_data/articles"));
+		assertEquals(200, listing.getStatusCode());
+		assertEquals(1, listing.getAttempts());
+		assertNull(listing.getFailure());
+		assertTrue(listing.isFinished());
+		for (Phase phase : new Phase[] { Phase.SIGN, Phase.CONNECT, Phase.SEND, Phase.FIRST_BYTE, Phase.BODY,
+				Phase.BINDING }) {
+			assertTrue(phase + " was not timed: " + listing, listing.getNanos(phase) > 0);
+		}
+		long phases = 0L;
+		for (Phase phase : Phase.values()) {
+			phases += listing.getNanos(phase);
+		}
+		assertTrue(listing.toString(), phases <= listing.getTotalNanos());
+
+		RequestTrace creation = traces.get(1);
+		assertEquals("createArticle", creation.getOperation());
+		assertEquals("POST", creation.getMethod());
+		assertTrue(creation.toString(), creation.getNanos(Phase.BINDING) > 0);
+		assertTrue(creation.toString(), creation.toString().startsWith("createArticle POST "));
+	}
+
+	@Test
+	public void testInterceptorsSeeEveryAttempt() throws Exception {
+		failures.set(1);
+		try (FigShareClient client = client(new FigShareClientConfiguration())) {
+			client.articles();
+		}
+		assertEquals(2, traceHeaders.size());
+		assertEquals("00-trace-1", traceHeaders.get(0));
+		assertEquals("00-trace-2", traceHeaders.get(1));
+		assertEquals(1, traces.size());
+		assertEquals(2, traces.get(0).getAttempts());
+		assertTrue(traces.get(0).getNanos(Phase.WAIT) > 0);
+	}
+
+	@Test
+	public void testFailuresAreTraced() throws Exception {
+		failures.set(1);
+		failureStatus = 404;
+		try (FigShareClient client = client(new FigShareClientConfiguration())) {
+			client.articles();
+			fail("Expected the listing to fail");
+		} catch (FigShareHttpException e) {
+			assertEquals(1, traces.size());
+			assertEquals(404, traces.get(0).getStatusCode());
+			assertTrue(traces.get(0).getFailure() == e);
+		}
+	}
+
+	@Test
+	public void testIteratorFinishesTheTrace() throws Exception {
+		try (FigShareClient client = client(new FigShareClientConfiguration())) {
+			try (ArticleIterator iterator = client.articlesIterator()) {
+				iterator.next();
+				assertTrue(traces.isEmpty());
+			}
+			assertEquals(1, traces.size());
+		}
+	}
+
+	@Test
+	public void testSlowCallsAreLogged() throws Exception {
+		final List<LogRecord> records = new ArrayList<>();
+		Handler handler = new Handler() {
+			@Override
+			public synchronized void publish(LogRecord record) {
+				records.add(record);
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		Logger logger = Logger.getLogger(SlowCallLogger.class.getName());
+		logger.addHandler(handler);
+		try {
+			FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+			configuration.setSlowCallThresholdMillis(100L);
+			try (FigShareClient client = client(configuration)) {
+				client.articles();
+				delayMillis = 150L;
+				client.articles();
+			}
+		} finally {
+			logger.removeHandler(handler);
+		}
+		synchronized (handler) {
+			assertEquals(1, records.size());
+			String message = records.get(0).getMessage();
+			assertTrue(message, message.startsWith("Slow call: articles GET "));
+			assertTrue(message, message.contains("first_byte "));
+		}
+		assertFalse(traces.isEmpty());
+	}
+
+}
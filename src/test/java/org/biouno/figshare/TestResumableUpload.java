@@ -0,0 +1,227 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for chunked uploads that resume after a failure.
+ *
+ * @since 0.2
+ */
+public class TestResumableUpload {
+
+	private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private StubServer server;
+	private FigShareClient client;
+	private final Map<String, ByteArrayOutputStream> uploads = new HashMap<>();
+	private final List<Long> offsets = Collections.synchronizedList(new ArrayList<Long>());
+	private final AtomicInteger failOnChunk = new AtomicInteger(-1);
+	private final AtomicInteger chunks = new AtomicInteger();
+	private volatile boolean stalled = false;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer()
+			.handle("/v1/my_data/articles/123/files", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					byte[] chunk = IOUtils.toByteArray(exchange.getRequestBody());
+					if (chunks.incrementAndGet() == failOnChunk.get()) {
+						StubServer.send(exchange, 503, "{\"error\": \"try again later\"}");
+						return;
+					}
+					Matcher matcher = CONTENT_RANGE.matcher(exchange.getRequestHeaders().getFirst("Content-Range"));
+					if (!matcher.find()) {
+						StubServer.send(exchange, 400, "{\"error\": \"no range\"}");
+						return;
+					}
+					long start = Long.parseLong(matcher.group(1));
+					long total = Long.parseLong(matcher.group(3));
+					if (stalled) {
+						// never acknowledges more than the first chunk
+						offsets.add(start);
+						exchange.getResponseHeaders().set("Range", "bytes=0-999");
+						StubServer.send(exchange, 308, "");
+						return;
+					}
+					String uploadId = exchange.getRequestHeaders().getFirst(ChunkedUpload.UPLOAD_ID_HEADER);
+					synchronized (uploads) {
+						ByteArrayOutputStream content = uploads.get(uploadId);
+						if (content == null) {
+							content = new ByteArrayOutputStream();
+							uploads.put(uploadId, content);
+						}
+						if (start != content.size()) {
+							StubServer.send(exchange, 416, "{\"error\": \"wrong offset\"}");
+							return;
+						}
+						offsets.add(start);
+						content.write(chunk);
+						if (content.size() < total) {
+							exchange.getResponseHeaders().set("Range", "bytes=0-" + (content.size() - 1));
+							StubServer.send(exchange, 308, "");
+						} else {
+							String name = exchange.getRequestHeaders().getFirst(ChunkedUpload.FILE_NAME_HEADER);
+							StubServer.send(exchange, 200, "{\"id\": 1, \"name\": \"" + name + "\", \"size\": \"5 KB\"}");
+						}
+					}
+				}
+			})
+			.start();
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setUploadChunkSize(1000);
+		// fail for good on the first 503, instead of retrying the chunk
+		configuration.setMaxRetries(0);
+		configuration.setUploadJournalDirectory(folder.newFolder("journal"));
+		client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.stop();
+	}
+	
+	@Test
+	public void testResumeAfterFailure() throws Exception {
+		byte[] data = new byte[5500];
+		new Random(42).nextBytes(data);
+		File file = folder.newFile("reads.fastq");
+		FileUtils.writeByteArrayToFile(file, data);
+		
+		failOnChunk.set(4);
+		try {
+			client.uploadFileResumable(123L, file);
+			fail("Expected the fourth chunk to fail");
+		} catch (FigShareClientException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("503"));
+		}
+		assertEquals("Wrong chunks before the failure", 3, offsets.size());
+		
+		org.biouno.figshare.v1.model.File uploaded = client.uploadFileResumable(123L, file);
+		assertEquals("File name doesn't match", "reads.fastq", uploaded.getName());
+		assertEquals("Upload did not resume after the last chunk", Long.valueOf(3000L), offsets.get(3));
+		assertEquals("Wrong number of chunks", 6, offsets.size());
+		assertArrayEquals("Uploaded content doesn't match", data, uploads.values().iterator().next().toByteArray());
+		assertEquals("Journal was not removed", 0, new File(folder.getRoot(), "journal").list().length);
+	}
+	
+	@Test
+	public void testChangedFileStartsAgain() throws Exception {
+		File file = folder.newFile("table.csv");
+		FileUtils.writeByteArrayToFile(file, new byte[2500]);
+		failOnChunk.set(2);
+		try {
+			client.uploadFileResumable(123L, file);
+			fail("Expected the second chunk to fail");
+		} catch (FigShareClientException expected) {
+		}
+		long modified = file.lastModified();
+		byte[] changed = new byte[2500];
+		changed[0] = 1;
+		FileUtils.writeByteArrayToFile(file, changed);
+		// the journal goes by the modification time, which may not have ticked yet
+		file.setLastModified(modified + 2000L);
+		offsets.clear();
+		client.uploadFileResumable(123L, file);
+		assertEquals("Changed file did not start from the beginning", Long.valueOf(0L), offsets.get(0));
+	}
+	
+	@Test
+	public void testResumeDoesNotReadTheFileAgain() throws Exception {
+		File file = folder.newFile("large.bin");
+		FileUtils.writeByteArrayToFile(file, new byte[2500]);
+		long modified = file.lastModified();
+		failOnChunk.set(2);
+		try {
+			client.uploadFileResumable(123L, file);
+			fail("Expected the second chunk to fail");
+		} catch (FigShareClientException expected) {
+		}
+		// same size and modification time: the journal is trusted, checksum and all
+		byte[] changed = new byte[2500];
+		changed[2400] = 1;
+		FileUtils.writeByteArrayToFile(file, changed);
+		file.setLastModified(modified);
+		offsets.clear();
+		client.uploadFileResumable(123L, file);
+		assertEquals("Upload did not resume", Arrays.asList(1000L, 2000L), offsets);
+		assertEquals("Resumed upload has another ID", 1, uploads.size());
+	}
+	
+	@Test
+	public void testUploadIsOneTracedCall() throws Exception {
+		final List<RequestTrace> traces = Collections.synchronizedList(new ArrayList<RequestTrace>());
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setUploadChunkSize(1000);
+		configuration.setUploadJournalDirectory(folder.newFolder("traced"));
+		configuration.addInterceptor(new RequestInterceptor() {
+			@Override
+			public void beforeSend(RequestTrace trace, HttpRequest request) {
+			}
+
+			@Override
+			public void afterCall(RequestTrace trace) {
+				traces.add(trace);
+			}
+		});
+		File file = folder.newFile("traced.bin");
+		FileUtils.writeByteArrayToFile(file, new byte[2500]);
+		try (FigShareClient traced = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration)) {
+			traced.uploadFileResumable(123L, file);
+		}
+		assertEquals(1, traces.size());
+		RequestTrace trace = traces.get(0);
+		assertEquals("uploadFileResumable", trace.getOperation());
+		assertEquals(3, trace.getAttempts());
+		assertEquals(200, trace.getStatusCode());
+		assertTrue(trace.toString(), trace.getNanos(RequestTrace.Phase.BINDING) > 0);
+	}
+	
+	@Test
+	public void testStalledUploadFails() throws Exception {
+		File file = folder.newFile("stalled.bin");
+		FileUtils.writeByteArrayToFile(file, new byte[5500]);
+		stalled = true;
+		try {
+			client.uploadFileResumable(123L, file);
+			fail("Expected the upload to fail");
+		} catch (FigShareClientException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("did not acknowledge the chunk at offset 1000"));
+		}
+		assertEquals("Chunk was sent again", 2, offsets.size());
+	}
+	
+}
@@ -0,0 +1,179 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.message.BasicHeader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for the status classification, retries and rate limiting of requests.
+ *
+ * @since 0.2
+ */
+public class TestRetries {
+
+	private static final Pattern NONCE = Pattern.compile("oauth_nonce=\"([^\"]+)\"");
+
+	private StubServer server;
+	private final AtomicInteger failures = new AtomicInteger();
+	private volatile int failureStatus = 503;
+	private volatile String retryAfter = null;
+	private final Set<String> nonces = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	
+	@Before
+	public void setUp() throws Exception {
+		final String articles = Fixtures.articles(1, 2);
+		final String article = Fixtures.read("/article.json");
+		server = new StubServer()
+			.handle("/v1/my_data/articles", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					Matcher matcher = NONCE.matcher(exchange.getRequestHeaders().getFirst("Authorization"));
+					if (matcher.find()) {
+						nonces.add(matcher.group(1));
+					}
+					if (failures.getAndDecrement() > 0) {
+						if (retryAfter != null) {
+							exchange.getResponseHeaders().set("Retry-After", retryAfter);
+						}
+						StubServer.send(exchange, failureStatus, "{\"error\": \"failure " + failureStatus + "\"}");
+						return;
+					}
+					boolean post = "POST".equals(exchange.getRequestMethod());
+					StubServer.send(exchange, 200, post ? article : articles);
+				}
+			})
+			.start();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+	
+	private FigShareClient client(FigShareClientConfiguration configuration) {
+		configuration.setRetryBaseDelayMillis(10L);
+		return FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration);
+	}
+	
+	@Test
+	public void testIdempotentRequestIsRetried() throws Exception {
+		failures.set(2);
+		try (FigShareClient client = client(new FigShareClientConfiguration())) {
+			List<?> articles = client.articles();
+			assertEquals(2, articles.size());
+		}
+		assertEquals(3, server.getRequestCount());
+		assertEquals("Retries were not signed again", 3, nonces.size());
+	}
+	
+	@Test
+	public void testRetriesGiveUp() throws Exception {
+		failures.set(10);
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxRetries(2);
+		try (FigShareClient client = client(configuration)) {
+			client.articles();
+			fail("Expected the listing to fail");
+		} catch (FigShareHttpException e) {
+			assertEquals(503, e.getStatusCode());
+			assertTrue(e.getMessage(), e.getMessage().contains("failure 503"));
+		}
+		assertEquals(3, server.getRequestCount());
+	}
+	
+	@Test
+	public void testCreationIsNotRetriedAfterServerError() throws Exception {
+		failures.set(1);
+		try (FigShareClient client = client(new FigShareClientConfiguration())) {
+			client.createArticle("title", "description", "dataset");
+			fail("Expected the creation to fail");
+		} catch (FigShareHttpException e) {
+			assertEquals(503, e.getStatusCode());
+		}
+		assertEquals(1, server.getRequestCount());
+	}
+	
+	@Test
+	public void testClientErrorIsNotRetried() throws Exception {
+		failures.set(1);
+		failureStatus = 404;
+		try (FigShareClient client = client(new FigShareClientConfiguration())) {
+			client.articles();
+			fail("Expected the listing to fail");
+		} catch (FigShareHttpException e) {
+			assertEquals(404, e.getStatusCode());
+		}
+		assertEquals(1, server.getRequestCount());
+	}
+	
+	@Test
+	public void testTooManyRequestsHonorsRetryAfter() throws Exception {
+		failures.set(1);
+		failureStatus = 429;
+		retryAfter = "1";
+		try (FigShareClient client = client(new FigShareClientConfiguration())) {
+			long start = System.nanoTime();
+			assertEquals(Long.valueOf(123L), client.createArticle("title", "description", "dataset").getArticleId());
+			assertTrue("Did not wait for Retry-After", System.nanoTime() - start >= 900000000L);
+		}
+		assertEquals(2, server.getRequestCount());
+	}
+	
+	@Test
+	public void testRetryAfterBeyondMaximumDelayFails() throws Exception {
+		failures.set(1);
+		failureStatus = 429;
+		retryAfter = "120";
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setRetryMaxDelayMillis(5000L);
+		try (FigShareClient client = client(configuration)) {
+			client.articles();
+			fail("Expected the listing to fail");
+		} catch (FigShareHttpException e) {
+			assertEquals(429, e.getStatusCode());
+			assertEquals(120000L, e.getRetryAfterMillis());
+		}
+		assertEquals(1, server.getRequestCount());
+	}
+	
+	@Test
+	public void testRetryAfterDate() throws Exception {
+		assertEquals(-1L, RequestExecutor.retryAfterMillis(null));
+		assertEquals(3000L, RequestExecutor.retryAfterMillis(new BasicHeader("Retry-After", "3")));
+		assertEquals(0L, RequestExecutor.retryAfterMillis(new BasicHeader("Retry-After", "Wed, 21 Oct 2015 07:28:00 GMT")));
+		assertEquals(-1L, RequestExecutor.retryAfterMillis(new BasicHeader("Retry-After", "soon")));
+	}
+	
+	@Test
+	public void testRateLimit() throws Exception {
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setMaxRequestsPerSecond(20);
+		configuration.setMaxRequestBurst(1);
+		try (FigShareClient client = client(configuration)) {
+			long start = System.nanoTime();
+			for (int i = 0; i < 11; i++) {
+				client.articles();
+			}
+			long elapsed = System.nanoTime() - start;
+			assertTrue("Rate limit not applied: " + elapsed, elapsed >= 450000000L);
+		}
+	}
+
+}
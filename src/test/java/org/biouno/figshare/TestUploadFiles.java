@@ -0,0 +1,112 @@
+package org.biouno.figshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Tests for uploading many files at once.
+ *
+ * @since 0.2
+ */
+public class TestUploadFiles {
+
+	private static final Pattern FILENAME = Pattern.compile("filename=\"([^\"]+)\"");
+
+	private StubServer server;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	private final List<File> files = new ArrayList<>();
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer()
+			.handle("/v1/my_data/articles/123/files", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					String body = IOUtils.toString(exchange.getRequestBody(), "UTF-8");
+					int current = inFlight.incrementAndGet();
+					try {
+						synchronized (maxInFlight) {
+							maxInFlight.set(Math.max(maxInFlight.get(), current));
+						}
+						Thread.sleep(50);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						// before responding, as the client starts the next upload right after
+						inFlight.decrementAndGet();
+					}
+					Matcher matcher = FILENAME.matcher(body);
+					String name = matcher.find() ? matcher.group(1) : "unknown";
+					StubServer.send(exchange, 200, "{\"id\": 1, \"name\": \"" + name + "\"}");
+				}
+			})
+			.start();
+		for (int i = 0; i < 12; i++) {
+			File file = File.createTempFile("figshare-" + i + "-", ".dat");
+			file.deleteOnExit();
+			FileUtils.writeByteArrayToFile(file, new byte[4096]);
+			files.add(file);
+		}
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+	
+	@Test
+	public void testUploadFiles() throws Exception {
+		File missing = new File(files.get(0).getParentFile(), "figshare-does-not-exist.dat");
+		files.add(5, missing);
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setUploadConcurrency(3);
+		try (FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration)) {
+			List<BatchResult<File, org.biouno.figshare.v1.model.File>> results = client.uploadFiles(123L, files);
+			assertEquals("Wrong number of results", files.size(), results.size());
+			for (int i = 0; i < files.size(); i++) {
+				BatchResult<File, org.biouno.figshare.v1.model.File> result = results.get(i);
+				assertEquals("Results out of order", files.get(i), result.getInput());
+				if (i == 5) {
+					assertFalse("Missing file should fail", result.isSuccess());
+				} else {
+					assertTrue("Upload failed: " + result.getError(), result.isSuccess());
+					assertEquals("Wrong file uploaded", files.get(i).getName(), result.getResult().getName());
+				}
+			}
+		}
+		assertTrue("Too many uploads at once: " + maxInFlight.get(), maxInFlight.get() <= 3);
+	}
+	
+	@Test
+	public void testBytesInFlightLimit() throws Exception {
+		FigShareClientConfiguration configuration = new FigShareClientConfiguration();
+		configuration.setUploadConcurrency(4);
+		configuration.setMaxUploadBytesInFlight(2 * 4096);
+		try (FigShareClient client = FigShareClient.to(server.getEndpoint(), 1, "ck", "cs", "tk", "ts", configuration)) {
+			for (BatchResult<File, org.biouno.figshare.v1.model.File> result : client.uploadFiles(123L, files)) {
+				assertTrue("Upload failed: " + result.getError(), result.isSuccess());
+			}
+		}
+		assertTrue("Too many bytes in flight: " + maxInFlight.get() + " files", maxInFlight.get() <= 2);
+	}
+	
+}